@@ -0,0 +1,112 @@
+package com.mesosphere.dcos.kafka.commons.state;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.utils.ZKPaths;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory view of the broker registrations which Kafka brokers write under their ids path in ZK. The view is
+ * populated once when the registry is started and is then only updated when ZK notifies us of a change, so lookups
+ * never cost a ZK round trip.
+ */
+class BrokerRegistry {
+    private static final Log log = LogFactory.getLog(BrokerRegistry.class);
+
+    private final PathChildrenCache cache;
+    private final Map<String, JSONObject> brokers = new ConcurrentSkipListMap<>();
+
+    BrokerRegistry(CuratorFramework zkClient, String brokerIdPath) {
+        this.cache = new PathChildrenCache(zkClient, brokerIdPath, true);
+        this.cache.getListenable().addListener(new PathChildrenCacheListener() {
+            @Override
+            public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) throws Exception {
+                handleEvent(event);
+            }
+        });
+    }
+
+    /**
+     * Starts watching the broker ids path. Returns once the initial set of registrations has been read.
+     */
+    void start() throws Exception {
+        cache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+        rebuild();
+    }
+
+    void close() throws IOException {
+        cache.close();
+    }
+
+    /**
+     * Returns the ids of all currently registered brokers.
+     */
+    List<String> getBrokerIds() {
+        return new ArrayList<>(brokers.keySet());
+    }
+
+    /**
+     * Returns the parsed registration of the provided broker, or an empty Optional if it isn't registered.
+     */
+    Optional<JSONObject> getBroker(String brokerId) {
+        return Optional.ofNullable(brokers.get(brokerId));
+    }
+
+    /**
+     * Returns a snapshot of all current registrations, keyed by broker id.
+     */
+    Map<String, JSONObject> getBrokers() {
+        return new TreeMap<>(brokers);
+    }
+
+    private void handleEvent(PathChildrenCacheEvent event) {
+        switch (event.getType()) {
+            case CHILD_ADDED:
+            case CHILD_UPDATED:
+                put(event.getData());
+                break;
+            case CHILD_REMOVED:
+                String brokerId = ZKPaths.getNodeFromPath(event.getData().getPath());
+                log.info("Broker unregistered: " + brokerId);
+                brokers.remove(brokerId);
+                break;
+            case CONNECTION_RECONNECTED:
+            case INITIALIZED:
+                rebuild();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void rebuild() {
+        Set<String> currentIds = new HashSet<>();
+        for (ChildData childData : cache.getCurrentData()) {
+            currentIds.add(put(childData));
+        }
+        brokers.keySet().retainAll(currentIds);
+    }
+
+    private String put(ChildData childData) {
+        String brokerId = ZKPaths.getNodeFromPath(childData.getPath());
+        JSONObject registration;
+        try {
+            registration = new JSONObject(new String(childData.getData(), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.error("Failed to parse registration for broker: " + brokerId, e);
+            registration = new JSONObject();
+        }
+        brokers.put(brokerId, registration);
+        return brokerId;
+    }
+}
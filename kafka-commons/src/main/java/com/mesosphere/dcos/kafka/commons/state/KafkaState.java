@@ -5,29 +5,48 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Read-only interface for retrieving information stored by the Kafka brokers themselves.
  */
-public class KafkaState {
+public class KafkaState implements Closeable {
     private static final Log log = LogFactory.getLog(KafkaState.class);
 
     private static final int POLL_DELAY_MS = 1000;
     private static final int CURATOR_MAX_RETRIES = 3;
+    private static final int PARTITION_INDEX_TIMEOUT_MS = 30000;
+    private static final int BATCH_READ_TIMEOUT_MS = 30000;
+    public static final int DEFAULT_MAX_IN_FLIGHT_READS = 100;
 
     private final ZookeeperConfiguration zkConfig;
     private final CuratorFramework kafkaZkClient;
+    private final int maxInFlightReads;
+    private BrokerRegistry brokerRegistry;
+    private PartitionIndex partitionIndex;
 
     public KafkaState(ZookeeperConfiguration zkConfig) {
+        this(zkConfig, DEFAULT_MAX_IN_FLIGHT_READS);
+    }
+
+    public KafkaState(ZookeeperConfiguration zkConfig, int maxInFlightReads) {
         this.zkConfig = zkConfig;
+        this.maxInFlightReads = maxInFlightReads > 0 ? maxInFlightReads : DEFAULT_MAX_IN_FLIGHT_READS;
 
         this.kafkaZkClient = CuratorFrameworkFactory.newClient(
                 zkConfig.getKafkaZkUri(),
@@ -35,31 +54,39 @@ public class KafkaState {
         this.kafkaZkClient.start();
     }
 
-    public JSONArray getBrokerIds() throws Exception {
-        return getIds(zkConfig.getBrokerIdPath());
+    /**
+     * Returns the client for the Kafka ZK tree, so that writers against the same tree can share its connection. The
+     * client is closed along with this instance.
+     */
+    public CuratorFramework getKafkaZkClient() {
+        return kafkaZkClient;
     }
 
-    public Optional<JSONObject> getBroker(String brokerId) throws Exception {
-        List<String> ids = kafkaZkClient.getChildren().forPath(zkConfig.getBrokerIdPath());
-        if (!ids.contains(brokerId)) {
-            return Optional.empty();
+    @Override
+    public synchronized void close() throws IOException {
+        if (brokerRegistry != null) {
+            brokerRegistry.close();
+        }
+        if (partitionIndex != null) {
+            partitionIndex.close();
         }
+        kafkaZkClient.close();
+    }
 
-        return Optional.of(
-                new JSONObject(
-                        new String(
-                                kafkaZkClient.getData().forPath(zkConfig.getBrokerIdPath() + "/" + brokerId),
-                                "UTF-8")));
+    public JSONArray getBrokerIds() throws Exception {
+        return new JSONArray(getBrokerRegistry().getBrokerIds());
+    }
+
+    public Optional<JSONObject> getBroker(String brokerId) throws Exception {
+        return getBrokerRegistry().getBroker(brokerId);
     }
 
     public List<String> getBrokerEndpoints() {
         List<String> endpoints = new ArrayList<String>();
 
         try {
-            List<String> ids = kafkaZkClient.getChildren().forPath(zkConfig.getBrokerIdPath());
-            for (String id : ids) {
-                byte[] bytes = kafkaZkClient.getData().forPath(zkConfig.getBrokerIdPath() + "/" + id);
-                JSONObject broker = new JSONObject(new String(bytes, "UTF-8"));
+            for (Map.Entry<String, JSONObject> entry : getBrokerRegistry().getBrokers().entrySet()) {
+                JSONObject broker = entry.getValue();
                 String host = (String) broker.get("host");
                 Integer port = (Integer) broker.get("port");
                 endpoints.add(host + ":" + port);
@@ -75,11 +102,9 @@ public class KafkaState {
         List<String> endpoints = new ArrayList<String>();
 
         try {
-            List<String> ids = kafkaZkClient.getChildren().forPath(zkConfig.getBrokerIdPath());
-            for (String id : ids) {
-                byte[] bytes = kafkaZkClient.getData().forPath(zkConfig.getBrokerIdPath() + "/" + id);
-                JSONObject broker = new JSONObject(new String(bytes, "UTF-8"));
-                String host = "broker-" + id + "." + zkConfig.getFrameworkName() + ".mesos";
+            for (Map.Entry<String, JSONObject> entry : getBrokerRegistry().getBrokers().entrySet()) {
+                JSONObject broker = entry.getValue();
+                String host = "broker-" + entry.getKey() + "." + zkConfig.getFrameworkName() + ".mesos";
                 Integer port = (Integer) broker.get("port");
                 endpoints.add(host + ":" + port);
             }
@@ -94,17 +119,26 @@ public class KafkaState {
         return getIds(zkConfig.getZkRootPath() + "/brokers/topics");
     }
 
+    /**
+     * Returns the state of every partition of the provided topic. Partition states are read with pipelined background
+     * reads, at most {@code maxInFlightReads} at a time, so that large topics don't cost one serial round trip per
+     * partition.
+     */
     public JSONObject getTopic(String topicName) throws Exception {
         String partitionsPath = zkConfig.getZkRootPath() + "/brokers/topics/" + topicName + "/partitions";
         List<String> partitionIds = kafkaZkClient.getChildren()
                 .forPath(partitionsPath);
 
-        List<JSONObject> partitions = new ArrayList<JSONObject>();
+        List<String> statePaths = new ArrayList<>();
         for (String partitionId : partitionIds) {
-            JSONObject state = getElement(
-                    partitionsPath + "/" + partitionId + "/state");
+            statePaths.add(partitionsPath + "/" + partitionId + "/state");
+        }
+        List<JSONObject> states = getElements(statePaths);
+
+        List<JSONObject> partitions = new ArrayList<JSONObject>();
+        for (int i = 0; i < partitionIds.size(); i++) {
             JSONObject partition = new JSONObject();
-            partition.put(partitionId, state);
+            partition.put(partitionIds.get(i), states.get(i));
             partitions.add(partition);
         }
 
@@ -113,6 +147,73 @@ public class KafkaState {
         return obj;
     }
 
+    /**
+     * Returns the watch-driven view of broker registrations, starting it on first use. Starting lazily means the
+     * initial read reflects whatever brokers have registered by the time the first broker query arrives.
+     */
+    private synchronized BrokerRegistry getBrokerRegistry() throws Exception {
+        if (brokerRegistry == null) {
+            BrokerRegistry registry = new BrokerRegistry(kafkaZkClient, zkConfig.getBrokerIdPath());
+            registry.start();
+            brokerRegistry = registry;
+        }
+
+        return brokerRegistry;
+    }
+
+    /**
+     * Returns the current leader, ISR and replica assignment of every partition, ordered by topic and partition.
+     */
+    public List<PartitionState> getPartitionStates() throws Exception {
+        return getPartitionIndex().getPartitionStates();
+    }
+
+    /**
+     * Returns all partitions whose ISR is smaller than their replica assignment.
+     */
+    public List<PartitionState> getUnderReplicatedPartitions() throws Exception {
+        List<PartitionState> underReplicated = new ArrayList<>();
+        for (PartitionState partitionState : getPartitionStates()) {
+            if (partitionState.isUnderReplicated()) {
+                underReplicated.add(partitionState);
+            }
+        }
+        return underReplicated;
+    }
+
+    /**
+     * Returns all partitions which have no leader, or whose leader is not a currently registered broker.
+     */
+    public List<PartitionState> getUnavailablePartitions() throws Exception {
+        Set<Integer> liveBrokerIds = new HashSet<>();
+        for (String brokerId : getBrokerRegistry().getBrokerIds()) {
+            liveBrokerIds.add(Integer.parseInt(brokerId));
+        }
+
+        List<PartitionState> unavailable = new ArrayList<>();
+        for (PartitionState partitionState : getPartitionStates()) {
+            if (!partitionState.isAvailable(liveBrokerIds)) {
+                unavailable.add(partitionState);
+            }
+        }
+        return unavailable;
+    }
+
+    private synchronized PartitionIndex getPartitionIndex() throws Exception {
+        if (partitionIndex == null) {
+            PartitionIndex index = new PartitionIndex(kafkaZkClient, zkConfig.getZkRootPath() + "/brokers/topics");
+            try {
+                index.start(PARTITION_INDEX_TIMEOUT_MS);
+            } catch (Exception e) {
+                index.close();
+                throw e;
+            }
+            partitionIndex = index;
+        }
+
+        return partitionIndex;
+    }
+
     private JSONArray getIds(String path) throws Exception {
         try {
             return new JSONArray(kafkaZkClient.getChildren().forPath(path));
@@ -125,9 +226,52 @@ public class KafkaState {
         }
     }
 
-    private JSONObject getElement(String path) throws Exception {
-        byte[] bytes = kafkaZkClient.getData().forPath(path);
-        String element = new String(bytes, "UTF-8");
-        return new JSONObject(element);
+    /**
+     * Reads and parses the provided znodes, returning them in the same order as the paths. If any read fails, the first
+     * failure is thrown once all outstanding reads have completed.
+     */
+    private List<JSONObject> getElements(List<String> paths) throws Exception {
+        final JSONObject[] elements = new JSONObject[paths.size()];
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDownLatch remaining = new CountDownLatch(paths.size());
+        final Semaphore inFlight = new Semaphore(maxInFlightReads);
+
+        for (int i = 0; i < paths.size(); i++) {
+            final int index = i;
+            inFlight.acquire();
+            try {
+                kafkaZkClient.getData().inBackground(new BackgroundCallback() {
+                    @Override
+                    public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+                        try {
+                            if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                                elements[index] = new JSONObject(new String(event.getData(), "UTF-8"));
+                            } else {
+                                failure.compareAndSet(null, KeeperException.create(
+                                        KeeperException.Code.get(event.getResultCode()), event.getPath()));
+                            }
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                            remaining.countDown();
+                        }
+                    }
+                }).forPath(paths.get(i));
+            } catch (Exception e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        if (!remaining.await(BATCH_READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException(String.format(
+                    "Timed out reading %d znodes, %d reads outstanding", paths.size(), remaining.getCount()));
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        return Arrays.asList(elements);
     }
 }
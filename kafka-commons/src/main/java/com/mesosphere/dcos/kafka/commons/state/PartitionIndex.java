@@ -0,0 +1,200 @@
+package com.mesosphere.dcos.kafka.commons.state;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.TreeCache;
+import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
+import org.apache.curator.framework.recipes.cache.TreeCacheListener;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * In-memory index of every partition's replica assignment, leader and ISR, built from the topic and partition state
+ * znodes that Kafka maintains under its topics path. The index is updated from ZK watch events one znode at a time, so
+ * a change to a single partition's state costs a single parse rather than a walk of every topic.
+ */
+class PartitionIndex {
+    private static final Log log = LogFactory.getLog(PartitionIndex.class);
+
+    private static final int TOPIC_DEPTH = 1;
+    private static final int STATE_DEPTH = 4;
+
+    private final String topicsPath;
+    private final TreeCache cache;
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Integer, PartitionState>> topics =
+            new ConcurrentHashMap<>();
+    private final CountDownLatch initialized = new CountDownLatch(1);
+
+    PartitionIndex(CuratorFramework zkClient, String topicsPath) {
+        this.topicsPath = topicsPath;
+        this.cache = TreeCache.newBuilder(zkClient, topicsPath)
+                .setCacheData(true)
+                .setMaxDepth(STATE_DEPTH)
+                .build();
+        this.cache.getListenable().addListener(new TreeCacheListener() {
+            @Override
+            public void childEvent(CuratorFramework client, TreeCacheEvent event) throws Exception {
+                handleEvent(event);
+            }
+        });
+    }
+
+    /**
+     * Starts watching the topics path. Returns once the initial content of the index has been read.
+     */
+    void start(long timeoutMs) throws Exception {
+        cache.start();
+        if (!initialized.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("Timed out waiting for partition index to initialize: " + topicsPath);
+        }
+    }
+
+    void close() throws IOException {
+        cache.close();
+    }
+
+    /**
+     * Returns the state of every partition of every topic, ordered by topic and then partition.
+     */
+    List<PartitionState> getPartitionStates() {
+        List<PartitionState> partitionStates = new ArrayList<>();
+        for (String topic : new TreeSet<>(topics.keySet())) {
+            Map<Integer, PartitionState> partitions = topics.get(topic);
+            if (partitions != null) {
+                partitionStates.addAll(partitions.values());
+            }
+        }
+        return partitionStates;
+    }
+
+    private void handleEvent(TreeCacheEvent event) {
+        switch (event.getType()) {
+            case NODE_ADDED:
+            case NODE_UPDATED:
+                update(event.getData());
+                break;
+            case NODE_REMOVED:
+                remove(event.getData());
+                break;
+            case INITIALIZED:
+                log.info(String.format("Partition index initialized with %d topics", topics.size()));
+                initialized.countDown();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void update(ChildData childData) {
+        List<String> elements = getRelativePath(childData.getPath());
+        if (elements.size() == TOPIC_DEPTH) {
+            updateAssignment(elements.get(0), parse(childData));
+        } else if (isStatePath(elements)) {
+            JSONObject state = parse(childData);
+            int leader = state.optInt("leader", -1);
+            updateLeaderAndIsr(
+                    elements.get(0),
+                    Integer.parseInt(elements.get(2)),
+                    leader >= 0 ? leader : null,
+                    toIntegerList(state.optJSONArray("isr")));
+        }
+    }
+
+    private void remove(ChildData childData) {
+        List<String> elements = getRelativePath(childData.getPath());
+        if (elements.size() == TOPIC_DEPTH) {
+            topics.remove(elements.get(0));
+        } else if (isStatePath(elements) && topics.containsKey(elements.get(0))) {
+            updateLeaderAndIsr(elements.get(0), Integer.parseInt(elements.get(2)), null, Collections.emptyList());
+        }
+    }
+
+    private void updateAssignment(String topic, JSONObject topicJson) {
+        ConcurrentSkipListMap<Integer, PartitionState> partitions = getPartitions(topic);
+        JSONObject assignment = topicJson.optJSONObject("partitions");
+        if (assignment == null) {
+            return;
+        }
+
+        for (String partitionId : assignment.keySet()) {
+            int partition = Integer.parseInt(partitionId);
+            List<Integer> replicas = toIntegerList(assignment.getJSONArray(partitionId));
+            PartitionState current = partitions.get(partition);
+            if (current == null) {
+                partitions.put(partition, new PartitionState(
+                        topic, partition, replicas, null, Collections.emptyList()));
+            } else {
+                partitions.put(partition, current.withReplicas(replicas));
+            }
+        }
+    }
+
+    private void updateLeaderAndIsr(String topic, int partition, Integer leader, List<Integer> isr) {
+        ConcurrentSkipListMap<Integer, PartitionState> partitions = getPartitions(topic);
+        PartitionState current = partitions.get(partition);
+        if (current == null) {
+            partitions.put(partition, new PartitionState(
+                    topic, partition, Collections.emptyList(), leader, isr));
+        } else {
+            partitions.put(partition, current.withLeaderAndIsr(leader, isr));
+        }
+    }
+
+    private ConcurrentSkipListMap<Integer, PartitionState> getPartitions(String topic) {
+        ConcurrentSkipListMap<Integer, PartitionState> partitions = topics.get(topic);
+        if (partitions == null) {
+            topics.putIfAbsent(topic, new ConcurrentSkipListMap<>());
+            partitions = topics.get(topic);
+        }
+        return partitions;
+    }
+
+    private List<String> getRelativePath(String path) {
+        if (path.length() <= topicsPath.length()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(path.substring(topicsPath.length() + 1).split("/"));
+    }
+
+    private static boolean isStatePath(List<String> elements) {
+        return elements.size() == STATE_DEPTH
+                && elements.get(1).equals("partitions")
+                && elements.get(3).equals("state");
+    }
+
+    private static JSONObject parse(ChildData childData) {
+        byte[] bytes = childData.getData();
+        if (bytes == null || bytes.length == 0) {
+            return new JSONObject();
+        }
+
+        try {
+            return new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.error("Failed to parse partition data at: " + childData.getPath(), e);
+            return new JSONObject();
+        }
+    }
+
+    private static List<Integer> toIntegerList(JSONArray array) {
+        List<Integer> list = new ArrayList<>();
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                list.add(array.getInt(i));
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mesosphere.dcos.kafka.commons.state;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of a single partition: its assigned replicas, as recorded in the topic znode, and its leader and
+ * in-sync replicas, as recorded by the Kafka controller in the partition's state znode.
+ */
+public class PartitionState {
+    private final String topic;
+    private final int partition;
+    private final List<Integer> replicas;
+    private final Integer leader;
+    private final List<Integer> isr;
+
+    public PartitionState(String topic, int partition, List<Integer> replicas, Integer leader, List<Integer> isr) {
+        this.topic = topic;
+        this.partition = partition;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.leader = leader;
+        this.isr = Collections.unmodifiableList(new ArrayList<>(isr));
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public List<Integer> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Returns the id of the leading broker, or an empty Optional if the partition currently has no leader.
+     */
+    public Optional<Integer> getLeader() {
+        return Optional.ofNullable(leader);
+    }
+
+    public List<Integer> getIsr() {
+        return isr;
+    }
+
+    public boolean isUnderReplicated() {
+        return isr.size() < replicas.size();
+    }
+
+    public boolean isAvailable(Collection<Integer> liveBrokerIds) {
+        return leader != null && liveBrokerIds.contains(leader);
+    }
+
+    PartitionState withReplicas(List<Integer> replicas) {
+        return new PartitionState(topic, partition, replicas, leader, isr);
+    }
+
+    PartitionState withLeaderAndIsr(Integer leader, List<Integer> isr) {
+        return new PartitionState(topic, partition, replicas, leader, isr);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PartitionState that = (PartitionState) o;
+        return partition == that.partition &&
+                Objects.equals(topic, that.topic) &&
+                Objects.equals(replicas, that.replicas) &&
+                Objects.equals(leader, that.leader) &&
+                Objects.equals(isr, that.isr);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(topic, partition, replicas, leader, isr);
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionState{" +
+                "topic='" + topic + '\'' +
+                ", partition=" + partition +
+                ", replicas=" + replicas +
+                ", leader=" + leader +
+                ", isr=" + isr +
+                '}';
+    }
+}
@@ -1,8 +1,11 @@
 package com.mesosphere.dcos.kafka.config;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 public class BrokerConfiguration {
@@ -12,10 +15,16 @@ public class BrokerConfiguration {
     private double mem;
     @JsonProperty("heap")
     private HeapConfig heap;
+    @JsonProperty("memory_profile")
+    private String memoryProfile;
+    @JsonProperty("jvm_profile")
+    private String jvmProfile;
     @JsonProperty("disk")
     private double disk;
     @JsonProperty("disk_type")
     private String diskType;
+    @JsonProperty("volumes")
+    private List<VolumeConfig> volumes;
     @JsonProperty("kafka_uri")
     private String kafkaUri;
     @JsonProperty("java_uri")
@@ -34,8 +43,11 @@ public class BrokerConfiguration {
             @JsonProperty("cpus")double cpus,
             @JsonProperty("mem")double mem,
             @JsonProperty("heap")HeapConfig heap,
+            @JsonProperty("memory_profile")String memoryProfile,
+            @JsonProperty("jvm_profile")String jvmProfile,
             @JsonProperty("disk")double disk,
             @JsonProperty("disk_type")String diskType,
+            @JsonProperty("volumes")List<VolumeConfig> volumes,
             @JsonProperty("kafka_uri")String kafkaUri,
             @JsonProperty("java_uri")String javaUri,
             @JsonProperty("overrider_uri")String overriderUri,
@@ -43,8 +55,11 @@ public class BrokerConfiguration {
         this.cpus = cpus;
         this.mem = mem;
         this.heap = heap;
+        this.memoryProfile = memoryProfile;
+        this.jvmProfile = jvmProfile;
         this.disk = disk;
         this.diskType = diskType;
+        this.volumes = volumes;
         this.kafkaUri = kafkaUri;
         this.javaUri = javaUri;
         this.overriderUri = overriderUri;
@@ -78,6 +93,24 @@ public class BrokerConfiguration {
         this.heap = heap;
     }
 
+    public String getMemoryProfile() {
+        return memoryProfile;
+    }
+
+    @JsonProperty("memory_profile")
+    public void setMemoryProfile(String memoryProfile) {
+        this.memoryProfile = memoryProfile;
+    }
+
+    public String getJvmProfile() {
+        return jvmProfile;
+    }
+
+    @JsonProperty("jvm_profile")
+    public void setJvmProfile(String jvmProfile) {
+        this.jvmProfile = jvmProfile;
+    }
+
     public double getDisk() {
         return disk;
     }
@@ -96,6 +129,28 @@ public class BrokerConfiguration {
         this.diskType = diskType;
     }
 
+    public List<VolumeConfig> getVolumes() {
+        return volumes;
+    }
+
+    @JsonProperty("volumes")
+    public void setVolumes(List<VolumeConfig> volumes) {
+        this.volumes = volumes;
+    }
+
+    /**
+     * Returns the volumes which the broker stores its logs on: the configured volumes, or a single volume with the
+     * configured disk size and type if none are configured.
+     */
+    @JsonIgnore
+    public List<VolumeConfig> getLogVolumes() {
+        if (volumes == null || volumes.isEmpty()) {
+            return Collections.singletonList(new VolumeConfig(disk, diskType));
+        }
+
+        return volumes;
+    }
+
     public String getKafkaUri() {
         return kafkaUri;
     }
@@ -146,8 +201,11 @@ public class BrokerConfiguration {
         return Double.compare(that.cpus, cpus) == 0 &&
                 Double.compare(that.mem, mem) == 0 &&
                 Objects.equals(that.heap, heap) &&
+                Objects.equals(memoryProfile, that.memoryProfile) &&
+                Objects.equals(jvmProfile, that.jvmProfile) &&
                 Double.compare(that.disk, disk) == 0 &&
                 Objects.equals(diskType, that.diskType) &&
+                Objects.equals(volumes, that.volumes) &&
                 Objects.equals(kafkaUri, that.kafkaUri) &&
                 Objects.equals(javaUri, that.javaUri) &&
                 Objects.equals(overriderUri, that.overriderUri) &&
@@ -156,7 +214,7 @@ public class BrokerConfiguration {
 
     @Override
     public int hashCode() {
-        return Objects.hash(cpus, mem, heap, disk, diskType, kafkaUri, javaUri, overriderUri, port);
+        return Objects.hash(cpus, mem, heap, memoryProfile, jvmProfile, disk, diskType, volumes, kafkaUri, javaUri, overriderUri, port);
     }
 
     @Override
@@ -165,8 +223,11 @@ public class BrokerConfiguration {
                 "cpus=" + cpus +
                 ", mem=" + mem +
                 ", heap=" + heap +
+                ", memoryProfile='" + memoryProfile + '\'' +
+                ", jvmProfile='" + jvmProfile + '\'' +
                 ", disk=" + disk +
                 ", diskType='" + diskType + '\'' +
+                ", volumes=" + volumes +
                 ", kafkaUri='" + kafkaUri + '\'' +
                 ", javaUri='" + javaUri + '\'' +
                 ", overriderUri='" + overriderUri + '\'' +
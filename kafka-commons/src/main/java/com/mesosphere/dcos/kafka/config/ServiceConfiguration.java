@@ -14,12 +14,26 @@ public class ServiceConfiguration {
     private String user;
     @JsonProperty("placement_strategy")
     private String placementStrategy;
+    @JsonProperty("placement_attribute")
+    private String placementAttribute;
     @JsonProperty("phase_strategy")
     private String phaseStrategy;
+    @JsonProperty("phase_concurrency")
+    private int phaseConcurrency;
+    @JsonProperty("isr_wait_timeout_secs")
+    private int isrWaitTimeoutSecs;
+    @JsonProperty("leadership_timeout_secs")
+    private int leadershipTimeoutSecs;
     @JsonProperty("role")
     private String role;
     @JsonProperty("principal")
     private String principal;
+    @JsonProperty("event_loop_enabled")
+    private boolean eventLoopEnabled;
+    @JsonProperty("event_queue_capacity")
+    private int eventQueueCapacity;
+    @JsonProperty("ha_enabled")
+    private boolean haEnabled;
 
     public ServiceConfiguration() {
 
@@ -31,16 +45,30 @@ public class ServiceConfiguration {
             @JsonProperty("name")String name,
             @JsonProperty("user")String user,
             @JsonProperty("placement_strategy")String placementStrategy,
+            @JsonProperty("placement_attribute")String placementAttribute,
             @JsonProperty("phase_strategy")String phaseStrategy,
+            @JsonProperty("phase_concurrency")int phaseConcurrency,
+            @JsonProperty("isr_wait_timeout_secs")int isrWaitTimeoutSecs,
+            @JsonProperty("leadership_timeout_secs")int leadershipTimeoutSecs,
             @JsonProperty("role")String role,
-            @JsonProperty("principal")String principal) {
+            @JsonProperty("principal")String principal,
+            @JsonProperty("event_loop_enabled")boolean eventLoopEnabled,
+            @JsonProperty("event_queue_capacity")int eventQueueCapacity,
+            @JsonProperty("ha_enabled")boolean haEnabled) {
         this.count = count;
         this.name = name;
         this.user = user;
         this.placementStrategy = placementStrategy;
+        this.placementAttribute = placementAttribute;
         this.phaseStrategy = phaseStrategy;
+        this.phaseConcurrency = phaseConcurrency;
+        this.isrWaitTimeoutSecs = isrWaitTimeoutSecs;
+        this.leadershipTimeoutSecs = leadershipTimeoutSecs;
         this.role = role;
         this.principal = principal;
+        this.eventLoopEnabled = eventLoopEnabled;
+        this.eventQueueCapacity = eventQueueCapacity;
+        this.haEnabled = haEnabled;
     }
 
     public int getCount() {
@@ -79,6 +107,15 @@ public class ServiceConfiguration {
         this.placementStrategy = placementStrategy;
     }
 
+    public String getPlacementAttribute() {
+        return placementAttribute;
+    }
+
+    @JsonProperty("placement_attribute")
+    public void setPlacementAttribute(String placementAttribute) {
+        this.placementAttribute = placementAttribute;
+    }
+
     public String getPhaseStrategy() {
         return phaseStrategy;
     }
@@ -88,6 +125,33 @@ public class ServiceConfiguration {
         this.phaseStrategy = phaseStrategy;
     }
 
+    public int getPhaseConcurrency() {
+        return phaseConcurrency;
+    }
+
+    @JsonProperty("phase_concurrency")
+    public void setPhaseConcurrency(int phaseConcurrency) {
+        this.phaseConcurrency = phaseConcurrency;
+    }
+
+    public int getIsrWaitTimeoutSecs() {
+        return isrWaitTimeoutSecs;
+    }
+
+    @JsonProperty("isr_wait_timeout_secs")
+    public void setIsrWaitTimeoutSecs(int isrWaitTimeoutSecs) {
+        this.isrWaitTimeoutSecs = isrWaitTimeoutSecs;
+    }
+
+    public int getLeadershipTimeoutSecs() {
+        return leadershipTimeoutSecs;
+    }
+
+    @JsonProperty("leadership_timeout_secs")
+    public void setLeadershipTimeoutSecs(int leadershipTimeoutSecs) {
+        this.leadershipTimeoutSecs = leadershipTimeoutSecs;
+    }
+
     public String getRole() {
         return role;
     }
@@ -106,6 +170,33 @@ public class ServiceConfiguration {
         this.principal = principal;
     }
 
+    public boolean isEventLoopEnabled() {
+        return eventLoopEnabled;
+    }
+
+    @JsonProperty("event_loop_enabled")
+    public void setEventLoopEnabled(boolean eventLoopEnabled) {
+        this.eventLoopEnabled = eventLoopEnabled;
+    }
+
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    @JsonProperty("event_queue_capacity")
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+
+    public boolean isHaEnabled() {
+        return haEnabled;
+    }
+
+    @JsonProperty("ha_enabled")
+    public void setHaEnabled(boolean haEnabled) {
+        this.haEnabled = haEnabled;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -121,14 +212,23 @@ public class ServiceConfiguration {
                 Objects.equals(name, that.name) &&
                 Objects.equals(user, that.user) &&
                 Objects.equals(placementStrategy, that.placementStrategy) &&
+                Objects.equals(placementAttribute, that.placementAttribute) &&
                 Objects.equals(phaseStrategy, that.phaseStrategy) &&
+                phaseConcurrency == that.phaseConcurrency &&
+                isrWaitTimeoutSecs == that.isrWaitTimeoutSecs &&
+                leadershipTimeoutSecs == that.leadershipTimeoutSecs &&
                 Objects.equals(role, that.role) &&
-                Objects.equals(principal, that.principal);
+                Objects.equals(principal, that.principal) &&
+                eventLoopEnabled == that.eventLoopEnabled &&
+                eventQueueCapacity == that.eventQueueCapacity &&
+                haEnabled == that.haEnabled;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(count, name, user, placementStrategy, phaseStrategy, role, principal);
+        return Objects.hash(count, name, user, placementStrategy, placementAttribute, phaseStrategy, phaseConcurrency,
+                isrWaitTimeoutSecs, leadershipTimeoutSecs, role, principal, eventLoopEnabled, eventQueueCapacity,
+                haEnabled);
     }
 
     @Override
@@ -138,9 +238,16 @@ public class ServiceConfiguration {
                 ", name='" + name + '\'' +
                 ", user='" + user + '\'' +
                 ", placementStrategy='" + placementStrategy + '\'' +
+                ", placementAttribute='" + placementAttribute + '\'' +
                 ", phaseStrategy='" + phaseStrategy + '\'' +
+                ", phaseConcurrency=" + phaseConcurrency +
+                ", isrWaitTimeoutSecs=" + isrWaitTimeoutSecs +
+                ", leadershipTimeoutSecs=" + leadershipTimeoutSecs +
                 ", role='" + role + '\'' +
                 ", principal='" + principal + '\'' +
+                ", eventLoopEnabled=" + eventLoopEnabled +
+                ", eventQueueCapacity=" + eventQueueCapacity +
+                ", haEnabled=" + haEnabled +
                 '}';
     }
 }
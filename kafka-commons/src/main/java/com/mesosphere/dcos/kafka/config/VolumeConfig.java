@@ -0,0 +1,73 @@
+package com.mesosphere.dcos.kafka.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+/**
+ * VolumeConfig contains the configuration for one of the persistent volumes
+ * which a Kafka broker stores its logs on.
+ */
+public class VolumeConfig {
+    @JsonProperty("size")
+    private double size;
+    @JsonProperty("type")
+    private String type;
+
+    public VolumeConfig() {
+
+    }
+
+    @JsonCreator
+    public VolumeConfig(
+            @JsonProperty("size")double size,
+            @JsonProperty("type")String type) {
+        this.size = size;
+        this.type = type;
+    }
+
+    public double getSize() {
+        return size;
+    }
+
+    @JsonProperty("size")
+    public void setSize(double size) {
+        this.size = size;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    @JsonProperty("type")
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        VolumeConfig that = (VolumeConfig) o;
+        return Double.compare(that.size, size) == 0 &&
+                Objects.equals(type, that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, type);
+    }
+
+    @Override
+    public String toString() {
+        return "VolumeConfig{" +
+                "size=" + size +
+                ", type='" + type + '\'' +
+                '}';
+    }
+}
@@ -3,83 +3,73 @@ package com.mesosphere.dcos.kafka.cmd;
 import com.mesosphere.dcos.kafka.commons.state.KafkaState;
 import com.mesosphere.dcos.kafka.config.KafkaConfiguration;
 import com.mesosphere.dcos.kafka.config.KafkaSchedulerConfiguration;
-import com.mesosphere.dcos.kafka.config.ServiceConfiguration;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.StopWatch;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 public class CmdExecutor {
   private static final Log log = LogFactory.getLog(CmdExecutor.class);
 
   private final KafkaState state;
+  private final TopicAdmin topicAdmin;
+  private final OffsetService offsetService;
+  private final JobManager jobManager;
   private final String binPath;
-  private final String zkPath;
 
-  public CmdExecutor(KafkaSchedulerConfiguration configuration, KafkaState state) {
+  public CmdExecutor(
+      KafkaSchedulerConfiguration configuration,
+      KafkaState state,
+      ExecutorService offsetQueryExecutor,
+      JobManager jobManager) {
     this.state = state;
+    this.topicAdmin = new TopicAdmin(configuration.getZookeeperConfig(), state);
+    this.offsetService = new OffsetService(state, offsetQueryExecutor);
+    this.jobManager = jobManager;
     final KafkaConfiguration kafkaConfiguration = configuration.getKafkaConfiguration();
-    final ServiceConfiguration serviceConfiguration = configuration.getServiceConfiguration();
     this.binPath = kafkaConfiguration.getKafkaSandboxPath() + "/bin/";
-    this.zkPath = configuration.getFullKafkaZookeeperPath();
   }
 
   public JSONObject createTopic(String name, int partitionCount, int replicationFactor) throws Exception {
-    // e.g. ./kafka-topics.sh --create --zookeeper master.mesos:2181/kafka-0 --topic topic0 --partitions 3 --replication-factor 3
-
-    List<String> cmd = new ArrayList<String>();
-    cmd.add(binPath + "kafka-topics.sh");
-    cmd.add("--create");
-    cmd.add("--zookeeper");
-    cmd.add(zkPath);
-    cmd.add("--topic");
-    cmd.add(name);
-    cmd.add("--partitions");
-    cmd.add(Integer.toString(partitionCount));
-    cmd.add("--replication-factor");
-    cmd.add(Integer.toString(replicationFactor));
-
-    return runCmd(cmd);
+    return topicAdmin.createTopic(name, partitionCount, replicationFactor);
   }
 
   public JSONObject deleteTopic(String name) throws Exception {
-    // e.g. ./kafka-topics.sh --delete --zookeeper master.mesos:2181/kafka --topic topic0
-
-    List<String> cmd = new ArrayList<String>();
-    cmd.add(binPath + "kafka-topics.sh");
-    cmd.add("--delete");
-    cmd.add("--zookeeper");
-    cmd.add(zkPath);
-    cmd.add("--topic");
-    cmd.add(name);
-
-    return runCmd(cmd);
+    return topicAdmin.deleteTopic(name);
   }
 
-  public JSONObject alterTopic(String name, List<String> cmds) throws Exception {
-    // e.g. ./kafka-topics.sh --zookeeper master.mesos:2181/kafka --alter --topic topic0 --partitions 4
+  public JSONObject addPartitions(String name, int partitionCount) throws Exception {
+    return topicAdmin.addPartitions(name, partitionCount);
+  }
 
-    List<String> cmd = new ArrayList<String>();
-    cmd.add(binPath + "kafka-topics.sh");
-    cmd.add("--alter");
-    cmd.add("--zookeeper");
-    cmd.add(zkPath);
-    cmd.add("--topic");
-    cmd.add(name);
-    cmd.addAll(cmds);
+  /**
+   * Runs a producer performance test against the provided topic and waits for it to finish, returning its output in
+   * the same {"message": "Output: ..."} form as the other topic operations. The test still runs on the bounded
+   * {@link JobManager}, so it's listed with the other jobs and may be cancelled through them.
+   */
+  public JSONObject producerTest(String topicName, int messages) throws Exception {
+    Job job = submitProducerTest(topicName, messages);
+    try {
+      job.awaitFinished();
+    } catch (InterruptedException e) {
+      job.cancel();
+      throw e;
+    }
 
-    return runCmd(cmd);
+    String output = job.getOutput();
+    JSONObject obj = new JSONObject();
+    obj.put("message", StringUtils.isNotBlank(output) ? String.format("Output: %s", output) : "");
+    return obj;
   }
 
-  public JSONObject producerTest(String topicName, int messages) throws Exception {
+  /**
+   * Starts a producer performance test against the provided topic, returning the {@link Job} which runs it.
+   */
+  public Job submitProducerTest(String topicName, int messages) throws Exception {
     // e.g. ./kafka-producer-perf-test.sh --topic topic0 --num-records 1000 --producer-props bootstrap.servers=ip-10-0-2-171.us-west-2.compute.internal:9092,ip-10-0-2-172.us-west-2.compute.internal:9093,ip-10-0-2-173.us-west-2.compute.internal:9094 --throughput 100000 --record-size 1024
     List<String> brokerEndpoints = state.getBrokerEndpoints();
     String brokers = StringUtils.join(brokerEndpoints, ",");
@@ -98,134 +88,48 @@ public class CmdExecutor {
     cmd.add("--producer-props");
     cmd.add(bootstrapServers);
 
-    return runCmd(cmd);
+    return jobManager.submit("producer-test " + topicName, cmd);
   }
 
   public JSONArray getOffsets(String topicName, Long time) throws Exception {
-    // e.g. ./kafka-run-class.sh kafka.tools.GetOffsetShell --broker-list ip-10-0-1-71.us-west-2.compute.internal:9092,ip-10-0-1-72.us-west-2.compute.internal:9093,ip-10-0-1-68.us-west-2.compute.internal:9094 --topic topic0 --time -1 --partitions 0
+    Map<String, Map<Integer, Optional<Long>>> offsets =
+        offsetService.getOffsets(Arrays.asList(topicName), getOffsetTime(time));
+    return toPartitionsJson(offsets.get(topicName));
+  }
 
-    List<String> brokerEndpoints = state.getBrokerEndpoints();
-    String brokers = StringUtils.join(brokerEndpoints, ",");
+  public JSONObject getOffsets(List<String> topicNames, Long time) throws Exception {
+    Map<String, Map<Integer, Optional<Long>>> offsets = offsetService.getOffsets(topicNames, getOffsetTime(time));
 
-    List<String> cmd = new ArrayList<String>();
-    cmd.add(binPath + "kafka-run-class.sh");
-    cmd.add("kafka.tools.GetOffsetShell");
-    cmd.add("--topic");
-    cmd.add(topicName);
-    cmd.add("--time");
-    cmd.add(String.valueOf(time));
-    cmd.add("--broker-list");
-    cmd.add(brokers);
-
-    String stdout = (String) runCmd(cmd).get("message");
-    stdout = stdout.substring("Output: ".length());
-    return getPartitions(stdout);
+    JSONObject obj = new JSONObject();
+    for (Map.Entry<String, Map<Integer, Optional<Long>>> entry : offsets.entrySet()) {
+      obj.put(entry.getKey(), toPartitionsJson(entry.getValue()));
+    }
+    return obj;
   }
 
   public JSONObject unavailablePartitions() throws Exception {
-    // e.g. ./kafka-topics.sh --zookeeper master.mesos:2181/kafka --describe --unavailable-partitions
-
-    List<String> cmd = new ArrayList<String>();
-    cmd.add(binPath + "kafka-topics.sh");
-    cmd.add("--describe");
-    cmd.add("--zookeeper");
-    cmd.add(zkPath);
-    cmd.add("--unavailable-partitions");
-
-    return runCmd(cmd);
+    return topicAdmin.unavailablePartitions();
   }
 
   public JSONObject underReplicatedPartitions() throws Exception {
-    // e.g. ./kafka-topics.sh --zookeeper master.mesos:2181/kafka --describe --under-replicate-partitions
-
-    List<String> cmd = new ArrayList<String>();
-    cmd.add(binPath + "kafka-topics.sh");
-    cmd.add("--describe");
-    cmd.add("--zookeeper");
-    cmd.add(zkPath);
-    cmd.add("--under-replicated-partitions");
+    return topicAdmin.underReplicatedPartitions();
+  }
 
-    return runCmd(cmd);
+  private static long getOffsetTime(Long time) {
+    return time == null ? OffsetService.LATEST_TIME : time;
   }
 
-  private static JSONArray getPartitions(String offsets) {
+  private static JSONArray toPartitionsJson(Map<Integer, Optional<Long>> offsets) {
     List<JSONObject> partitions = new ArrayList<JSONObject>();
 
-    String lines[] = offsets.split("\\n");
-    for (String line : lines) {
-      // e.g. topic0:2:33334
-      String elements[] = line.trim().split(":");
-      String partition = elements[1];
-
-      String offset = "";
-      if (elements.length > 2) {
-        offset = elements[2];
-      }
-
+    for (Map.Entry<Integer, Optional<Long>> entry : offsets.entrySet()) {
+      // e.g. {"2": "33334"}, or {"2": ""} when the partition's offset is unavailable
       JSONObject part = new JSONObject();
-      part.put(partition, offset);
+      String offset = entry.getValue().isPresent() ? String.valueOf(entry.getValue().get()) : "";
+      part.put(String.valueOf(entry.getKey()), offset);
       partitions.add(part);
     }
 
     return new JSONArray(partitions);
   }
-
-  private static JSONObject runCmd(List<String> cmd) throws Exception {
-    ProcessBuilder builder = new ProcessBuilder(cmd);
-
-    StopWatch stopWatch = new StopWatch();
-    stopWatch.start();
-    Process process = builder.start();
-    int exitCode = process.waitFor();
-    stopWatch.stop();
-
-    String stdout = streamToString(process.getInputStream());
-    String stderr = streamToString(process.getErrorStream());
-    log.warn(String.format("stdout:%n%s", stdout));
-    log.warn(String.format("stderr:%n%s", stderr));
-    String message = createOutputMessage(stdout, stderr);
-
-    if (exitCode == 0) {
-      log.info(String.format(
-          "Command succeeded in %dms: %s",
-          stopWatch.getTime(), StringUtils.join(cmd, " ")));
-    } else {
-      log.warn(String.format(
-          "Command failed with code=%d in %dms: %s",
-          exitCode, stopWatch.getTime(), StringUtils.join(cmd, " ")));
-      log.warn(String.format("stdout:\n%s", stdout));
-      log.warn(String.format("stderr:\n%s", stderr));
-    }
-
-    JSONObject obj = new JSONObject();
-    obj.put("message", message);
-
-    return obj;
-  }
-
-  private static String createOutputMessage(String stdout, String stderr) {
-    String message = "";
-
-    if (StringUtils.isNotBlank(stdout)) {
-      message += String.format("Output: %s", stdout);
-
-      // error only if we have stdout
-      if (StringUtils.isNotBlank(stderr)) {
-        message += String.format(" Error: %s", stderr);
-      }
-    }
-    return message;
-  }
-
-  private static String streamToString(InputStream stream) throws Exception {
-    BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-    StringBuilder builder = new StringBuilder();
-    String line = null;
-    while ( (line = reader.readLine()) != null) {
-         builder.append(line);
-            builder.append(System.getProperty("line.separator"));
-    }
-
-    return builder.toString();
-  }
 }
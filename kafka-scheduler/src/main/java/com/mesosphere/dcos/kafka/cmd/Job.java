@@ -0,0 +1,207 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * A long-running command executed on behalf of an API call. Output is read line by line while the command runs, so
+ * that a chatty command can never block on a full pipe, and the most recent lines are retained in a fixed-size ring
+ * buffer which clients may poll incrementally.
+ */
+public class Job implements Runnable {
+  private static final Log log = LogFactory.getLog(Job.class);
+
+  /**
+   * The lifecycle of a Job. QUEUED and RUNNING are the only non-terminal states.
+   */
+  public enum State {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED
+  }
+
+  private final String id;
+  private final String operation;
+  private final List<String> cmd;
+  private final int maxOutputLines;
+  private final Deque<String> output = new ArrayDeque<>();
+  private final long createdMs = System.currentTimeMillis();
+
+  private State state = State.QUEUED;
+  private long totalOutputLines = 0;
+  private Integer exitCode = null;
+  private long startedMs = 0;
+  private long finishedMs = 0;
+  private Process process = null;
+  private Future<?> future = null;
+
+  Job(String id, String operation, List<String> cmd, int maxOutputLines) {
+    this.id = id;
+    this.operation = operation;
+    this.cmd = new ArrayList<>(cmd);
+    this.maxOutputLines = maxOutputLines;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public synchronized boolean isFinished() {
+    return state != State.QUEUED && state != State.RUNNING;
+  }
+
+  synchronized void setFuture(Future<?> future) {
+    this.future = future;
+  }
+
+  /**
+   * Cancels this Job, killing its command if it is already running. Returns false if the Job had already finished.
+   */
+  public synchronized boolean cancel() {
+    if (isFinished()) {
+      return false;
+    }
+
+    log.info(String.format("Cancelling job %s in state %s: %s", id, state, operation));
+    state = State.CANCELLED;
+    finishedMs = System.currentTimeMillis();
+    if (process != null) {
+      process.destroy();
+    }
+    if (future != null) {
+      future.cancel(true);
+    }
+    notifyAll();
+    return true;
+  }
+
+  /**
+   * Blocks until this Job has finished, whether it succeeded, failed or was cancelled.
+   */
+  public synchronized void awaitFinished() throws InterruptedException {
+    while (!isFinished()) {
+      wait();
+    }
+  }
+
+  /**
+   * Returns the retained output lines, each terminated by a line separator as the command printed them.
+   */
+  public synchronized String getOutput() {
+    StringBuilder builder = new StringBuilder();
+    for (String line : output) {
+      builder.append(line).append(System.lineSeparator());
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public void run() {
+    synchronized (this) {
+      if (state != State.QUEUED) {
+        return;
+      }
+      state = State.RUNNING;
+      startedMs = System.currentTimeMillis();
+    }
+
+    log.info(String.format("Starting job %s: %s", id, StringUtils.join(cmd, " ")));
+    try {
+      Process started = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+      synchronized (this) {
+        process = started;
+        if (state == State.CANCELLED) {
+          started.destroy();
+        }
+      }
+
+      try (BufferedReader reader = new BufferedReader(
+          new InputStreamReader(started.getInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          appendOutput(line);
+        }
+      }
+
+      int code = started.waitFor();
+      finish(code == 0 ? State.SUCCEEDED : State.FAILED, code);
+    } catch (Exception e) {
+      log.warn(String.format("Job %s failed: %s", id, operation), e);
+      appendOutput("Error: " + e.getMessage());
+      finish(State.FAILED, null);
+    }
+  }
+
+  /**
+   * Returns a JSON description of this Job, including every retained output line numbered {@code sinceLine} or above.
+   * Line numbers start at 0 and keep increasing as older lines are evicted from the ring buffer, so a client can pass
+   * the returned "next_line" back in to receive only new output.
+   */
+  public synchronized JSONObject toJson(long sinceLine) {
+    long firstRetainedLine = totalOutputLines - output.size();
+    long line = firstRetainedLine;
+    JSONArray lines = new JSONArray();
+    for (String outputLine : output) {
+      if (line >= sinceLine) {
+        lines.put(outputLine);
+      }
+      line++;
+    }
+
+    JSONObject obj = new JSONObject();
+    obj.put("id", id);
+    obj.put("operation", operation);
+    obj.put("state", state.name());
+    obj.put("created_ms", createdMs);
+    obj.put("started_ms", startedMs);
+    obj.put("finished_ms", finishedMs);
+    if (exitCode != null) {
+      obj.put("exit_code", exitCode.intValue());
+    }
+    obj.put("first_line", Math.max(firstRetainedLine, sinceLine));
+    obj.put("next_line", totalOutputLines);
+    obj.put("output", lines);
+    return obj;
+  }
+
+  private synchronized void appendOutput(String line) {
+    if (output.size() >= maxOutputLines) {
+      output.removeFirst();
+    }
+    output.addLast(line);
+    totalOutputLines++;
+  }
+
+  private synchronized void finish(State finalState, Integer code) {
+    process = null;
+    exitCode = code;
+    if (state == State.RUNNING) {
+      state = finalState;
+      finishedMs = System.currentTimeMillis();
+    }
+    notifyAll();
+    log.info(String.format("Job %s finished in state %s with exit code %s", id, state, code));
+  }
+}
@@ -0,0 +1,72 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs {@link Job}s on a bounded executor and keeps track of them so that they may be polled or cancelled after the
+ * API call which started them has returned. The executor is expected to reject work once its queue is full, so admin
+ * operations can never tie up more than a fixed number of threads.
+ */
+public class JobManager {
+  private static final Log log = LogFactory.getLog(JobManager.class);
+
+  public static final int DEFAULT_THREADS = 2;
+  public static final int DEFAULT_QUEUE_CAPACITY = 10;
+  private static final int MAX_OUTPUT_LINES = 1000;
+  private static final int MAX_RETAINED_JOBS = 100;
+
+  private final ExecutorService executor;
+  private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+  public JobManager(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Queues the provided command for execution and returns its Job immediately.
+   *
+   * @throws RejectedExecutionException if the maximum number of jobs are already queued
+   */
+  public synchronized Job submit(String operation, List<String> cmd) throws RejectedExecutionException {
+    Job job = new Job(UUID.randomUUID().toString(), operation, cmd, MAX_OUTPUT_LINES);
+    job.setFuture(executor.submit(job));
+    jobs.put(job.getId(), job);
+    evictFinishedJobs();
+
+    log.info(String.format("Queued job %s: %s", job.getId(), operation));
+    return job;
+  }
+
+  public synchronized Optional<Job> getJob(String id) {
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  public synchronized List<Job> getJobs() {
+    return new ArrayList<>(jobs.values());
+  }
+
+  /**
+   * Cancels the Job with the provided id, returning it if it exists.
+   */
+  public Optional<Job> cancel(String id) {
+    Optional<Job> job = getJob(id);
+    if (job.isPresent()) {
+      job.get().cancel();
+    }
+    return job;
+  }
+
+  private void evictFinishedJobs() {
+    Iterator<Job> iterator = jobs.values().iterator();
+    while (jobs.size() > MAX_RETAINED_JOBS && iterator.hasNext()) {
+      if (iterator.next().isFinished()) {
+        iterator.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,335 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Moves partition leadership off a broker before it's restarted, and back once it has returned.
+ *
+ * A preferred replica election only elects the first replica of a partition, so for every partition which the broker
+ * is the preferred replica of, the broker is first moved to the end of the replica list through a partition
+ * reassignment with an unchanged replica set. A preferred replica election then moves leadership to the other in-sync
+ * replicas. Restoring leadership reverses the reassignment and requests another election.
+ *
+ * The controller only runs one reassignment and one election at a time, so each call advances the operation by at
+ * most one step and returns immediately; callers poll until the operation reports that it's complete.
+ *
+ * The original replica order of drained partitions is stored under the framework's ZooKeeper root, next to the task
+ * state, and is loaded again when a new scheduler first uses the drainer. A scheduler which fails over while a broker
+ * is drained can therefore still put its partitions back in their original order. Partitions whose replicas were
+ * reassigned to other brokers in the meantime keep their new assignment.
+ */
+public class LeadershipDrainer {
+  private static final Log log = LogFactory.getLog(LeadershipDrainer.class);
+
+
+  static final String DRAINED_LEADERSHIP_NAME = "DrainedLeadership";
+
+  private final KafkaState state;
+  private final CuratorFramework kafkaZkClient;
+  private final CuratorFramework stateZkClient;
+  private final String reassignPartitionsPath;
+  private final String preferredReplicaElectionPath;
+  private final String drainedLeadershipPath;
+
+  // Partitions, with their original replica order, which were reordered to drain a broker
+  private final Map<Integer, List<PartitionState>> drainedPartitions = new HashMap<>();
+  private final Set<Integer> restoringBrokerIds = new HashSet<>();
+  private boolean loaded = false;
+
+  /**
+   * Creates an instance which reuses the provided clients: the state's client for the Kafka ZK tree, and the
+   * scheduler's client for the framework's own ZK tree. Both are closed by their owners, not by this instance.
+   */
+  public LeadershipDrainer(ZookeeperConfiguration zkConfig, KafkaState state, CuratorFramework stateZkClient) {
+    this(state.getKafkaZkClient(), stateZkClient, zkConfig, state);
+  }
+
+  LeadershipDrainer(
+      CuratorFramework kafkaZkClient,
+      CuratorFramework stateZkClient,
+      ZookeeperConfiguration zkConfig,
+      KafkaState state) {
+    this.state = state;
+    this.kafkaZkClient = kafkaZkClient;
+    this.stateZkClient = stateZkClient;
+    this.reassignPartitionsPath = zkConfig.getZkRootPath() + "/admin/reassign_partitions";
+    this.preferredReplicaElectionPath = zkConfig.getZkRootPath() + "/admin/preferred_replica_election";
+    this.drainedLeadershipPath = ZKPaths.makePath(zkConfig.getZkRootPath(), DRAINED_LEADERSHIP_NAME);
+  }
+
+  /**
+   * Advances moving leadership off the broker.
+   *
+   * @return true once the broker leads no partition which another in-sync replica could lead
+   */
+  public synchronized boolean drain(int brokerId) throws Exception {
+    load();
+    List<PartitionState> partitions = state.getPartitionStates();
+
+    if (!drainedPartitions.containsKey(brokerId)) {
+      List<PartitionState> preferred = new ArrayList<>();
+      for (PartitionState partition : partitions) {
+        List<Integer> replicas = partition.getReplicas();
+        if (replicas.size() > 1 && replicas.get(0) == brokerId) {
+          preferred.add(partition);
+        }
+      }
+
+      // The original order is stored before it's changed, so that it can't be lost if the scheduler fails over.
+      store(brokerId, preferred, false);
+      if (!preferred.isEmpty() && !reassign(preferred, brokerId)) {
+        remove(brokerId);
+        return false;
+      }
+
+      log.info(String.format("Draining leadership from broker %d, moved it to the end of %d replica lists",
+          brokerId, preferred.size()));
+      drainedPartitions.put(brokerId, preferred);
+      return false;
+    }
+
+    if (isReassignmentInProgress()) {
+      return false;
+    }
+
+    List<PartitionState> led = new ArrayList<>();
+    for (PartitionState partition : partitions) {
+      if (partition.getLeader().isPresent()
+          && partition.getLeader().get() == brokerId
+          && partition.getIsr().size() > 1) {
+        led.add(partition);
+      }
+    }
+
+    if (led.isEmpty()) {
+      log.info("Broker " + brokerId + " leads no partitions with another in-sync replica");
+      return true;
+    }
+
+    electPreferredReplicas(led);
+    return false;
+  }
+
+  /**
+   * Advances restoring the replica order changed by {@link #drain(int)}, followed by an election which returns
+   * leadership to the broker. Only partitions which still have the replicas they had when the broker was drained are
+   * restored.
+   *
+   * @return true once leadership restoration has been requested, or if there's nothing to restore
+   */
+  public synchronized boolean restore(int brokerId) throws Exception {
+    load();
+    List<PartitionState> originals = drainedPartitions.get(brokerId);
+    if (originals == null) {
+      return true;
+    }
+
+    if (!originals.isEmpty()) {
+      if (isReassignmentInProgress()) {
+        return false;
+      }
+
+      if (!restoringBrokerIds.contains(brokerId)) {
+        originals = getUnchangedPartitions(originals);
+        if (!originals.isEmpty()) {
+          if (reassign(originals, null)) {
+            store(brokerId, originals, true);
+            drainedPartitions.put(brokerId, originals);
+            restoringBrokerIds.add(brokerId);
+          }
+          return false;
+        }
+      } else if (!electPreferredReplicas(originals)) {
+        return false;
+      }
+    }
+
+    log.info(String.format("Restored leadership of broker %d for %d partitions", brokerId, originals.size()));
+    remove(brokerId);
+    return true;
+  }
+
+  /**
+   * Returns whether leadership was drained from the broker and hasn't been restored yet, including by a previous
+   * scheduler.
+   */
+  public synchronized boolean isDraining(int brokerId) throws Exception {
+    load();
+    return drainedPartitions.containsKey(brokerId);
+  }
+
+  /**
+   * Loads the drained partitions stored by a previous scheduler, once.
+   */
+  private void load() throws Exception {
+    if (loaded) {
+      return;
+    }
+
+    List<String> brokerIds;
+    try {
+      brokerIds = stateZkClient.getChildren().forPath(drainedLeadershipPath);
+    } catch (KeeperException.NoNodeException e) {
+      brokerIds = Collections.emptyList();
+    }
+
+    for (String brokerId : brokerIds) {
+      JSONObject obj = new JSONObject(new String(
+          stateZkClient.getData().forPath(ZKPaths.makePath(drainedLeadershipPath, brokerId)),
+          StandardCharsets.UTF_8));
+
+      List<PartitionState> originals = new ArrayList<>();
+      JSONArray partitions = obj.getJSONArray("partitions");
+      for (int i = 0; i < partitions.length(); i++) {
+        JSONObject partition = partitions.getJSONObject(i);
+        List<Integer> replicas = new ArrayList<>();
+        JSONArray replicasJson = partition.getJSONArray("replicas");
+        for (int j = 0; j < replicasJson.length(); j++) {
+          replicas.add(replicasJson.getInt(j));
+        }
+        originals.add(new PartitionState(
+            partition.getString("topic"), partition.getInt("partition"), replicas, null, Collections.emptyList()));
+      }
+
+      drainedPartitions.put(Integer.parseInt(brokerId), originals);
+      if (obj.getBoolean("restoring")) {
+        restoringBrokerIds.add(Integer.parseInt(brokerId));
+      }
+    }
+
+    if (!drainedPartitions.isEmpty()) {
+      log.info("Loaded drained leadership of brokers: " + drainedPartitions.keySet());
+    }
+    loaded = true;
+  }
+
+  /**
+   * Returns the drained partitions whose current replica set is still the one they had when the broker was drained.
+   */
+  private List<PartitionState> getUnchangedPartitions(List<PartitionState> originals) throws Exception {
+    Map<String, Set<Integer>> currentReplicas = new HashMap<>();
+    for (PartitionState partition : state.getPartitionStates()) {
+      currentReplicas.put(toPartitionName(partition), new HashSet<>(partition.getReplicas()));
+    }
+
+    List<PartitionState> unchanged = new ArrayList<>();
+    for (PartitionState original : originals) {
+      Set<Integer> replicas = currentReplicas.get(toPartitionName(original));
+      if (new HashSet<>(original.getReplicas()).equals(replicas)) {
+        unchanged.add(original);
+      } else {
+        log.info(String.format("Not restoring replica order %s of partition %s, its replicas are now %s",
+            original.getReplicas(), toPartitionName(original), replicas));
+      }
+    }
+
+    return unchanged;
+  }
+
+  private void store(int brokerId, List<PartitionState> originals, boolean restoring) throws Exception {
+    JSONArray partitions = new JSONArray();
+    for (PartitionState partition : originals) {
+      JSONObject partitionJson = toPartitionJson(partition);
+      partitionJson.put("replicas", new JSONArray(partition.getReplicas()));
+      partitions.put(partitionJson);
+    }
+
+    JSONObject obj = new JSONObject();
+    obj.put("partitions", partitions);
+    obj.put("restoring", restoring);
+    byte[] bytes = obj.toString().getBytes(StandardCharsets.UTF_8);
+
+    String path = ZKPaths.makePath(drainedLeadershipPath, String.valueOf(brokerId));
+    if (stateZkClient.checkExists().forPath(path) == null) {
+      stateZkClient.create().creatingParentsIfNeeded().forPath(path, bytes);
+    } else {
+      stateZkClient.setData().forPath(path, bytes);
+    }
+  }
+
+  private void remove(int brokerId) throws Exception {
+    try {
+      stateZkClient.delete().forPath(ZKPaths.makePath(drainedLeadershipPath, String.valueOf(brokerId)));
+    } catch (KeeperException.NoNodeException e) {
+      // Already removed
+    }
+    restoringBrokerIds.remove(brokerId);
+    drainedPartitions.remove(brokerId);
+  }
+
+  /**
+   * Requests a reassignment of the partitions to their replicas, with the broker moved to the end of each replica
+   * list if it's non-null.
+   *
+   * @return false if another reassignment is already in progress
+   */
+  private boolean reassign(List<PartitionState> partitions, Integer lastBrokerId) throws Exception {
+    JSONArray partitionsJson = new JSONArray();
+    for (PartitionState partition : partitions) {
+      List<Integer> replicas = new ArrayList<>(partition.getReplicas());
+      if (lastBrokerId != null && replicas.remove(lastBrokerId)) {
+        replicas.add(lastBrokerId);
+      }
+
+      JSONObject partitionJson = toPartitionJson(partition);
+      partitionJson.put("replicas", new JSONArray(replicas));
+      partitionsJson.put(partitionJson);
+    }
+
+    return create(reassignPartitionsPath, partitionsJson);
+  }
+
+  /**
+   * @return false if another election is already in progress
+   */
+  private boolean electPreferredReplicas(List<PartitionState> partitions) throws Exception {
+    JSONArray partitionsJson = new JSONArray();
+    for (PartitionState partition : partitions) {
+      partitionsJson.put(toPartitionJson(partition));
+    }
+
+    return create(preferredReplicaElectionPath, partitionsJson);
+  }
+
+  private boolean isReassignmentInProgress() throws Exception {
+    return kafkaZkClient.checkExists().forPath(reassignPartitionsPath) != null;
+  }
+
+  private boolean create(String path, JSONArray partitions) throws Exception {
+    JSONObject obj = new JSONObject();
+    obj.put("version", 1);
+    obj.put("partitions", partitions);
+
+    try {
+      kafkaZkClient.create().creatingParentsIfNeeded().forPath(
+          path, obj.toString().getBytes(StandardCharsets.UTF_8));
+      return true;
+    } catch (KeeperException.NodeExistsException e) {
+      log.info("Waiting for the controller to process " + path);
+      return false;
+    }
+  }
+
+  private static String toPartitionName(PartitionState partition) {
+    return partition.getTopic() + "-" + partition.getPartition();
+  }
+
+  private static JSONObject toPartitionJson(PartitionState partition) {
+    JSONObject partitionJson = new JSONObject();
+    partitionJson.put("topic", partition.getTopic());
+    partitionJson.put("partition", partition.getPartition());
+    return partitionJson;
+  }
+}
@@ -0,0 +1,228 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queries partition offsets directly from the partition leaders, using the same version 0 Offsets request that
+ * GetOffsetShell sends, but without forking a JVM. Partitions are grouped by leader so that each broker receives a
+ * single request per query, and the requests to different leaders are sent in parallel.
+ */
+public class OffsetService {
+  private static final Log log = LogFactory.getLog(OffsetService.class);
+
+  public static final long LATEST_TIME = -1L;
+  public static final long EARLIEST_TIME = -2L;
+  public static final int DEFAULT_QUERY_THREADS = 4;
+
+  private static final short OFFSETS_API_KEY = 2;
+  private static final short OFFSETS_API_VERSION = 0;
+  private static final int CONSUMER_REPLICA_ID = -1;
+  private static final int MAX_NUM_OFFSETS = 1;
+  private static final short NO_ERROR = 0;
+  private static final String CLIENT_ID = "kafka-scheduler-offsets";
+  private static final int SOCKET_TIMEOUT_MS = 10000;
+
+  private final KafkaState state;
+  private final ExecutorService executor;
+  private final AtomicInteger correlationId = new AtomicInteger();
+
+  public OffsetService(KafkaState state, ExecutorService executor) {
+    this.state = state;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns the offset of every partition of the provided topics at the provided time, keyed by topic and then by
+   * partition. {@link #LATEST_TIME} and {@link #EARLIEST_TIME} may be used to query the log end and log start offsets.
+   * Partitions whose offset couldn't be determined, e.g. because they have no leader, map to an empty Optional.
+   */
+  public Map<String, Map<Integer, Optional<Long>>> getOffsets(Collection<String> topics, long time)
+      throws Exception {
+    Map<String, Map<Integer, Optional<Long>>> offsets = new TreeMap<>();
+    Map<Integer, List<PartitionState>> partitionsByLeader = new HashMap<>();
+    Set<String> topicSet = new HashSet<>(topics);
+
+    for (String topic : topicSet) {
+      offsets.put(topic, new TreeMap<Integer, Optional<Long>>());
+    }
+
+    for (PartitionState partitionState : state.getPartitionStates()) {
+      if (!topicSet.contains(partitionState.getTopic())) {
+        continue;
+      }
+
+      offsets.get(partitionState.getTopic()).put(partitionState.getPartition(), Optional.empty());
+      if (partitionState.getLeader().isPresent()) {
+        Integer leader = partitionState.getLeader().get();
+        if (!partitionsByLeader.containsKey(leader)) {
+          partitionsByLeader.put(leader, new ArrayList<PartitionState>());
+        }
+        partitionsByLeader.get(leader).add(partitionState);
+      } else {
+        log.warn(String.format("Partition %s-%d has no leader, offset unavailable",
+            partitionState.getTopic(), partitionState.getPartition()));
+      }
+    }
+
+    List<Future<Map<PartitionState, Long>>> futures = new ArrayList<>();
+    for (final Map.Entry<Integer, List<PartitionState>> entry : partitionsByLeader.entrySet()) {
+      final long queryTime = time;
+      futures.add(executor.submit(new Callable<Map<PartitionState, Long>>() {
+        @Override
+        public Map<PartitionState, Long> call() throws Exception {
+          return queryLeader(entry.getKey(), entry.getValue(), queryTime);
+        }
+      }));
+    }
+
+    for (Future<Map<PartitionState, Long>> future : futures) {
+      try {
+        for (Map.Entry<PartitionState, Long> result : future.get(SOCKET_TIMEOUT_MS * 2, TimeUnit.MILLISECONDS)
+            .entrySet()) {
+          offsets.get(result.getKey().getTopic()).put(result.getKey().getPartition(), Optional.of(result.getValue()));
+        }
+      } catch (Exception e) {
+        log.error("Failed to query offsets from partition leader", e);
+        future.cancel(true);
+      }
+    }
+
+    return offsets;
+  }
+
+  private Map<PartitionState, Long> queryLeader(int leader, List<PartitionState> partitions, long time)
+      throws Exception {
+    Optional<JSONObject> broker = state.getBroker(String.valueOf(leader));
+    if (!broker.isPresent()) {
+      throw new IOException("Partition leader is not registered: " + leader);
+    }
+    String host = broker.get().getString("host");
+    int port = broker.get().getInt("port");
+
+    Map<String, List<PartitionState>> partitionsByTopic = new TreeMap<>();
+    for (PartitionState partition : partitions) {
+      if (!partitionsByTopic.containsKey(partition.getTopic())) {
+        partitionsByTopic.put(partition.getTopic(), new ArrayList<PartitionState>());
+      }
+      partitionsByTopic.get(partition.getTopic()).add(partition);
+    }
+
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(host, port), SOCKET_TIMEOUT_MS);
+      socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+
+      int requestCorrelationId = correlationId.incrementAndGet();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      byte[] request = createRequest(requestCorrelationId, partitionsByTopic, time);
+      out.writeInt(request.length);
+      out.write(request);
+      out.flush();
+
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      in.readInt(); // response size
+      int responseCorrelationId = in.readInt();
+      if (responseCorrelationId != requestCorrelationId) {
+        throw new IOException(String.format("Mismatched correlation id from broker %d: expected %d, got %d",
+            leader, requestCorrelationId, responseCorrelationId));
+      }
+
+      return parseResponse(in, partitions);
+    }
+  }
+
+  private static byte[] createRequest(
+      int correlationId, Map<String, List<PartitionState>> partitionsByTopic, long time) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    out.writeShort(OFFSETS_API_KEY);
+    out.writeShort(OFFSETS_API_VERSION);
+    out.writeInt(correlationId);
+    writeString(out, CLIENT_ID);
+
+    out.writeInt(CONSUMER_REPLICA_ID);
+    out.writeInt(partitionsByTopic.size());
+    for (Map.Entry<String, List<PartitionState>> entry : partitionsByTopic.entrySet()) {
+      writeString(out, entry.getKey());
+      out.writeInt(entry.getValue().size());
+      for (PartitionState partition : entry.getValue()) {
+        out.writeInt(partition.getPartition());
+        out.writeLong(time);
+        out.writeInt(MAX_NUM_OFFSETS);
+      }
+    }
+
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static Map<PartitionState, Long> parseResponse(DataInputStream in, List<PartitionState> partitions)
+      throws IOException {
+    Map<String, PartitionState> requested = new HashMap<>();
+    for (PartitionState partition : partitions) {
+      requested.put(partition.getTopic() + "-" + partition.getPartition(), partition);
+    }
+
+    Map<PartitionState, Long> offsets = new HashMap<>();
+    int topicCount = in.readInt();
+    for (int i = 0; i < topicCount; i++) {
+      String topic = readString(in);
+      int partitionCount = in.readInt();
+      for (int j = 0; j < partitionCount; j++) {
+        int partition = in.readInt();
+        short errorCode = in.readShort();
+        int offsetCount = in.readInt();
+        Long offset = null;
+        for (int k = 0; k < offsetCount; k++) {
+          long value = in.readLong();
+          if (offset == null) {
+            offset = value;
+          }
+        }
+
+        PartitionState partitionState = requested.get(topic + "-" + partition);
+        if (partitionState == null) {
+          continue;
+        }
+        if (errorCode != NO_ERROR) {
+          log.warn(String.format("Offset request for %s-%d failed with error code: %d", topic, partition, errorCode));
+        } else if (offset != null) {
+          offsets.put(partitionState, offset);
+        }
+      }
+    }
+
+    return offsets;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    short length = in.readShort();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
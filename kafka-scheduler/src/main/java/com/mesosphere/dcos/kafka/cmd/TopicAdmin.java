@@ -0,0 +1,377 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.KeeperException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Performs topic administration directly against the Kafka ZK tree, in the same way kafka-topics.sh does, but without
+ * starting a new JVM for every operation. Results are returned in the same {"message": "Output: ..."} form that was
+ * produced when wrapping kafka-topics.sh, so that API consumers see no difference.
+ */
+public class TopicAdmin {
+  private static final Log log = LogFactory.getLog(TopicAdmin.class);
+
+  private static final int MAX_TOPIC_NAME_LENGTH = 249;
+  private static final Pattern LEGAL_TOPIC_NAME = Pattern.compile("[a-zA-Z0-9\\._\\-]+");
+  private static final String NO_LEADER = "none";
+  static final String COLLISION_WARNING =
+      "WARNING: Due to limitations in metric names, topics with a period ('.') or underscore ('_') could collide. " +
+          "To avoid issues it is best to use either, but not both.";
+  static final String PARTITIONS_WARNING =
+      "WARNING: If partitions are increased for a topic that has a key, " +
+          "the partition logic or ordering of the messages will be affected";
+
+  private final KafkaState state;
+  private final CuratorFramework kafkaZkClient;
+  private final String topicsPath;
+  private final String topicConfigsPath;
+  private final String deleteTopicsPath;
+  private final String kafkaZkPath;
+  private final Random random = new Random();
+
+  /**
+   * Creates an instance which writes through the provided state's Kafka ZK client, whose lifecycle belongs to the state.
+   */
+  public TopicAdmin(ZookeeperConfiguration zkConfig, KafkaState state) {
+    this(state.getKafkaZkClient(), zkConfig, state);
+  }
+
+  TopicAdmin(CuratorFramework kafkaZkClient, ZookeeperConfiguration zkConfig, KafkaState state) {
+    this.state = state;
+    this.kafkaZkClient = kafkaZkClient;
+    this.topicsPath = zkConfig.getZkRootPath() + "/brokers/topics";
+    this.topicConfigsPath = zkConfig.getZkRootPath() + "/config/topics";
+    this.deleteTopicsPath = zkConfig.getZkRootPath() + "/admin/delete_topics";
+    this.kafkaZkPath = zkConfig.getKafkaZkUri() + zkConfig.getZkRootPath();
+  }
+
+  public JSONObject createTopic(String name, int partitionCount, int replicationFactor) throws Exception {
+    StopWatch stopWatch = new StopWatch();
+    stopWatch.start();
+    StringBuilder output = new StringBuilder();
+    if (hasCollisionChars(name)) {
+      println(output, COLLISION_WARNING);
+    }
+
+    try {
+      // Checks are made in the same order as kafka-topics.sh, so that the same error is reported for the same input.
+      List<Integer> brokerIds = getLiveBrokerIds();
+      Map<Integer, List<Integer>> assignment = assignReplicasToBrokers(
+          brokerIds,
+          partitionCount,
+          replicationFactor,
+          random.nextInt(Math.max(brokerIds.size(), 1)),
+          0);
+
+      validateTopicName(name);
+      if (kafkaZkClient.checkExists().forPath(getTopicPath(name)) != null) {
+        throw new TopicAdminException(String.format("Topic \"%s\" already exists.", name));
+      }
+      if (hasCollisionChars(name)) {
+        List<String> collidingTopics = getCollidingTopics(name);
+        if (!collidingTopics.isEmpty()) {
+          throw new TopicAdminException(String.format(
+              "Topic \"%s\" collides with existing topics: %s", name, StringUtils.join(collidingTopics, ", ")));
+        }
+      }
+
+      // As with kafka-topics.sh, the topic config must exist before the controller is notified of the new topic.
+      JSONObject config = new JSONObject();
+      config.put("version", 1);
+      config.put("config", new JSONObject());
+      write(topicConfigsPath + "/" + name, config);
+
+      kafkaZkClient.create().creatingParentsIfNeeded().forPath(
+          getTopicPath(name), toAssignmentJson(assignment).toString().getBytes(StandardCharsets.UTF_8));
+
+      log.info(String.format("Created topic %s in %dms: %s", name, stopWatch.getTime(), assignment));
+      println(output, String.format("Created topic \"%s\".", name));
+    } catch (TopicAdminException e) {
+      error(output, e);
+    }
+
+    return message(output.toString());
+  }
+
+  public JSONObject deleteTopic(String name) throws Exception {
+    StringBuilder output = new StringBuilder();
+    try {
+      if (kafkaZkClient.checkExists().forPath(getTopicPath(name)) == null) {
+        throw new TopicAdminException(String.format("Topic %s does not exist on ZK path %s", name, kafkaZkPath));
+      }
+
+      try {
+        kafkaZkClient.create().creatingParentsIfNeeded().forPath(deleteTopicsPath + "/" + name);
+        log.info("Marked topic for deletion: " + name);
+        println(output, String.format("Topic %s is marked for deletion.", name));
+        println(output, "Note: This will have no impact if delete.topic.enable is not set to true.");
+      } catch (KeeperException.NodeExistsException e) {
+        println(output, String.format("Topic %s is already marked for deletion.", name));
+      }
+    } catch (TopicAdminException e) {
+      error(output, e);
+    }
+
+    return message(output.toString());
+  }
+
+  public JSONObject addPartitions(String name, int partitionCount) throws Exception {
+    StringBuilder output = new StringBuilder();
+    try {
+      Map<Integer, List<Integer>> assignment = getAssignment(name);
+      if (assignment.isEmpty()) {
+        throw new TopicAdminException(String.format("Topic %s does not exist on ZK path %s", name, kafkaZkPath));
+      }
+
+      // kafka-topics.sh prints this warning before validating the new partition count, so it prefixes failures too.
+      println(output, PARTITIONS_WARNING);
+
+      int partitionsToAdd = partitionCount - assignment.size();
+      if (partitionsToAdd <= 0) {
+        throw new TopicAdminException("The number of partitions for a topic can only be increased");
+      }
+
+      // Continue the existing round-robin layout, as kafka-topics.sh does, rather than starting a new one.
+      List<Integer> brokerIds = getLiveBrokerIds();
+      List<Integer> firstReplicas = assignment.get(0);
+      int startIndex = firstReplicas == null ? -1 : brokerIds.indexOf(firstReplicas.get(0));
+      if (startIndex < 0) {
+        startIndex = random.nextInt(Math.max(brokerIds.size(), 1));
+      }
+
+      assignment.putAll(assignReplicasToBrokers(
+          brokerIds,
+          partitionsToAdd,
+          assignment.values().iterator().next().size(),
+          startIndex,
+          assignment.size()));
+      kafkaZkClient.setData().forPath(
+          getTopicPath(name), toAssignmentJson(assignment).toString().getBytes(StandardCharsets.UTF_8));
+
+      log.info(String.format("Increased partitions of topic %s to %d", name, partitionCount));
+      println(output, "Adding partitions succeeded!");
+    } catch (TopicAdminException e) {
+      error(output, e);
+    }
+
+    return message(output.toString());
+  }
+
+  public JSONObject unavailablePartitions() throws Exception {
+    return describePartitions(state.getUnavailablePartitions());
+  }
+
+  public JSONObject underReplicatedPartitions() throws Exception {
+    return describePartitions(state.getUnderReplicatedPartitions());
+  }
+
+  /**
+   * Assigns replicas to brokers using the same rack-unaware layout as Kafka's AdminUtils: the first replica of each
+   * partition is placed round-robin starting at {@code startIndex}, and the remaining replicas follow at an offset which
+   * shifts every time all brokers have been used once.
+   */
+  static Map<Integer, List<Integer>> assignReplicasToBrokers(
+      List<Integer> brokerIds,
+      int partitionCount,
+      int replicationFactor,
+      int startIndex,
+      int startPartitionId) throws TopicAdminException {
+    if (partitionCount <= 0) {
+      throw new TopicAdminException("number of partitions must be larger than 0");
+    }
+    if (replicationFactor <= 0) {
+      throw new TopicAdminException("replication factor must be larger than 0");
+    }
+    if (replicationFactor > brokerIds.size()) {
+      throw new TopicAdminException(String.format(
+          "replication factor: %d larger than available brokers: %d", replicationFactor, brokerIds.size()));
+    }
+
+    List<Integer> sortedBrokerIds = new ArrayList<>(brokerIds);
+    Collections.sort(sortedBrokerIds);
+    int brokerCount = sortedBrokerIds.size();
+
+    Map<Integer, List<Integer>> assignment = new TreeMap<>();
+    int nextReplicaShift = startIndex;
+    for (int partitionId = startPartitionId; partitionId < startPartitionId + partitionCount; partitionId++) {
+      if (partitionId > 0 && partitionId % brokerCount == 0) {
+        nextReplicaShift++;
+      }
+
+      int firstReplicaIndex = (partitionId + startIndex) % brokerCount;
+      List<Integer> replicas = new ArrayList<>();
+      replicas.add(sortedBrokerIds.get(firstReplicaIndex));
+      for (int j = 0; j < replicationFactor - 1; j++) {
+        int shift = 1 + (nextReplicaShift + j) % (brokerCount - 1);
+        replicas.add(sortedBrokerIds.get((firstReplicaIndex + shift) % brokerCount));
+      }
+      assignment.put(partitionId, replicas);
+    }
+
+    return assignment;
+  }
+
+  private static JSONObject describePartitions(List<PartitionState> partitionStates) {
+    StringBuilder output = new StringBuilder();
+    for (PartitionState partitionState : partitionStates) {
+      output.append(String.format("\tTopic: %s\tPartition: %d\tLeader: %s\tReplicas: %s\tIsr: %s%n",
+          partitionState.getTopic(),
+          partitionState.getPartition(),
+          partitionState.getLeader().isPresent() ? partitionState.getLeader().get() : NO_LEADER,
+          StringUtils.join(partitionState.getReplicas(), ","),
+          StringUtils.join(partitionState.getIsr(), ",")));
+    }
+
+    return message(output.toString());
+  }
+
+  private Map<Integer, List<Integer>> getAssignment(String topic) throws Exception {
+    Map<Integer, List<Integer>> assignment = new TreeMap<>();
+    JSONObject topicJson = read(getTopicPath(topic));
+    if (topicJson == null || !topicJson.has("partitions")) {
+      return assignment;
+    }
+
+    JSONObject partitions = topicJson.getJSONObject("partitions");
+    for (String partitionId : partitions.keySet()) {
+      assignment.put(Integer.parseInt(partitionId), toIntegerList(partitions.getJSONArray(partitionId)));
+    }
+    return assignment;
+  }
+
+  /**
+   * Returns the existing topics whose names only differ from the given name by '.' versus '_', which Kafka rejects as
+   * their metric names would be the same.
+   */
+  private List<String> getCollidingTopics(String name) throws Exception {
+    List<String> collidingTopics = new ArrayList<>();
+    try {
+      for (String topic : kafkaZkClient.getChildren().forPath(topicsPath)) {
+        if (toMetricName(topic).equals(toMetricName(name))) {
+          collidingTopics.add(topic);
+        }
+      }
+    } catch (KeeperException.NoNodeException e) {
+      // No topics exist yet
+    }
+    return collidingTopics;
+  }
+
+  private List<Integer> getLiveBrokerIds() throws Exception {
+    JSONArray ids = state.getBrokerIds();
+    List<Integer> brokerIds = new ArrayList<>();
+    for (int i = 0; i < ids.length(); i++) {
+      brokerIds.add(Integer.parseInt(ids.getString(i)));
+    }
+    Collections.sort(brokerIds);
+    return brokerIds;
+  }
+
+  private JSONObject read(String path) throws Exception {
+    try {
+      return new JSONObject(new String(kafkaZkClient.getData().forPath(path), StandardCharsets.UTF_8));
+    } catch (KeeperException.NoNodeException e) {
+      return null;
+    }
+  }
+
+  private void write(String path, JSONObject obj) throws Exception {
+    byte[] bytes = obj.toString().getBytes(StandardCharsets.UTF_8);
+    if (kafkaZkClient.checkExists().forPath(path) == null) {
+      kafkaZkClient.create().creatingParentsIfNeeded().forPath(path, bytes);
+    } else {
+      kafkaZkClient.setData().forPath(path, bytes);
+    }
+  }
+
+  private String getTopicPath(String name) {
+    return topicsPath + "/" + name;
+  }
+
+  private static void validateTopicName(String name) throws TopicAdminException {
+    if (StringUtils.isBlank(name)) {
+      throw new TopicAdminException("topic name is illegal, can't be empty");
+    }
+    if (name.equals(".") || name.equals("..")) {
+      throw new TopicAdminException("topic name cannot be \".\" or \"..\"");
+    }
+    if (name.length() > MAX_TOPIC_NAME_LENGTH) {
+      throw new TopicAdminException(String.format(
+          "topic name is illegal, can't be longer than %d characters", MAX_TOPIC_NAME_LENGTH));
+    }
+    if (!LEGAL_TOPIC_NAME.matcher(name).matches()) {
+      throw new TopicAdminException(String.format(
+          "topic name %s is illegal, contains a character other than ASCII alphanumerics, '.', '_' and '-'", name));
+    }
+  }
+
+  private static boolean hasCollisionChars(String name) {
+    return name.contains(".") || name.contains("_");
+  }
+
+  private static String toMetricName(String name) {
+    return name.replace('.', '_');
+  }
+
+  private static JSONObject toAssignmentJson(Map<Integer, List<Integer>> assignment) {
+    JSONObject partitions = new JSONObject();
+    for (Map.Entry<Integer, List<Integer>> entry : assignment.entrySet()) {
+      partitions.put(String.valueOf(entry.getKey()), new JSONArray(entry.getValue()));
+    }
+
+    JSONObject obj = new JSONObject();
+    obj.put("version", 1);
+    obj.put("partitions", partitions);
+    return obj;
+  }
+
+  private static List<Integer> toIntegerList(JSONArray array) {
+    List<Integer> list = new ArrayList<>();
+    if (array != null) {
+      for (int i = 0; i < array.length(); i++) {
+        list.add(array.getInt(i));
+      }
+    }
+    return list;
+  }
+
+  private static void error(StringBuilder output, TopicAdminException e) {
+    log.warn("Topic operation failed: " + e.getMessage());
+    println(output, "Error while executing topic command : " + e.getMessage());
+  }
+
+  /**
+   * Appends a line of output, terminated as kafka-topics.sh terminates every line it prints.
+   */
+  private static void println(StringBuilder output, String line) {
+    output.append(line).append(System.lineSeparator());
+  }
+
+  private static JSONObject message(String output) {
+    JSONObject obj = new JSONObject();
+    obj.put("message", StringUtils.isNotBlank(output) ? String.format("Output: %s", output) : "");
+    return obj;
+  }
+
+  /**
+   * Signals that a topic operation was rejected, as opposed to failing due to an error talking to ZK.
+   */
+  static class TopicAdminException extends Exception {
+    TopicAdminException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.mesosphere.dcos.kafka.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.mesos.config.ConfigStoreException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Caches deserialized configurations by name, so that repeated fetches of a configuration don't read ZooKeeper and
+ * parse its JSON again.
+ *
+ * A stored configuration is never modified, so cached entries don't expire. They're removed when the configuration is
+ * cleared from the config store, or, least recently used first, when the serialized size of the cached configurations
+ * exceeds the cache's capacity. Cached configurations are shared between callers, which must not modify them.
+ */
+public class ConfigCache {
+  private static final Log log = LogFactory.getLog(ConfigCache.class);
+
+  static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+  private final long maxBytes;
+  private final Map<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0;
+
+  private static class Entry {
+    private final KafkaSchedulerConfiguration config;
+    private final long bytes;
+
+    private Entry(KafkaSchedulerConfiguration config, long bytes) {
+      this.config = config;
+      this.bytes = bytes;
+    }
+  }
+
+  public ConfigCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  public ConfigCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the cached configuration, or null if it isn't cached.
+   */
+  public synchronized KafkaSchedulerConfiguration get(UUID name) {
+    Entry entry = entries.get(name);
+    return entry == null ? null : entry.config;
+  }
+
+  /**
+   * Caches a configuration, accounting for it by its serialized size. A configuration larger than the capacity of the
+   * cache isn't cached.
+   */
+  public synchronized void put(UUID name, KafkaSchedulerConfiguration config) {
+    long bytes;
+    try {
+      bytes = config.getBytes().length;
+    } catch (ConfigStoreException e) {
+      log.warn("Unable to determine the size of config: " + name + ", not caching it", e);
+      return;
+    }
+
+    if (bytes > maxBytes) {
+      log.warn(String.format("Config %s of %d bytes exceeds the cache capacity of %d bytes", name, bytes, maxBytes));
+      return;
+    }
+
+    invalidate(name);
+    entries.put(name, new Entry(config, bytes));
+    totalBytes += bytes;
+
+    Iterator<Map.Entry<UUID, Entry>> it = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<UUID, Entry> eldest = it.next();
+      log.info("Evicting config from cache: " + eldest.getKey());
+      totalBytes -= eldest.getValue().bytes;
+      it.remove();
+    }
+  }
+
+  /**
+   * Removes a configuration from the cache, if it's cached.
+   */
+  public synchronized void invalidate(UUID name) {
+    Entry entry = entries.remove(name);
+    if (entry != null) {
+      totalBytes -= entry.bytes;
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the serialized size, in bytes, of the cached configurations.
+   */
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+}
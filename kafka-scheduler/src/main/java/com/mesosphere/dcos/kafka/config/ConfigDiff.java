@@ -0,0 +1,220 @@
+package com.mesosphere.dcos.kafka.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Compares two {@link KafkaSchedulerConfiguration}s key by key, and classifies each changed key by what it takes to
+ * apply the change to a running broker.
+ *
+ * Keys are the JSON paths of the stored configuration, such as "broker.cpus" or "kafka.overrides.log.retention.hours".
+ * Keys which aren't explicitly classified are assumed to require a restart.
+ */
+public class ConfigDiff {
+
+  /**
+   * What it takes to apply a change, in increasing order of impact on the brokers.
+   */
+  public enum ChangeType {
+    /** The values are equivalent, e.g. the same number or an override key in an older format. */
+    NO_OP,
+    /** The change is applied by the scheduler itself, without touching the running brokers. */
+    DYNAMIC,
+    /** The broker must be restarted to apply the change. */
+    RESTART_REQUIRED
+  }
+
+  /**
+   * A single changed key.
+   */
+  public static class Change {
+    private final String key;
+    private final String oldValue;
+    private final String newValue;
+    private final ChangeType type;
+
+    private Change(String key, String oldValue, String newValue, ChangeType type) {
+      this.key = key;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+      this.type = type;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getOldValue() {
+      return oldValue;
+    }
+
+    public String getNewValue() {
+      return newValue;
+    }
+
+    public ChangeType getType() {
+      return type;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %s -> %s (%s)", key, oldValue, newValue, type);
+    }
+  }
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final Map<String, ChangeType> KEY_TYPES = new LinkedHashMap<>();
+
+  static {
+    KEY_TYPES.put("service.count", ChangeType.DYNAMIC);
+    // Placement only applies to brokers which are placed after the change
+    KEY_TYPES.put("service.placement_attribute", ChangeType.DYNAMIC);
+    KEY_TYPES.put("service.phase_strategy", ChangeType.DYNAMIC);
+    KEY_TYPES.put("service.phase_concurrency", ChangeType.DYNAMIC);
+    KEY_TYPES.put("service.isr_wait_timeout_secs", ChangeType.DYNAMIC);
+    KEY_TYPES.put("service.leadership_timeout_secs", ChangeType.DYNAMIC);
+    KEY_TYPES.put("service.event_loop_enabled", ChangeType.DYNAMIC);
+    KEY_TYPES.put("service.event_queue_capacity", ChangeType.DYNAMIC);
+    KEY_TYPES.put("service.ha_enabled", ChangeType.DYNAMIC);
+    KEY_TYPES.put("recovery", ChangeType.DYNAMIC);
+    // The executor, health check and sandbox path are read when the broker is launched, and a running broker keeps
+    // the ExecutorInfo and HealthCheck it was launched with, so these fall through to RESTART_REQUIRED.
+  }
+
+  private final List<Change> changes;
+
+  private ConfigDiff(List<Change> changes) {
+    this.changes = changes;
+  }
+
+  public static ConfigDiff between(KafkaSchedulerConfiguration oldConfig, KafkaSchedulerConfiguration newConfig) {
+    Map<String, JsonNode> oldValues = new TreeMap<>();
+    Map<String, JsonNode> newValues = new TreeMap<>();
+    flatten("", MAPPER.valueToTree(oldConfig), oldValues);
+    flatten("", MAPPER.valueToTree(newConfig), newValues);
+
+    Set<String> keys = new TreeSet<>(oldValues.keySet());
+    keys.addAll(newValues.keySet());
+
+    List<Change> changes = new ArrayList<>();
+    for (String key : keys) {
+      JsonNode oldValue = oldValues.get(key);
+      JsonNode newValue = newValues.get(key);
+      if (Objects.equals(oldValue, newValue)) {
+        continue;
+      }
+
+      ChangeType type = isEquivalent(oldValue, newValue) ? ChangeType.NO_OP : getChangeType(key);
+      changes.add(new Change(key, toText(oldValue), toText(newValue), type));
+    }
+
+    return new ConfigDiff(changes);
+  }
+
+  /**
+   * Returns a hash of the keys of a configuration whose changes require a restart, such as the broker and Kafka
+   * settings. Configurations with the same hash only differ in changes which don't require a restart, so brokers may be
+   * moved between them as they run.
+   *
+   * Values are canonicalized as in {@link #between}: numbers are compared by value and text is trimmed.
+   */
+  public static String getRestartHash(KafkaSchedulerConfiguration config) {
+    Map<String, JsonNode> values = new TreeMap<>();
+    flatten("", MAPPER.valueToTree(config), values);
+
+    Map<String, String> restartValues = new TreeMap<>();
+    for (Map.Entry<String, JsonNode> entry : values.entrySet()) {
+      if (getChangeType(entry.getKey()) == ChangeType.RESTART_REQUIRED) {
+        restartValues.put(entry.getKey(), toCanonicalText(entry.getValue()));
+      }
+    }
+
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(MAPPER.writeValueAsBytes(restartValues));
+      StringBuilder hex = new StringBuilder();
+      for (byte b : hash) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+      throw new IllegalStateException("Unable to hash configuration", e);
+    }
+  }
+
+  public List<Change> getChanges() {
+    return changes;
+  }
+
+  /**
+   * Returns the most impactful type of change, or {@link ChangeType#NO_OP} if there are no changes.
+   */
+  public ChangeType getType() {
+    ChangeType type = ChangeType.NO_OP;
+    for (Change change : changes) {
+      if (change.getType().compareTo(type) > 0) {
+        type = change.getType();
+      }
+    }
+    return type;
+  }
+
+  public boolean isRestartRequired() {
+    return getType() == ChangeType.RESTART_REQUIRED;
+  }
+
+  @Override
+  public String toString() {
+    return changes.toString();
+  }
+
+  static ChangeType getChangeType(String key) {
+    for (Map.Entry<String, ChangeType> entry : KEY_TYPES.entrySet()) {
+      if (key.equals(entry.getKey()) || key.startsWith(entry.getKey() + ".")) {
+        return entry.getValue();
+      }
+    }
+    return ChangeType.RESTART_REQUIRED;
+  }
+
+  private static void flatten(String prefix, JsonNode node, Map<String, JsonNode> values) {
+    if (node == null || node.isNull()) {
+      return;
+    }
+
+    if (node.isObject()) {
+      Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        flatten(prefix.isEmpty() ? field.getKey() : prefix + "." + field.getKey(), field.getValue(), values);
+      }
+    } else {
+      values.put(prefix, node);
+    }
+  }
+
+  private static boolean isEquivalent(JsonNode oldValue, JsonNode newValue) {
+    if (oldValue == null || newValue == null) {
+      return false;
+    }
+
+    if (oldValue.isNumber() && newValue.isNumber()) {
+      return oldValue.doubleValue() == newValue.doubleValue();
+    }
+
+    return oldValue.asText().trim().equals(newValue.asText().trim());
+  }
+
+  private static String toCanonicalText(JsonNode value) {
+    return value.isNumber() ? Double.toString(value.doubleValue()) : value.asText().trim();
+  }
+
+  private static String toText(JsonNode value) {
+    return value == null ? null : value.asText();
+  }
+}
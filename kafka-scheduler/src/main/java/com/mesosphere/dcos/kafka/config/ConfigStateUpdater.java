@@ -7,7 +7,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.mesos.config.ConfigStoreException;
 
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Retrieves and stores configurations in the state store.
@@ -20,9 +22,28 @@ public class ConfigStateUpdater {
   private final KafkaSchedulerConfiguration newTargetConfig;
   private final FrameworkState frameworkState;
   private final KafkaState kafkaState;
+  private final Optional<ExecutorService> configCleanupExecutor;
 
+  /**
+   * Creates an updater which removes unused configs synchronously, before returning the target config.
+   */
   public ConfigStateUpdater(KafkaSchedulerConfiguration newTargetConfig) {
+    this(newTargetConfig, Optional.empty());
+  }
+
+  /**
+   * Creates an updater which removes unused configs on the provided executor, without delaying the scheduler's
+   * startup. The executor's lifecycle is managed by the caller.
+   */
+  public ConfigStateUpdater(KafkaSchedulerConfiguration newTargetConfig, ExecutorService configCleanupExecutor) {
+    this(newTargetConfig, Optional.of(configCleanupExecutor));
+  }
+
+  private ConfigStateUpdater(
+      KafkaSchedulerConfiguration newTargetConfig,
+      Optional<ExecutorService> configCleanupExecutor) {
     this.newTargetConfig = newTargetConfig;
+    this.configCleanupExecutor = configCleanupExecutor;
 
     // We must bootstrap ZK settings from the new config:
     ZookeeperConfiguration zkConfig = newTargetConfig.getZookeeperConfig();
@@ -56,7 +77,7 @@ public class ConfigStateUpdater {
         log.info("Config change detected!");
         setTargetConfig(newTargetConfig);
         kafkaConfigState.syncConfigs(frameworkState);
-        kafkaConfigState.cleanConfigs(frameworkState);
+        cleanConfigs();
       } else {
         log.info("No config property changes detected, leaving brokers as-is.");
       }
@@ -64,6 +85,14 @@ public class ConfigStateUpdater {
     return newTargetConfig;
   }
 
+  /**
+   * Loads the configs which the scheduler reads as it starts into memory, without changing any stored state. Stored
+   * configs never change, so a standby scheduler may load them long before it takes over.
+   */
+  public void preload() {
+    kafkaConfigState.preload(frameworkState);
+  }
+
   /**
    * Returns the underlying config state storage to be used elsewhere.
    * This will only contain pre-validated target configs.
@@ -86,6 +115,26 @@ public class ConfigStateUpdater {
     return kafkaState;
   }
 
+  /**
+   * Removes unused configs, on the cleanup executor if there is one. Unused configs are never read again, so they may
+   * be removed at any time after the brokers have been moved off duplicate configs.
+   */
+  private void cleanConfigs() {
+    Runnable cleanup = () -> {
+      try {
+        kafkaConfigState.cleanConfigs(frameworkState);
+      } catch (ConfigStoreException e) {
+        log.error("Failed to clean unused configs", e);
+      }
+    };
+
+    if (configCleanupExecutor.isPresent()) {
+      configCleanupExecutor.get().submit(cleanup);
+    } else {
+      cleanup.run();
+    }
+  }
+
   private void setTargetConfig(KafkaSchedulerConfiguration newTargetConfig) throws ConfigStoreException {
     UUID targetConfigName = kafkaConfigState.store(newTargetConfig);
     kafkaConfigState.setTargetName(targetConfigName);
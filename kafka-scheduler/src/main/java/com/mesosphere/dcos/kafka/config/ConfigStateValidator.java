@@ -140,7 +140,7 @@ public class ConfigStateValidator {
     return errors;
   }
 
-  private List<ValidationError> validateBrokerConfigChange(
+  List<ValidationError> validateBrokerConfigChange(
       BrokerConfiguration oldConfig,
       BrokerConfiguration newConfig)
           throws ValidationException {
@@ -148,6 +148,7 @@ public class ConfigStateValidator {
     List<ValidationError> errors = new ArrayList<>();
     errors.addAll(validateBrokerDisk(oldConfig, newConfig));
     errors.addAll(validateBrokerHeap(newConfig));
+    errors.addAll(validateBrokerJvmProfile(newConfig));
 
     return errors;
   }
@@ -171,19 +172,71 @@ public class ConfigStateValidator {
               "Changing this value (from " + oldDiskType + " to " + newDiskType + ") is not supported."));
     }
 
+    final List<VolumeConfig> oldVolumes = getConfiguredVolumes(oldConfig);
+    final List<VolumeConfig> newVolumes = getConfiguredVolumes(newConfig);
+
+    if (!oldVolumes.equals(newVolumes)) {
+      errors.add(new ValidationError("volumes",
+              "Changing this value (from " + oldVolumes + " to " + newVolumes + ") is not supported."));
+    }
+
+    for (VolumeConfig volume : newVolumes) {
+      if (!"ROOT".equals(volume.getType()) && !"MOUNT".equals(volume.getType())) {
+        errors.add(new ValidationError("volumes",
+                "Volume type must be ROOT or MOUNT: " + volume));
+      }
+    }
+
+    return errors;
+  }
+
+  private static List<VolumeConfig> getConfiguredVolumes(BrokerConfiguration config) {
+    return config.getVolumes() == null ? Collections.emptyList() : config.getVolumes();
+  }
+
+  private List<ValidationError> validateBrokerJvmProfile(BrokerConfiguration newConfig) {
+    List<ValidationError> errors = new ArrayList<>();
+
+    try {
+      JvmProfile.parse(newConfig.getJvmProfile());
+    } catch (IllegalArgumentException e) {
+      errors.add(new ValidationError("jvmProfile",
+              "Unknown JVM profile: " + newConfig.getJvmProfile()));
+    }
+
     return errors;
   }
 
   private List<ValidationError> validateBrokerHeap(BrokerConfiguration newConfig) {
     List<ValidationError> errors = new ArrayList<>();
 
+    final MemoryPlanner.Profile profile;
+    try {
+      profile = MemoryPlanner.parseProfile(newConfig.getMemoryProfile());
+    } catch (IllegalArgumentException e) {
+      errors.add(new ValidationError("memoryProfile",
+              "Unknown memory profile: " + newConfig.getMemoryProfile()));
+      return errors;
+    }
+
     // Validate whether BROKER_HEAP_MB <= BROKER_MEM
     final double mem = newConfig.getMem();
     final int brokerHeapSize = newConfig.getHeap().getSizeMb();
 
-    if (mem < brokerHeapSize) {
+    if (profile == MemoryPlanner.Profile.MANUAL && mem < brokerHeapSize) {
       errors.add(new ValidationError("mem",
               "BROKER_MEM should be greater than or equal to BROKER_HEAP_MB"));
+      return errors;
+    }
+
+    // Validate whether enough of BROKER_MEM is left to the page cache, which Kafka serves most reads from
+    final MemoryPlanner.Plan plan = MemoryPlanner.plan(newConfig);
+    final double minPageCacheMb = mem * profile.getMinPageCacheShare();
+
+    if (plan.getPageCacheMb() < minPageCacheMb) {
+      errors.add(new ValidationError("mem", String.format(
+              "BROKER_MEM leaves %dMB to the page cache (%s), at least %.0fMB is required",
+              plan.getPageCacheMb(), plan, minPageCacheMb)));
     }
 
     return errors;
@@ -0,0 +1,57 @@
+package com.mesosphere.dcos.kafka.config;
+
+/**
+ * Named sets of GC and JIT options for the broker JVM, which are passed to kafka-run-class.sh as
+ * KAFKA_JVM_PERFORMANCE_OPTS. The {@link #DEFAULT} profile leaves the options of kafka-run-class.sh unchanged.
+ *
+ * kafka-server-start.sh already enables GC logging, so profiles only add log rotation and safepoint pause times.
+ */
+public enum JvmProfile {
+  DEFAULT(null),
+  /** Short G1 pauses for latency-sensitive clients, at the cost of some throughput. */
+  LOW_LATENCY(
+      "-XX:+UseG1GC -XX:MaxGCPauseMillis=20 -XX:InitiatingHeapOccupancyPercent=35 -XX:G1HeapRegionSize=16M "
+      + "-XX:MetaspaceSize=96m -XX:MinMetaspaceFreeRatio=50 -XX:MaxMetaspaceFreeRatio=80 "
+      + "-XX:+ExplicitGCInvokesConcurrent -XX:+AlwaysPreTouch"),
+  /** The parallel collector, for batch workloads which tolerate longer pauses. */
+  THROUGHPUT(
+      "-XX:+UseParallelGC -XX:+UseParallelOldGC -XX:+UseAdaptiveSizePolicy -XX:+AlwaysPreTouch"),
+  /** G1 tuned for heaps of several GB, with larger regions and a longer pause target. */
+  LARGE_HEAP(
+      "-XX:+UseG1GC -XX:MaxGCPauseMillis=200 -XX:InitiatingHeapOccupancyPercent=45 -XX:G1HeapRegionSize=32M "
+      + "-XX:+ParallelRefProcEnabled -XX:+ExplicitGCInvokesConcurrent");
+
+  static final String COMMON_OPTS = "-server -Djava.awt.headless=true";
+  static final String GC_LOG_OPTS =
+      "-XX:+PrintGCApplicationStoppedTime -XX:+UseGCLogFileRotation -XX:NumberOfGCLogFiles=10 -XX:GCLogFileSize=100M";
+
+  private final String gcOpts;
+
+  JvmProfile(String gcOpts) {
+    this.gcOpts = gcOpts;
+  }
+
+  /**
+   * Returns the value of KAFKA_JVM_PERFORMANCE_OPTS, or null if kafka-run-class.sh's defaults should be used.
+   */
+  public String getPerformanceOpts() {
+    if (gcOpts == null) {
+      return null;
+    }
+
+    return String.join(" ", COMMON_OPTS, gcOpts, GC_LOG_OPTS);
+  }
+
+  /**
+   * Returns the named profile, or {@link #DEFAULT} if no profile is named.
+   *
+   * @throws IllegalArgumentException if the name isn't a known profile
+   */
+  public static JvmProfile parse(String name) {
+    if (name == null || name.isEmpty()) {
+      return DEFAULT;
+    }
+
+    return valueOf(name);
+  }
+}
@@ -14,6 +14,7 @@ import com.mesosphere.dcos.kafka.state.FrameworkState;
 import org.apache.mesos.curator.CuratorConfigStore;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Stores and manages multiple Kafka framework configurations in persistent storage.
@@ -23,6 +24,8 @@ public class KafkaConfigState {
   private static final Log log = LogFactory.getLog(KafkaConfigState.class);
 
   private final ConfigStore<KafkaSchedulerConfiguration> configStore;
+  private final ConfigCache configCache = new ConfigCache();
+  private final Map<UUID, String> restartHashes = new ConcurrentHashMap<>();
 
   /**
    * Creates a new Kafka config state manager based on the provided bootstrap information.
@@ -52,9 +55,22 @@ public class KafkaConfigState {
       return configStore;
   }
 
+  /**
+   * Returns the configuration stored against the provided version. Stored configurations are immutable, so they're
+   * cached after the first fetch and the returned instance may be shared with other callers, which must not modify it.
+   *
+   * @throws ConfigStoreException if the underlying storage failed to read
+   */
   public KafkaSchedulerConfiguration fetch(UUID version) throws ConfigStoreException {
+    KafkaSchedulerConfiguration config = configCache.get(version);
+    if (config != null) {
+      return config;
+    }
+
     try {
-      return configStore.fetch(version, KafkaSchedulerConfiguration.getFactoryInstance());
+      config = configStore.fetch(version, KafkaSchedulerConfiguration.getFactoryInstance());
+      configCache.put(version, config);
+      return config;
     } catch (ConfigStoreException e) {
       log.error("Unable to fetch version: " + version, e);
       throw new ConfigStoreException(e);
@@ -110,7 +126,9 @@ public class KafkaConfigState {
    */
   public UUID store(KafkaSchedulerConfiguration configuration) throws ConfigStoreException {
     try {
-      return configStore.store(configuration);
+      UUID configName = configStore.store(configuration);
+      restartHashes.put(configName, ConfigDiff.getRestartHash(configuration));
+      return configName;
     } catch (Exception e) {
       String msg = "Failure to store configurations.";
       log.error(msg, e);
@@ -131,14 +149,25 @@ public class KafkaConfigState {
     }
   }
 
+  /**
+   * Moves the brokers whose configs only differ from the Target config in changes which don't require a restart to the
+   * Target config, by comparing the {@link ConfigDiff#getRestartHash restart hashes} of their configs. Only the configs
+   * referenced by brokers are hashed, so the cost doesn't grow with the number of stored configs.
+   */
   public void syncConfigs(FrameworkState state) throws ConfigStoreException {
     try {
       UUID targetName = getTargetName();
-      List<String> duplicateConfigs = getDuplicateConfigs();
+      String targetHash = getRestartHash(targetName);
 
-      List<TaskInfo> taskInfos = state.getTaskInfos();
-      for (TaskInfo taskInfo : taskInfos) {
-        replaceDuplicateConfig(state, taskInfo, duplicateConfigs, targetName);
+      for (TaskInfo taskInfo : state.getTaskInfos()) {
+        String taskConfig = OfferUtils.getConfigName(taskInfo);
+        if (taskConfig != null
+            && !taskConfig.equals(targetName.toString())
+            && isDuplicateConfig(UUID.fromString(taskConfig), targetHash)) {
+          log.info("Duplicate config detected: " + taskConfig + ", moving " + taskInfo.getName()
+              + " to target config: " + targetName);
+          replaceConfig(state, taskInfo, targetName);
+        }
       }
     } catch (Exception ex) {
       log.error("Failed to synchronized configurations", ex);
@@ -146,6 +175,11 @@ public class KafkaConfigState {
     }
   }
 
+  /**
+   * Removes the stored configs which are neither the Target config nor referenced by a broker.
+   *
+   * @throws ConfigStoreException if the active configs can't be determined, in which case no config is removed
+   */
   public void cleanConfigs(FrameworkState state) throws ConfigStoreException {
     Set<UUID> activeConfigs = new HashSet<>();
     activeConfigs.add(getTargetName());
@@ -158,6 +192,8 @@ public class KafkaConfigState {
         try {
           log.info("Removing config: " + configName);
           configStore.clear(configName);
+          configCache.invalidate(configName);
+          restartHashes.remove(configName);
         } catch (ConfigStoreException e) {
           log.error("Unable to clear config: " + configName, e);
         }
@@ -165,7 +201,27 @@ public class KafkaConfigState {
     }
   }
 
-  private Set<UUID> getTaskConfigs(FrameworkState state) {
+  /**
+   * Fetches the Target config and the configs referenced by brokers into memory, so that they needn't be read from
+   * storage when the scheduler starts. Configs which fail to load are left to be read when they're needed.
+   */
+  public void preload(FrameworkState state) {
+    try {
+      Set<UUID> configNames = getTaskConfigs(state);
+      if (hasTarget()) {
+        configNames.add(getTargetName());
+      }
+
+      for (UUID configName : configNames) {
+        getRestartHash(configName);
+      }
+      log.info("Preloaded configs: " + configNames);
+    } catch (Exception e) {
+      log.warn("Failed to preload configs", e);
+    }
+  }
+
+  private Set<UUID> getTaskConfigs(FrameworkState state) throws ConfigStoreException {
     Set<UUID> activeConfigs = new HashSet<>();
 
     try {
@@ -179,59 +235,47 @@ public class KafkaConfigState {
       }
     } catch (Exception ex) {
       log.error("Failed to fetch configurations from TaskInfos", ex);
+      throw new ConfigStoreException(ex);
     }
 
     return activeConfigs;
   }
 
-  private void replaceDuplicateConfig(FrameworkState state, TaskInfo taskInfo, List<String> duplicateConfigs, UUID targetName)
-          throws ConfigStoreException {
+  private void replaceConfig(FrameworkState state, TaskInfo taskInfo, UUID targetName) throws ConfigStoreException {
     try {
-      String taskConfig = OfferUtils.getConfigName(taskInfo);
-
-      for (String duplicateConfig : duplicateConfigs) {
-        if (taskConfig.equals(duplicateConfig)) {
-          Labels labels = Labels.newBuilder()
-                  .addLabels(Label.newBuilder()
-                          .setKey(PersistentOfferRequirementProvider.CONFIG_TARGET_KEY)
-                          .setValue(targetName.toString()))
-                  .build();
-
-          TaskInfo newTaskInfo = TaskInfo.newBuilder(taskInfo).setLabels(labels).build();
-          state.recordTaskInfo(newTaskInfo);
-          return;
-        }
-      }
+      Labels labels = Labels.newBuilder()
+              .addLabels(Label.newBuilder()
+                      .setKey(PersistentOfferRequirementProvider.CONFIG_TARGET_KEY)
+                      .setValue(targetName.toString()))
+              .build();
+
+      TaskInfo newTaskInfo = TaskInfo.newBuilder(taskInfo).setLabels(labels).build();
+      state.recordTaskInfo(newTaskInfo);
     } catch (Exception ex) {
       log.error("Failed to replace duplicate configuration for taskInfo: " + taskInfo, ex);
       throw new ConfigStoreException(ex);
     }
   }
 
+  private boolean isDuplicateConfig(UUID configName, String targetHash) {
+    try {
+      return getRestartHash(configName).equals(targetHash);
+    } catch (ConfigStoreException e) {
+      log.warn("Unable to compare config: " + configName + " with the target config", e);
+      return false;
+    }
+  }
+
   /**
-   * Returns the list of configs which are duplicates of the current Target config.
+   * Returns the restart hash of a stored config. Configs stored by this scheduler are hashed as they're stored, others
+   * are hashed the first time they're compared.
    */
-  private List<String> getDuplicateConfigs() throws ConfigStoreException {
-    KafkaSchedulerConfiguration newTargetConfig = getTargetConfig();
-
-    List<String> duplicateConfigs = new ArrayList<String>();
-    final Collection<UUID> configNames = getConfigNames();
-    for (UUID configName : configNames) {
-      KafkaSchedulerConfiguration currTargetConfig = fetch(configName);
-
-      final BrokerConfiguration currBrokerConfig = currTargetConfig.getBrokerConfiguration();
-      final BrokerConfiguration newBrokerConfig = newTargetConfig.getBrokerConfiguration();
-
-      final KafkaConfiguration currKafkaConfig = currTargetConfig.getKafkaConfiguration();
-      final KafkaConfiguration newKafkaConfig = newTargetConfig.getKafkaConfiguration();
-
-      if (currBrokerConfig.equals(newBrokerConfig) &&
-          currKafkaConfig.equals(newKafkaConfig)) {
-        log.info("Duplicate config detected: " + configName);
-        duplicateConfigs.add(configName.toString());
-      }
+  private String getRestartHash(UUID configName) throws ConfigStoreException {
+    String hash = restartHashes.get(configName);
+    if (hash == null) {
+      hash = ConfigDiff.getRestartHash(fetch(configName));
+      restartHashes.put(configName, hash);
     }
-
-    return duplicateConfigs;
+    return hash;
   }
 }
@@ -0,0 +1,142 @@
+package com.mesosphere.dcos.kafka.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Divides a broker task's memory between the JVM heap, direct memory and the OS page cache.
+ *
+ * Kafka serves most reads from the page cache, so memory which isn't given to the JVM is as important to throughput
+ * as the heap itself. A {@link Profile} describes the expected workload, and the planner derives the heap size and
+ * direct memory limit from the task memory, leaving the rest to the page cache. The {@link Profile#MANUAL} profile
+ * uses the configured heap size as is.
+ */
+public class MemoryPlanner {
+  private static final Log log = LogFactory.getLog(MemoryPlanner.class);
+
+  static final int MIN_HEAP_MB = 256;
+
+  /**
+   * Expected broker workloads, each with the share of the task memory given to the heap and to direct memory, and the
+   * smallest share left to the page cache which the profile accepts.
+   */
+  public enum Profile {
+    /** The configured heap size is used, and direct memory isn't limited. */
+    MANUAL(0, 0, 0, 0.1),
+    /** Mixed produce and consume traffic, mostly served by consumers which keep up with producers. */
+    BALANCED(0.25, 6144, 0.1, 0.5),
+    /** Many consumers, or consumers reading behind the head of the log, which depend on the page cache. */
+    READ_HEAVY(0.2, 6144, 0.05, 0.6),
+    /** High produce rates or many partitions, which need more heap for request and replica fetch buffers. */
+    WRITE_HEAVY(0.35, 8192, 0.1, 0.4);
+
+    private final double heapShare;
+    private final int maxHeapMb;
+    private final double directMemoryShare;
+    private final double minPageCacheShare;
+
+    Profile(double heapShare, int maxHeapMb, double directMemoryShare, double minPageCacheShare) {
+      this.heapShare = heapShare;
+      this.maxHeapMb = maxHeapMb;
+      this.directMemoryShare = directMemoryShare;
+      this.minPageCacheShare = minPageCacheShare;
+    }
+
+    public double getMinPageCacheShare() {
+      return minPageCacheShare;
+    }
+  }
+
+  /**
+   * The memory, in MB, given to each consumer within a broker task.
+   */
+  public static class Plan {
+    private final Profile profile;
+    private final int heapMb;
+    private final int directMemoryMb;
+    private final int pageCacheMb;
+
+    private Plan(Profile profile, int heapMb, int directMemoryMb, int pageCacheMb) {
+      this.profile = profile;
+      this.heapMb = heapMb;
+      this.directMemoryMb = directMemoryMb;
+      this.pageCacheMb = pageCacheMb;
+    }
+
+    public Profile getProfile() {
+      return profile;
+    }
+
+    public int getHeapMb() {
+      return heapMb;
+    }
+
+    /**
+     * Returns the direct memory limit, or 0 if direct memory isn't limited.
+     */
+    public int getDirectMemoryMb() {
+      return directMemoryMb;
+    }
+
+    public int getPageCacheMb() {
+      return pageCacheMb;
+    }
+
+    /**
+     * Returns the JVM memory options for the broker process, which are passed as KAFKA_HEAP_OPTS.
+     */
+    public String getKafkaHeapOpts() {
+      String opts = String.format("-Xms%1$dM -Xmx%1$dM", heapMb);
+      if (directMemoryMb > 0) {
+        opts += String.format(" -XX:MaxDirectMemorySize=%dM", directMemoryMb);
+      }
+      return opts;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: heap=%dMB, directMemory=%dMB, pageCache=%dMB",
+          profile, heapMb, directMemoryMb, pageCacheMb);
+    }
+  }
+
+  private MemoryPlanner() {
+    // Do not instantiate.
+  }
+
+  public static Plan plan(BrokerConfiguration brokerConfig) {
+    int memMb = (int) brokerConfig.getMem();
+    Profile profile = getProfile(brokerConfig.getMemoryProfile());
+
+    if (profile == Profile.MANUAL) {
+      int heapMb = brokerConfig.getHeap().getSizeMb();
+      return new Plan(profile, heapMb, 0, memMb - heapMb);
+    }
+
+    int heapMb = Math.max(MIN_HEAP_MB, Math.min(profile.maxHeapMb, (int) (memMb * profile.heapShare)));
+    int directMemoryMb = (int) (memMb * profile.directMemoryShare);
+    return new Plan(profile, heapMb, directMemoryMb, memMb - heapMb - directMemoryMb);
+  }
+
+  /**
+   * Returns the named profile, or {@link Profile#MANUAL} if no profile is named.
+   *
+   * @throws IllegalArgumentException if the name isn't a known profile
+   */
+  public static Profile parseProfile(String name) {
+    if (name == null || name.isEmpty()) {
+      return Profile.MANUAL;
+    }
+
+    return Profile.valueOf(name);
+  }
+
+  private static Profile getProfile(String name) {
+    try {
+      return parseProfile(name);
+    } catch (IllegalArgumentException e) {
+      log.warn("Unknown memory profile: " + name + ", using " + Profile.MANUAL);
+      return Profile.MANUAL;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import org.apache.mesos.Protos.Attribute;
+import org.apache.mesos.Protos.Offer;
+
+import java.util.*;
+
+/**
+ * Index of the attributes of the agents which have sent offers.
+ *
+ * The index is updated once at the start of each offer cycle, so that placement decisions made during the cycle look
+ * up attribute values instead of rescanning the offers. Agent attributes don't change while an agent is registered, so
+ * agents which didn't send an offer in the latest cycle keep the values from their last offer.
+ */
+public class AgentAttributeIndex {
+  private final Map<String, Map<String, String>> attributesByAgent = new HashMap<>();
+  private Set<String> offeredAgentIds = Collections.emptySet();
+
+  public synchronized void update(List<Offer> offers) {
+    Set<String> agentIds = new HashSet<>();
+
+    for (Offer offer : offers) {
+      String agentId = offer.getSlaveId().getValue();
+      if (!agentIds.add(agentId)) {
+        continue;
+      }
+
+      Map<String, String> attributes = new HashMap<>();
+      for (Attribute attribute : offer.getAttributesList()) {
+        String value = toText(attribute);
+        if (value != null) {
+          attributes.put(attribute.getName(), value);
+        }
+      }
+      attributesByAgent.put(agentId, attributes);
+    }
+
+    offeredAgentIds = agentIds;
+  }
+
+  /**
+   * Returns the value of the attribute on the agent, or an empty Optional if the agent hasn't sent an offer or doesn't
+   * have the attribute.
+   */
+  public synchronized Optional<String> getValue(String agentId, String attributeName) {
+    Map<String, String> attributes = attributesByAgent.get(agentId);
+    if (attributes == null) {
+      return Optional.empty();
+    }
+
+    return Optional.ofNullable(attributes.get(attributeName));
+  }
+
+  /**
+   * Returns the ids of all agents which have sent an offer, with their value of the attribute, if any.
+   */
+  public synchronized Map<String, Optional<String>> getValues(String attributeName) {
+    Map<String, Optional<String>> values = new HashMap<>();
+    for (Map.Entry<String, Map<String, String>> entry : attributesByAgent.entrySet()) {
+      values.put(entry.getKey(), Optional.ofNullable(entry.getValue().get(attributeName)));
+    }
+    return values;
+  }
+
+  /**
+   * Returns the distinct values of the attribute on the agents which sent offers in the latest offer cycle.
+   */
+  public synchronized SortedSet<String> getOfferedValues(String attributeName) {
+    SortedSet<String> values = new TreeSet<>();
+    for (String agentId : offeredAgentIds) {
+      String value = attributesByAgent.get(agentId).get(attributeName);
+      if (value != null) {
+        values.add(value);
+      }
+    }
+    return values;
+  }
+
+  private static String toText(Attribute attribute) {
+    switch (attribute.getType()) {
+      case TEXT:
+        return attribute.getText().getValue();
+      case SCALAR:
+        return Double.toString(attribute.getScalar().getValue());
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.mesosphere.dcos.kafka.config.KafkaEnvConfigUtils;
+import com.mesosphere.dcos.kafka.state.FrameworkState;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.mesos.Protos.CommandInfo;
+import org.apache.mesos.Protos.Environment.Variable;
+import org.apache.mesos.Protos.SlaveID;
+import org.apache.mesos.Protos.TaskInfo;
+import org.apache.mesos.offer.PlacementStrategy;
+
+import java.util.*;
+
+/**
+ * Strategy that spreads the tasks evenly across the values of an agent attribute, such as rack or zone, and separates
+ * them to separate nodes.
+ *
+ * The attribute value is selected before the task is built by {@link #selectValue(String)}, and is carried by the task
+ * as its broker.rack, so the value of a placed broker is known even when its agent hasn't sent an offer recently.
+ * Agents are avoided unless their attribute value matches the broker's.
+ */
+public class AttributePlacementStrategy implements PlacementStrategy {
+  private static final Log log = LogFactory.getLog(AttributePlacementStrategy.class);
+
+  public static final String BROKER_RACK_ENV = KafkaEnvConfigUtils.toEnvName("broker.rack");
+
+  private final FrameworkState state;
+  private final AgentAttributeIndex attributeIndex;
+  private final String attributeName;
+
+  public AttributePlacementStrategy(FrameworkState state, AgentAttributeIndex attributeIndex, String attributeName) {
+    this.state = state;
+    this.attributeIndex = attributeIndex;
+    this.attributeName = attributeName;
+  }
+
+  /**
+   * Selects the attribute value, among those offered in the latest offer cycle, which the fewest other brokers are
+   * placed in.
+   *
+   * @return the selected value, or an empty Optional if no offered agent has the attribute
+   */
+  public Optional<String> selectValue(String taskName) {
+    Map<String, Integer> brokerCounts = new TreeMap<>();
+    for (String value : attributeIndex.getOfferedValues(attributeName)) {
+      brokerCounts.put(value, 0);
+    }
+
+    if (brokerCounts.isEmpty()) {
+      log.warn("No offered agent has the attribute: " + attributeName);
+      return Optional.empty();
+    }
+
+    try {
+      for (TaskInfo taskInfo : state.getTaskInfos()) {
+        if (taskInfo.getName().equals(taskName)) {
+          continue;
+        }
+
+        Optional<String> value = getValue(taskInfo);
+        if (value.isPresent() && brokerCounts.containsKey(value.get())) {
+          brokerCounts.put(value.get(), brokerCounts.get(value.get()) + 1);
+        }
+      }
+    } catch (Exception ex) {
+      log.error("Failed to retrieve TaskInfos", ex);
+    }
+
+    String selected = null;
+    for (Map.Entry<String, Integer> entry : brokerCounts.entrySet()) {
+      if (selected == null || entry.getValue() < brokerCounts.get(selected)) {
+        selected = entry.getKey();
+      }
+    }
+
+    log.info(String.format("Placing %s in %s '%s', brokers by %s: %s",
+        taskName, attributeName, selected, attributeName, brokerCounts));
+    return Optional.of(selected);
+  }
+
+  public List<SlaveID> getAgentsToAvoid(TaskInfo taskInfo) {
+    List<SlaveID> agents = null;
+
+    try {
+      agents = getAgentsToAvoidInternal(taskInfo);
+    } catch (Exception ex) {
+      log.error("Failed to retrieve TaskInfos", ex);
+    }
+
+    return agents;
+  }
+
+  public List<SlaveID> getAgentsToColocate(TaskInfo taskInfo) {
+    return null;
+  }
+
+  private List<SlaveID> getAgentsToAvoidInternal(TaskInfo taskInfo) throws Exception {
+    Set<String> agentsToAvoid = new HashSet<>();
+
+    for (TaskInfo otherInfo : state.getTaskInfos()) {
+      if (!otherInfo.getName().equals(taskInfo.getName())) {
+        agentsToAvoid.add(otherInfo.getSlaveId().getValue());
+      }
+    }
+
+    Optional<String> value = getRack(taskInfo);
+    if (value.isPresent()) {
+      for (Map.Entry<String, Optional<String>> entry : attributeIndex.getValues(attributeName).entrySet()) {
+        if (!value.equals(entry.getValue())) {
+          agentsToAvoid.add(entry.getKey());
+        }
+      }
+    }
+
+    log.info(String.format("Avoiding %d agents for %s in %s '%s'",
+        agentsToAvoid.size(), taskInfo.getName(), attributeName, value.orElse("")));
+
+    List<SlaveID> agents = new ArrayList<>();
+    for (String agentId : agentsToAvoid) {
+      agents.add(SlaveID.newBuilder().setValue(agentId).build());
+    }
+    return agents;
+  }
+
+  /**
+   * Returns the broker's attribute value, falling back to the value of its agent for brokers placed without one.
+   */
+  private Optional<String> getValue(TaskInfo taskInfo) {
+    Optional<String> rack = getRack(taskInfo);
+    if (rack.isPresent()) {
+      return rack;
+    }
+
+    return attributeIndex.getValue(taskInfo.getSlaveId().getValue(), attributeName);
+  }
+
+  static Optional<String> getRack(TaskInfo taskInfo) {
+    try {
+      CommandInfo commandInfo = CommandInfo.parseFrom(taskInfo.getData());
+      for (Variable variable : commandInfo.getEnvironment().getVariablesList()) {
+        if (variable.getName().equals(BROKER_RACK_ENV)) {
+          return Optional.of(variable.getValue());
+        }
+      }
+    } catch (InvalidProtocolBufferException e) {
+      log.warn("Unable to parse CommandInfo of task: " + taskInfo.getName());
+    }
+
+    return Optional.empty();
+  }
+}
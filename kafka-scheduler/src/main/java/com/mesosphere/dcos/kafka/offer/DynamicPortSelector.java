@@ -0,0 +1,140 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.Resource;
+import org.apache.mesos.Protos.Value.Range;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects dynamic ports for brokers and their executors from the port ranges offered in the current offer cycle.
+ *
+ * OfferRequirements are built with fixed ports before they're evaluated against the offers of the cycle, so a port
+ * picked at random is often missing from the offered ranges and the requirement can't be satisfied. Instead, each port
+ * is chosen to be available on as many offered agents as possible, so the requirement is satisfied by the first offer
+ * with sufficient resources. Random ports are used when no offered agent has a free port in the dynamic range.
+ */
+public class DynamicPortSelector {
+  private static final Log log = LogFactory.getLog(DynamicPortSelector.class);
+
+  static final long MIN_PORT = 9092;
+  static final long PORT_COUNT = 1000;
+
+  private Map<String, List<Range>> rangesByAgent = Collections.emptyMap();
+
+  /**
+   * Indexes the unreserved port ranges of the offers received in an offer cycle, replacing those of earlier cycles.
+   */
+  public synchronized void update(List<Offer> offers) {
+    Map<String, List<Range>> ranges = new HashMap<>();
+
+    for (Offer offer : offers) {
+      List<Range> agentRanges = ranges.computeIfAbsent(offer.getSlaveId().getValue(), agentId -> new ArrayList<>());
+      for (Resource resource : offer.getResourcesList()) {
+        if (resource.getName().equals("ports") && resource.hasRanges() && !resource.hasReservation()) {
+          agentRanges.addAll(resource.getRanges().getRangeList());
+        }
+      }
+    }
+
+    rangesByAgent = ranges;
+  }
+
+  /**
+   * Selects ports which are available together on as many agents offered in the latest cycle as possible.
+   *
+   * @param count the number of distinct ports to select
+   * @param requiredPorts ports which the task also requires, and which are therefore neither selected nor available
+   *     on agents which don't offer them
+   */
+  public synchronized List<Long> select(int count, Collection<Long> requiredPorts) {
+    return select(rangesByAgent.values(), count, requiredPorts);
+  }
+
+  /**
+   * Selects ports which the agent offered in the latest cycle.
+   */
+  public synchronized List<Long> select(String agentId, int count, Collection<Long> requiredPorts) {
+    List<Range> ranges = rangesByAgent.get(agentId);
+    return select(
+        ranges == null ? Collections.<List<Range>>emptyList() : Collections.singletonList(ranges),
+        count,
+        requiredPorts);
+  }
+
+  private static List<Long> select(Collection<List<Range>> agentRanges, int count, Collection<Long> requiredPorts) {
+    List<List<Range>> candidates = new ArrayList<>();
+    for (List<Range> ranges : agentRanges) {
+      if (containsAll(ranges, requiredPorts)) {
+        candidates.add(ranges);
+      }
+    }
+
+    Set<Long> excluded = new HashSet<>(requiredPorts);
+    List<Long> ports = new ArrayList<>();
+    while (ports.size() < count) {
+      long bestPort = -1;
+      int bestCoverage = 0;
+      for (long port = MIN_PORT; port < MIN_PORT + PORT_COUNT; port++) {
+        if (excluded.contains(port)) {
+          continue;
+        }
+
+        int coverage = 0;
+        for (List<Range> ranges : candidates) {
+          if (contains(ranges, port)) {
+            coverage++;
+          }
+        }
+
+        if (coverage > bestCoverage) {
+          bestPort = port;
+          bestCoverage = coverage;
+        }
+      }
+
+      if (bestPort < 0) {
+        bestPort = getRandomPort(excluded);
+        log.info("No offered agent has a free port in the dynamic range, selected random port: " + bestPort);
+      } else {
+        final long selected = bestPort;
+        candidates.removeIf(ranges -> !contains(ranges, selected));
+        log.info(String.format("Selected port %d, offered by %d agents", bestPort, bestCoverage));
+      }
+
+      ports.add(bestPort);
+      excluded.add(bestPort);
+    }
+
+    return ports;
+  }
+
+  private static long getRandomPort(Set<Long> excluded) {
+    long port;
+    do {
+      port = MIN_PORT + ThreadLocalRandom.current().nextLong(0, PORT_COUNT);
+    } while (excluded.contains(port));
+    return port;
+  }
+
+  private static boolean containsAll(List<Range> ranges, Collection<Long> ports) {
+    for (Long port : ports) {
+      if (!contains(ranges, port)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean contains(List<Range> ranges, long port) {
+    for (Range range : ranges) {
+      if (range.getBegin() <= port && port <= range.getEnd()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,60 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import com.mesosphere.dcos.kafka.state.FrameworkState;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.Resource;
+import org.apache.mesos.offer.DestroyOfferRecommendation;
+import org.apache.mesos.offer.OfferRecommendation;
+import org.apache.mesos.offer.UnreserveOfferRecommendation;
+import org.apache.mesos.state.StateStoreException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds reserved resources and persistent volumes in offers which were created by this framework but are no longer
+ * used by any of its tasks, and recommends destroying and unreserving them.
+ *
+ * Unlike {@link org.apache.mesos.offer.ResourceCleaner}, which must be rebuilt from every TaskInfo in the state store
+ * to pick up changes, this cleaner may be kept for the lifetime of the scheduler: it checks offered resources against
+ * the reservation and persistence ids which {@link FrameworkState} indexes as TaskInfos are recorded.
+ */
+public class KafkaResourceCleaner {
+  private static final Log log = LogFactory.getLog(KafkaResourceCleaner.class);
+
+  private final FrameworkState frameworkState;
+
+  public KafkaResourceCleaner(FrameworkState frameworkState) {
+    this.frameworkState = frameworkState;
+  }
+
+  public List<OfferRecommendation> evaluate(List<Offer> offers) throws StateStoreException {
+    List<OfferRecommendation> recommendations = new ArrayList<>();
+
+    for (Offer offer : offers) {
+      for (Resource resource : offer.getResourcesList()) {
+        String resourceId = OfferUtils.getResourceId(resource);
+        if (resourceId == null) {
+          // Not reserved by this framework
+          continue;
+        }
+
+        String persistenceId = OfferUtils.getPersistenceId(resource);
+        if (persistenceId != null && !frameworkState.isExpectedPersistenceId(persistenceId)) {
+          log.info(String.format("Destroying unexpected volume %s in offer %s",
+              persistenceId, offer.getId().getValue()));
+          recommendations.add(new DestroyOfferRecommendation(offer, resource));
+          recommendations.add(new UnreserveOfferRecommendation(offer, resource));
+        } else if (!frameworkState.isExpectedResourceId(resourceId)) {
+          log.info(String.format("Unreserving unexpected resource %s in offer %s",
+              resourceId, offer.getId().getValue()));
+          recommendations.add(new UnreserveOfferRecommendation(offer, resource));
+        }
+      }
+    }
+
+    return recommendations;
+  }
+}
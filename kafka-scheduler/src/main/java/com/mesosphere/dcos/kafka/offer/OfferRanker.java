@@ -0,0 +1,119 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import com.mesosphere.dcos.kafka.state.FrameworkState;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.Resource;
+import org.apache.mesos.Protos.TaskInfo;
+
+import java.util.*;
+
+/**
+ * Orders the offers of an offer cycle from the least to the most contended agent.
+ *
+ * Offers are evaluated against an OfferRequirement in order, and the first offer which satisfies it is accepted, so
+ * ranking the offers before they're evaluated places brokers on the best agent offered in the cycle. Offers are scored
+ * by their free CPU, memory and, when brokers use MOUNT volumes, largest MOUNT disk, each relative to the largest in
+ * the cycle, and are penalized for every broker already running on their agent.
+ */
+public class OfferRanker {
+  private static final Log log = LogFactory.getLog(OfferRanker.class);
+
+  static final double CPU_WEIGHT = 1.0;
+  static final double MEM_WEIGHT = 1.0;
+  static final double MOUNT_DISK_WEIGHT = 1.0;
+  static final double BROKER_PENALTY = 1.0;
+
+  private final FrameworkState state;
+
+  public OfferRanker(FrameworkState state) {
+    this.state = state;
+  }
+
+  /**
+   * Returns the offers ordered by descending score. Offers with equal scores keep their order.
+   *
+   * @param preferMountDisk whether offers with more MOUNT disk are preferred
+   */
+  public List<Offer> rank(List<Offer> offers, boolean preferMountDisk) {
+    if (offers.size() < 2) {
+      return offers;
+    }
+
+    Map<String, Integer> brokersByAgent = getBrokersByAgent();
+
+    double maxCpus = 0;
+    double maxMem = 0;
+    double maxMountDisk = 0;
+    for (Offer offer : offers) {
+      maxCpus = Math.max(maxCpus, getScalar(offer, "cpus"));
+      maxMem = Math.max(maxMem, getScalar(offer, "mem"));
+      maxMountDisk = Math.max(maxMountDisk, getLargestMountDisk(offer));
+    }
+
+    Map<Offer, Double> scores = new IdentityHashMap<>();
+    for (Offer offer : offers) {
+      double score = CPU_WEIGHT * ratio(getScalar(offer, "cpus"), maxCpus)
+          + MEM_WEIGHT * ratio(getScalar(offer, "mem"), maxMem)
+          - BROKER_PENALTY * brokersByAgent.getOrDefault(offer.getSlaveId().getValue(), 0);
+      if (preferMountDisk) {
+        score += MOUNT_DISK_WEIGHT * ratio(getLargestMountDisk(offer), maxMountDisk);
+      }
+      scores.put(offer, score);
+    }
+
+    List<Offer> ranked = new ArrayList<>(offers);
+    ranked.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+
+    if (log.isDebugEnabled()) {
+      for (Offer offer : ranked) {
+        log.debug(String.format("Offer %s on agent %s scored %.3f",
+            offer.getId().getValue(), offer.getHostname(), scores.get(offer)));
+      }
+    }
+
+    return ranked;
+  }
+
+  private Map<String, Integer> getBrokersByAgent() {
+    Map<String, Integer> brokersByAgent = new HashMap<>();
+
+    try {
+      for (TaskInfo taskInfo : state.getTaskInfos()) {
+        brokersByAgent.merge(taskInfo.getSlaveId().getValue(), 1, Integer::sum);
+      }
+    } catch (Exception ex) {
+      log.error("Failed to retrieve TaskInfos, ranking offers without co-tenancy", ex);
+    }
+
+    return brokersByAgent;
+  }
+
+  private static double getScalar(Offer offer, String name) {
+    double value = 0;
+    for (Resource resource : offer.getResourcesList()) {
+      if (resource.getName().equals(name) && resource.hasScalar()) {
+        value += resource.getScalar().getValue();
+      }
+    }
+    return value;
+  }
+
+  private static double getLargestMountDisk(Offer offer) {
+    double largest = 0;
+    for (Resource resource : offer.getResourcesList()) {
+      if (resource.getName().equals("disk")
+          && resource.hasDisk()
+          && resource.getDisk().hasSource()
+          && resource.getDisk().getSource().getType() == Resource.DiskInfo.Source.Type.MOUNT) {
+        largest = Math.max(largest, resource.getScalar().getValue());
+      }
+    }
+    return largest;
+  }
+
+  private static double ratio(double value, double max) {
+    return max > 0 ? value / max : 0;
+  }
+}
@@ -1,9 +1,15 @@
 package com.mesosphere.dcos.kafka.offer;
 
 import org.apache.mesos.Protos.Label;
+import org.apache.mesos.Protos.Resource;
 import org.apache.mesos.Protos.TaskInfo;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class OfferUtils {
+  private static final String RESOURCE_ID_KEY = "resource_id";
+
   public static String getConfigName(TaskInfo taskInfo) {
     for (Label label : taskInfo.getLabels().getLabelsList()) {
       if (label.getKey().equals("config_target")) {
@@ -21,4 +27,43 @@ public class OfferUtils {
   public static int nameToId(String brokerName) {
     return Integer.parseInt(brokerName.substring(brokerName.indexOf('-') + 1));
   }
+
+  /**
+   * Returns the reservation id which the framework labelled the provided Resource with, or {@code null} if it has none.
+   */
+  public static String getResourceId(Resource resource) {
+    if (!resource.hasReservation() || !resource.getReservation().hasLabels()) {
+      return null;
+    }
+
+    for (Label label : resource.getReservation().getLabels().getLabelsList()) {
+      if (label.getKey().equals(RESOURCE_ID_KEY)) {
+        return label.getValue();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the persistence id of the provided Resource, or {@code null} if it isn't a persistent volume.
+   */
+  public static String getPersistenceId(Resource resource) {
+    if (resource.hasDisk() && resource.getDisk().hasPersistence()) {
+      return resource.getDisk().getPersistence().getId();
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns all Resources used by the provided Task, including those used by its Executor.
+   */
+  public static List<Resource> getAllResources(TaskInfo taskInfo) {
+    List<Resource> resources = new ArrayList<>(taskInfo.getResourcesList());
+    if (taskInfo.hasExecutor()) {
+      resources.addAll(taskInfo.getExecutor().getResourcesList());
+    }
+    return resources;
+  }
 }
@@ -22,7 +22,6 @@ import org.apache.mesos.offer.ResourceUtils;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 public class PersistentOfferRequirementProvider implements KafkaOfferRequirementProvider {
@@ -30,20 +29,32 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
 
   public static final String CONFIG_ID_KEY = "CONFIG_ID";
   public static final String CONFIG_TARGET_KEY = "config_target";
+  public static final String KAFKA_JVM_PERFORMANCE_OPTS = "KAFKA_JVM_PERFORMANCE_OPTS";
 
   private final KafkaConfigState configState;
   private final FrameworkState schedulerState;
   private final ClusterState clusterState;
   private final PlacementStrategyManager placementStrategyManager;
+  private final DynamicPortSelector portSelector;
 
   public PersistentOfferRequirementProvider(
       FrameworkState schedulerState,
       KafkaConfigState configState,
       ClusterState clusterState) {
+    this(schedulerState, configState, clusterState, new AgentAttributeIndex(), new DynamicPortSelector());
+  }
+
+  public PersistentOfferRequirementProvider(
+      FrameworkState schedulerState,
+      KafkaConfigState configState,
+      ClusterState clusterState,
+      AgentAttributeIndex attributeIndex,
+      DynamicPortSelector portSelector) {
     this.configState = configState;
     this.schedulerState = schedulerState;
     this.clusterState = clusterState;
-    this.placementStrategyManager = new PlacementStrategyManager(schedulerState);
+    this.placementStrategyManager = new PlacementStrategyManager(schedulerState, attributeIndex);
+    this.portSelector = portSelector;
   }
 
   @Override
@@ -94,7 +105,7 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
     taskBuilder = updateMem(taskBuilder, brokerConfig);
     taskBuilder = updateDisk(taskBuilder, brokerConfig);
     taskBuilder = updateCmd(taskBuilder, configName);
-    taskBuilder = updateKafkaHeapOpts(taskBuilder, brokerConfig);
+    taskBuilder = updateKafkaJvmOpts(taskBuilder, brokerConfig);
 
     final ExecutorInfo.Builder updatedExecutor = ExecutorInfo.newBuilder(existingExecutor);
     updatedExecutor.clearExecutorId();
@@ -119,21 +130,20 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
 
     if (port == 0) {
       if (dynamicValue != null && dynamicValue.equals(Boolean.toString(false))) {
-        // The previous configuration used a static port, so we should generate a new dynamic port.
-        port = getDynamicPort();
+        // The previous configuration used a static port, so we should select a new dynamic port on the broker's agent.
+        port = portSelector.select(taskInfo.getSlaveId().getValue(), 1, Collections.emptyList()).get(0);
         environmentMap.put(portVar, Long.toString(port));
       } else {
         port = Long.parseLong(environmentMap.get(portVar));
       }
 
       environmentMap.put(dynamicVar, Boolean.toString(true));
-      brokerConfig.setPort(port);
     } else {
       environmentMap.put(portVar, Long.toString(port));
       environmentMap.put(dynamicVar, Boolean.toString(false));
     }
 
-    taskBuilder = updatePort(taskBuilder, brokerConfig);
+    taskBuilder = updatePort(taskBuilder, port);
 
     cmdBuilder.clearEnvironment();
 
@@ -162,11 +172,26 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
     }
   }
 
-  private String getKafkaHeapOpts(HeapConfig heapConfig) {
-    return String.format("-Xms%1$dM -Xmx%1$dM", heapConfig.getSizeMb());
+  private String getKafkaHeapOpts(BrokerConfiguration brokerConfig) {
+    MemoryPlanner.Plan plan = MemoryPlanner.plan(brokerConfig);
+    log.info("Planned broker memory: " + plan);
+    return plan.getKafkaHeapOpts();
+  }
+
+  /**
+   * Sets KAFKA_JVM_PERFORMANCE_OPTS for the configured JVM profile, or removes it so that kafka-run-class.sh's defaults
+   * are used.
+   */
+  private void putKafkaJvmPerformanceOpts(Map<String, String> envMap, BrokerConfiguration brokerConfig) {
+    String performanceOpts = JvmProfile.parse(brokerConfig.getJvmProfile()).getPerformanceOpts();
+    if (performanceOpts == null) {
+      envMap.remove(KAFKA_JVM_PERFORMANCE_OPTS);
+    } else {
+      envMap.put(KAFKA_JVM_PERFORMANCE_OPTS, performanceOpts);
+    }
   }
 
-  private TaskInfo.Builder updateKafkaHeapOpts(
+  private TaskInfo.Builder updateKafkaJvmOpts(
       TaskInfo.Builder taskBuilder, BrokerConfiguration brokerConfig)
           throws InvalidRequirementException {
     try {
@@ -174,7 +199,8 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
       final Environment oldEnvironment = oldCommand.getEnvironment();
 
       final Map<String, String> newEnvMap = fromEnvironmentToMap(oldEnvironment);
-      newEnvMap.put("KAFKA_HEAP_OPTS", getKafkaHeapOpts(brokerConfig.getHeap()));
+      newEnvMap.put("KAFKA_HEAP_OPTS", getKafkaHeapOpts(brokerConfig));
+      putKafkaJvmPerformanceOpts(newEnvMap, brokerConfig);
 
       final CommandInfo.Builder newCommandBuilder = CommandInfo.newBuilder(oldCommand);
       newCommandBuilder.clearEnvironment();
@@ -186,7 +212,7 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
       log.info("Updated env map:" + newEnvMap);
       return taskBuilder;
     } catch (InvalidProtocolBufferException e) {
-      throw new InvalidRequirementException("Couldn't update heap opts", e);
+      throw new InvalidRequirementException("Couldn't update JVM opts", e);
     }
   }
 
@@ -211,11 +237,28 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
   }
 
   private TaskInfo.Builder updateDisk(TaskInfo.Builder taskBuilder, BrokerConfiguration brokerConfig) {
-    return updateValue(taskBuilder, "disk", scalar(brokerConfig.getDisk()));
+    // Volumes are matched to the configured volumes by position. Any volume without a configured counterpart is kept
+    // unchanged, so that no reserved volume is dropped by an update.
+    List<VolumeConfig> volumes = brokerConfig.getLogVolumes();
+    List<Resource> updatedResources = new ArrayList<Resource>();
+    int volumeIndex = 0;
+
+    for (Resource resource : taskBuilder.getResourcesList()) {
+      if ("disk".equals(resource.getName()) && volumeIndex < volumes.size()) {
+        updatedResources.add(ResourceUtils.setValue(resource, scalar(volumes.get(volumeIndex).getSize())));
+        volumeIndex++;
+      } else {
+        updatedResources.add(resource);
+      }
+    }
+
+    taskBuilder.clearResources();
+    taskBuilder.addAllResources(updatedResources);
+    return taskBuilder;
   }
 
-  private TaskInfo.Builder updatePort(TaskInfo.Builder taskBuilder, BrokerConfiguration brokerConfig) {
-    return updateValue(taskBuilder, "ports", range(brokerConfig.getPort(), brokerConfig.getPort()));
+  private TaskInfo.Builder updatePort(TaskInfo.Builder taskBuilder, Long port) {
+    return updateValue(taskBuilder, "ports", range(port, port));
   }
 
   private TaskInfo.Builder updateValue(TaskInfo.Builder taskBuilder, String name, Value updatedValue) {
@@ -278,29 +321,36 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
     }
   }
 
-  private static Long getDynamicPort() {
-    return 9092 + ThreadLocalRandom.current().nextLong(0, 1000);
-  }
-
   private OfferRequirement getNewOfferRequirementInternal(String configName, int brokerId)
           throws InvalidRequirementException, IOException, URISyntaxException {
     log.info("Getting new OfferRequirement for: " + configName);
     String brokerName = OfferUtils.brokerIdToTaskName(brokerId);
 
-    String containerPath = "kafka-volume-" + UUID.randomUUID();
+    List<String> containerPaths = new ArrayList<>();
+    List<String> logDirs = new ArrayList<>();
 
     KafkaSchedulerConfiguration config = configState.fetch(UUID.fromString(configName));
     log.warn("KafkaSchedulerConfiguration: " + config);
     BrokerConfiguration brokerConfig = config.getBrokerConfiguration();
+    for (int i = 0; i < brokerConfig.getLogVolumes().size(); i++) {
+      String containerPath = "kafka-volume-" + UUID.randomUUID();
+      containerPaths.add(containerPath);
+      logDirs.add(containerPath + "/" + brokerName);
+    }
     ExecutorConfiguration executorConfig = config.getExecutorConfiguration();
     ZookeeperConfiguration zkConfig = config.getZookeeperConfig();
     KafkaHealthCheckConfiguration healthCheckConfiguration = config.getHealthCheckConfiguration();
 
     Long port = brokerConfig.getPort();
     Boolean isDynamicPort = false;
+    Long adminPort;
     if (port == 0) {
-      port = getDynamicPort();
+      List<Long> ports = portSelector.select(2, Collections.emptyList());
+      port = ports.get(0);
+      adminPort = ports.get(1);
       isDynamicPort = true;
+    } else {
+      adminPort = portSelector.select(1, Collections.singletonList(port)).get(0);
     }
 
     String role = config.getServiceConfiguration().getRole();
@@ -319,6 +369,12 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
 
     log.info("Configuring kafkaLaunchCommand as: " + kafkaLaunchCommand);
 
+    PlacementStrategy placementStrategy = placementStrategyManager.getPlacementStrategy(config);
+    Optional<String> brokerRack = Optional.empty();
+    if (placementStrategy instanceof AttributePlacementStrategy) {
+      brokerRack = ((AttributePlacementStrategy) placementStrategy).selectValue(brokerName);
+    }
+
     Map<String, String> envMap = new HashMap<>();
     envMap.put("TASK_TYPE", KafkaTask.BROKER.name());
     envMap.put("FRAMEWORK_NAME", frameworkName);
@@ -327,11 +383,15 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
     envMap.put(CONFIG_ID_KEY, configName);
     envMap.put(KafkaEnvConfigUtils.toEnvName("zookeeper.connect"), config.getFullKafkaZookeeperPath());
     envMap.put(KafkaEnvConfigUtils.toEnvName("broker.id"), Integer.toString(brokerId));
-    envMap.put(KafkaEnvConfigUtils.toEnvName("log.dirs"), containerPath + "/" + brokerName);
+    envMap.put(KafkaEnvConfigUtils.toEnvName("log.dirs"), Joiner.on(",").join(logDirs));
     envMap.put(KafkaEnvConfigUtils.toEnvName("listeners"), "PLAINTEXT://:" + port);
     envMap.put(KafkaEnvConfigUtils.toEnvName("port"), Long.toString(port));
     envMap.put("KAFKA_DYNAMIC_BROKER_PORT", Boolean.toString(isDynamicPort));
-    envMap.put("KAFKA_HEAP_OPTS", getKafkaHeapOpts(brokerConfig.getHeap()));
+    envMap.put("KAFKA_HEAP_OPTS", getKafkaHeapOpts(brokerConfig));
+    putKafkaJvmPerformanceOpts(envMap, brokerConfig);
+    if (brokerRack.isPresent()) {
+      envMap.put(AttributePlacementStrategy.BROKER_RACK_ENV, brokerRack.get());
+    }
     CommandInfo brokerTask = CommandInfo.newBuilder()
             .setValue(kafkaLaunchCommand)
             .setEnvironment(environment(envMap))
@@ -339,7 +399,6 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
 
     // Launch command for custom executor
     final String executorCommand = "./executor/bin/kafka-executor server ./executor/conf/executor.yml";
-    Long adminPort = getDynamicPort();
     Map<String, String> executorEnvMap = new HashMap<>();
     executorEnvMap.put("JAVA_HOME", "jre1.8.0_91");
     executorEnvMap.put("FRAMEWORK_NAME", frameworkName);
@@ -392,18 +451,23 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
               .setBegin(port)
               .setEnd(port).build())));
 
-    if (brokerConfig.getDiskType().equals("MOUNT")) {
-      taskBuilder.addResources(ResourceUtils.getDesiredMountVolume(
-            role,
-            principal,
-            brokerConfig.getDisk(),
-            containerPath));
-    } else {
-      taskBuilder.addResources(ResourceUtils.getDesiredRootVolume(
-            role,
-            principal,
-            brokerConfig.getDisk(),
-            containerPath));
+    // Each volume is reserved separately, so that Kafka can spread partitions across the devices backing them
+    List<VolumeConfig> volumes = brokerConfig.getLogVolumes();
+    for (int i = 0; i < volumes.size(); i++) {
+      VolumeConfig volume = volumes.get(i);
+      if ("MOUNT".equals(volume.getType())) {
+        taskBuilder.addResources(ResourceUtils.getDesiredMountVolume(
+              role,
+              principal,
+              volume.getSize(),
+              containerPaths.get(i)));
+      } else {
+        taskBuilder.addResources(ResourceUtils.getDesiredRootVolume(
+              role,
+              principal,
+              volume.getSize(),
+              containerPaths.get(i)));
+      }
     }
 
     taskBuilder.setLabels(labels(CONFIG_TARGET_KEY, configName));
@@ -448,7 +512,6 @@ public class PersistentOfferRequirementProvider implements KafkaOfferRequirement
 
     final ExecutorInfo executorInfo = executorBuilder.build();
 
-    PlacementStrategy placementStrategy = placementStrategyManager.getPlacementStrategy(config);
     List<SlaveID> avoidAgents = placementStrategy.getAgentsToAvoid(taskInfo);
     List<SlaveID> colocateAgents = placementStrategy.getAgentsToColocate(taskInfo);
 
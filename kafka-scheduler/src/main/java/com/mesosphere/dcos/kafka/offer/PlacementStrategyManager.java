@@ -12,9 +12,11 @@ class PlacementStrategyManager {
   private static final Log log = LogFactory.getLog(PlacementStrategy.class);
 
   private final FrameworkState frameworkState;
+  private final AgentAttributeIndex attributeIndex;
 
-  PlacementStrategyManager(FrameworkState frameworkState) {
+  PlacementStrategyManager(FrameworkState frameworkState, AgentAttributeIndex attributeIndex) {
     this.frameworkState = frameworkState;
+    this.attributeIndex = attributeIndex;
   }
 
   public PlacementStrategy getPlacementStrategy(KafkaSchedulerConfiguration config) {
@@ -29,6 +31,12 @@ class PlacementStrategyManager {
       case "NODE":
         log.info("Returning NODE strategy");
         return new NodePlacementStrategy(frameworkState);
+      case "ATTRIBUTE":
+        log.info("Returning ATTRIBUTE strategy");
+        return new AttributePlacementStrategy(
+            frameworkState,
+            attributeIndex,
+            config.getServiceConfiguration().getPlacementAttribute());
       default:
         log.info("Returning DEFAULT strategy");
         return new AnyPlacementStrategy();
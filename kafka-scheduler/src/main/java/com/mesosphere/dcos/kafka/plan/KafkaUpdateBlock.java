@@ -1,5 +1,8 @@
 package com.mesosphere.dcos.kafka.plan;
 
+import com.mesosphere.dcos.kafka.cmd.LeadershipDrainer;
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
 import com.mesosphere.dcos.kafka.offer.KafkaOfferRequirementProvider;
 import com.mesosphere.dcos.kafka.offer.OfferUtils;
 import com.mesosphere.dcos.kafka.scheduler.KafkaScheduler;
@@ -25,23 +28,57 @@ public class KafkaUpdateBlock implements Block {
   private final KafkaOfferRequirementProvider offerReqProvider;
   private final String targetConfigName;
   private final FrameworkState state;
+  private final KafkaState kafkaState;
+  private final LeadershipDrainer leadershipDrainer;
+  private final long isrWaitTimeoutMs;
+  private final long leadershipTimeoutMs;
   private final int brokerId;
   private final UUID blockUuid;
 
   private final Object pendingTaskIdsLock = new Object();
   private List<TaskID> pendingTaskIds;
-  private Status status = Status.PENDING;
-
+  private volatile Status status = Status.PENDING;
+
+  // Set while leadership is being moved off the running broker, see isLeadershipDrained()
+  private long drainStartMs = -1;
+
+  // Set while the relaunched broker is catching up with the partition leaders and then taking back leadership, see
+  // checkReplication(). Only advanced from update() and checkProgress(), so that reading the Block's status never
+  // touches ZK.
+  private TaskID replicatingTaskId;
+  private long replicationStartMs;
+  private int partitionCount;
+  private int partitionsOutOfIsr;
+  private boolean restoringLeadership;
+  private long restoreStartMs;
+
+  // Whether resumeRestoringLeadership() has run, see checkProgress()
+  private boolean resumeChecked = false;
+
+  /**
+   * @param isrWaitTimeoutMs how long to wait after the relaunched broker is running for it to rejoin the ISR of all
+   *                         its partitions before the Block completes anyway, or 0 to complete as soon as it's running
+   * @param leadershipTimeoutMs how long to wait for leadership to move off the broker before it's restarted, and back
+   *                            once it has rejoined the ISR, before moving on anyway
+   */
   public KafkaUpdateBlock(
     FrameworkState state,
+    KafkaState kafkaState,
+    LeadershipDrainer leadershipDrainer,
     KafkaOfferRequirementProvider offerReqProvider,
     String targetConfigName,
-    int brokerId) {
+    int brokerId,
+    long isrWaitTimeoutMs,
+    long leadershipTimeoutMs) {
 
     this.state = state;
+    this.kafkaState = kafkaState;
+    this.leadershipDrainer = leadershipDrainer;
     this.offerReqProvider = offerReqProvider;
     this.targetConfigName = targetConfigName;
     this.brokerId = brokerId;
+    this.isrWaitTimeoutMs = isrWaitTimeoutMs;
+    this.leadershipTimeoutMs = leadershipTimeoutMs;
     this.blockUuid = UUID.randomUUID();
 
     TaskInfo taskInfo = fetchTaskInfo();
@@ -66,6 +103,8 @@ public class KafkaUpdateBlock implements Block {
 
   @Override
   public Optional<OfferRequirement> start() {
+    resumeRestoringLeadership();
+
     log.info("Starting block: " + getName() + " with status: " + Block.getStatus(this));
 
     if (!isPending()) {
@@ -75,6 +114,10 @@ public class KafkaUpdateBlock implements Block {
 
     Optional<TaskStatus> taskStatus = fetchTaskStatus();
     if (taskIsRunningOrStaging(taskStatus)) {
+      if (!isLeadershipDrained()) {
+        return Optional.empty();
+      }
+
       log.info("Adding task to restart list. Block: " + getName() + " Status: " + taskStatus.get());
       KafkaScheduler.restartTasks(fetchTaskInfo());
       return Optional.empty();
@@ -109,7 +152,12 @@ public class KafkaUpdateBlock implements Block {
 
   @Override
   public void restart() {
-    setStatus(Status.PENDING);
+    synchronized (pendingTaskIdsLock) {
+      drainStartMs = -1;
+      replicatingTaskId = null;
+      restoringLeadership = false;
+      setStatus(Status.PENDING);
+    }
   }
 
   @Override
@@ -124,6 +172,8 @@ public class KafkaUpdateBlock implements Block {
 
   @Override
   public void update(TaskStatus taskStatus) {
+    resumeRestoringLeadership();
+
     synchronized (pendingTaskIdsLock) {
       log.info(Block.getStatus(this) + " Block " + getName() + " received TaskStatus. "
           + "Pending tasks: " + pendingTaskIds);
@@ -138,6 +188,19 @@ public class KafkaUpdateBlock implements Block {
         return;
       }
 
+      if (isReplicating() && taskStatus.getTaskId().equals(replicatingTaskId) && TaskUtils.isTerminated(taskStatus)) {
+        log.info("Received terminal TaskStatus while " + getName() + " is rejoining the ISR: " + taskStatus);
+        replicatingTaskId = null;
+        restoringLeadership = false;
+        setStatus(Status.PENDING);
+        return;
+      }
+
+      if (isReplicating()) {
+        checkReplication();
+        return;
+      }
+
       if (!pendingTaskIds.contains(taskStatus.getTaskId())) {
         log.info("Ignoring TaskStatus (TaskId " + taskStatus.getTaskId().getValue() +
             " not found in pending tasks): " + taskStatus);
@@ -156,11 +219,28 @@ public class KafkaUpdateBlock implements Block {
       }
 
       if (pendingTaskIds.size() == 0) {
-        setStatus(Status.COMPLETE);
+        startReplicating(taskStatus.getTaskId());
       }
     }
   }
 
+  /**
+   * Advances the Block while it's waiting on its broker rather than on an offer: checks whether the relaunched broker
+   * has rejoined the ISR and taken back its leadership, which completes the Block once done. The plan scheduler only
+   * starts pending Blocks, so this is called on every offer cycle through {@link KafkaUpdatePhase#checkProgress()}.
+   *
+   * The first call also resumes restoring leadership which a previous scheduler drained, rather than the constructor,
+   * which must not touch ZK. The reconciliation phase keeps the plan incomplete until offer cycles have run, so this
+   * happens before the plan may report the update as complete.
+   */
+  public void checkProgress() {
+    resumeRestoringLeadership();
+
+    if (isReplicating()) {
+      checkReplication();
+    }
+  }
+
   @Override
   public UUID getId() {
     return blockUuid;
@@ -168,6 +248,25 @@ public class KafkaUpdateBlock implements Block {
 
   @Override
   public String getMessage() {
+    synchronized (pendingTaskIdsLock) {
+      if (isPending() && drainStartMs >= 0) {
+        return "Broker-" + getBrokerId() + " is " + Block.getStatus(this)
+            + ": moving partition leadership to other brokers";
+      }
+      if (isReplicating() && restoringLeadership) {
+        return "Broker-" + getBrokerId() + " is " + Block.getStatus(this) + ": restoring partition leadership";
+      }
+      if (isReplicating()) {
+        return String.format("Broker-%d is %s: waiting to rejoin the ISR of %d of %d partitions (%ds of %ds)",
+            getBrokerId(),
+            Block.getStatus(this),
+            partitionsOutOfIsr,
+            partitionCount,
+            (System.currentTimeMillis() - replicationStartMs) / 1000,
+            isrWaitTimeoutMs / 1000);
+      }
+    }
+
     return "Broker-" + getBrokerId() + " is " + Block.getStatus(this);
   }
 
@@ -186,6 +285,133 @@ public class KafkaUpdateBlock implements Block {
     }
   }
 
+  boolean isReplicating() {
+    synchronized (pendingTaskIdsLock) {
+      return replicatingTaskId != null;
+    }
+  }
+
+  /**
+   * Moves leadership off the broker before it's restarted, so that clients aren't left waiting for a leader election
+   * after it's killed. Gives up and allows the restart once the leadership timeout has expired.
+   */
+  private boolean isLeadershipDrained() {
+    synchronized (pendingTaskIdsLock) {
+      if (drainStartMs < 0) {
+        drainStartMs = System.currentTimeMillis();
+      }
+
+      try {
+        if (leadershipDrainer.drain(getBrokerId())) {
+          drainStartMs = -1;
+          return true;
+        }
+      } catch (Exception ex) {
+        log.error("Failed to drain leadership from " + getName(), ex);
+      }
+
+      if (System.currentTimeMillis() - drainStartMs >= leadershipTimeoutMs) {
+        log.warn(getName() + " still leads partitions after " + leadershipTimeoutMs + "ms, restarting anyway");
+        drainStartMs = -1;
+        return true;
+      }
+
+      return false;
+    }
+  }
+
+  private void startReplicating(TaskID taskId) {
+    log.info(getName() + " is running, waiting up to " + isrWaitTimeoutMs + "ms for it to rejoin the ISR");
+    replicatingTaskId = taskId;
+    replicationStartMs = System.currentTimeMillis();
+    partitionCount = 0;
+    partitionsOutOfIsr = 0;
+    restoringLeadership = false;
+    checkReplication();
+  }
+
+  /**
+   * Completes the Block once the relaunched broker is back in the ISR of every partition it hosts a replica of and
+   * has taken back the leadership it was drained of, or once the respective timeouts have expired. Until then the
+   * Block stays in progress, so that the phase doesn't move on to the next broker while partitions are still
+   * under-replicated.
+   */
+  private void checkReplication() {
+    synchronized (pendingTaskIdsLock) {
+      if (replicatingTaskId == null) {
+        return;
+      }
+
+      if (!restoringLeadership) {
+        if (!isBackInIsr()) {
+          return;
+        }
+        restoringLeadership = true;
+        restoreStartMs = System.currentTimeMillis();
+      }
+
+      if (isLeadershipRestored()) {
+        replicatingTaskId = null;
+        restoringLeadership = false;
+        setStatus(Status.COMPLETE);
+      }
+    }
+  }
+
+  private boolean isLeadershipRestored() {
+    try {
+      if (leadershipDrainer.restore(getBrokerId())) {
+        return true;
+      }
+    } catch (Exception ex) {
+      log.error("Failed to restore leadership of " + getName(), ex);
+    }
+
+    if (System.currentTimeMillis() - restoreStartMs >= leadershipTimeoutMs) {
+      log.warn("Failed to restore leadership of " + getName() + " after " + leadershipTimeoutMs + "ms");
+      return true;
+    }
+
+    return false;
+  }
+
+  private boolean isBackInIsr() {
+    if (isrWaitTimeoutMs <= 0) {
+      return true;
+    }
+
+    boolean inIsr;
+    try {
+      int count = 0;
+      int outOfIsr = 0;
+      for (PartitionState partition : kafkaState.getPartitionStates()) {
+        if (partition.getReplicas().contains(getBrokerId())) {
+          count++;
+          if (!partition.getIsr().contains(getBrokerId())) {
+            outOfIsr++;
+          }
+        }
+      }
+      partitionCount = count;
+      partitionsOutOfIsr = outOfIsr;
+      inIsr = outOfIsr == 0;
+    } catch (Exception ex) {
+      log.error("Failed to read partition states for " + getName(), ex);
+      inIsr = false;
+    }
+
+    if (inIsr) {
+      log.info(getName() + " is in the ISR of all " + partitionCount + " of its partitions");
+      return true;
+    } else if (System.currentTimeMillis() - replicationStartMs >= isrWaitTimeoutMs) {
+      log.warn(getName() + " is still missing from the ISR of " + partitionsOutOfIsr + " of "
+          + partitionCount + " partitions after " + isrWaitTimeoutMs + "ms, moving on anyway");
+      return true;
+    }
+
+    return false;
+  }
+
   private void initializeStatus(TaskInfo taskInfo) {
     log.info("Setting initial status for: " + getName());
 
@@ -202,6 +428,38 @@ public class KafkaUpdateBlock implements Block {
     log.info("Status initialized as " + Block.getStatus(this) + " for block: " + getName());
   }
 
+  /**
+   * Resumes waiting for the broker to rejoin the ISR and take back its leadership, if a previous scheduler relaunched
+   * it at the target config but failed over before its leadership was restored. Only checked once per Block.
+   */
+  private void resumeRestoringLeadership() {
+    synchronized (pendingTaskIdsLock) {
+      if (resumeChecked) {
+        return;
+      }
+      resumeChecked = true;
+
+      TaskInfo taskInfo = fetchTaskInfo();
+      if (taskInfo == null || !isComplete()) {
+        return;
+      }
+
+      try {
+        if (!leadershipDrainer.isDraining(getBrokerId())) {
+          return;
+        }
+      } catch (Exception ex) {
+        log.error("Failed to determine whether leadership was drained from " + getName(), ex);
+        return;
+      }
+
+      log.info(getName() + " is at the target config, but its leadership hasn't been restored yet");
+      pendingTaskIds.clear();
+      setStatus(Status.IN_PROGRESS);
+      startReplicating(taskInfo.getTaskId());
+    }
+  }
+
   private OfferRequirement getOfferRequirement(TaskInfo taskInfo) throws Exception {
     if (taskInfo == null) {
       return offerReqProvider.getNewOfferRequirement(targetConfigName, getBrokerId());
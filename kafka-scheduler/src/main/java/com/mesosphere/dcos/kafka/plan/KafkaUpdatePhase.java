@@ -3,7 +3,10 @@ package com.mesosphere.dcos.kafka.plan;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import com.mesosphere.dcos.kafka.cmd.LeadershipDrainer;
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
 import com.mesosphere.dcos.kafka.config.KafkaSchedulerConfiguration;
 import com.mesosphere.dcos.kafka.offer.KafkaOfferRequirementProvider;
 import com.mesosphere.dcos.kafka.state.FrameworkState;
@@ -11,6 +14,7 @@ import org.apache.mesos.scheduler.plan.Block;
 import org.apache.mesos.scheduler.plan.Phase;
 
 public class KafkaUpdatePhase implements Phase {
+  private final List<KafkaUpdateBlock> updateBlocks;
   private final List<Block> blocks;
   private final String configName;
   private final KafkaSchedulerConfiguration config;
@@ -20,10 +24,21 @@ public class KafkaUpdatePhase implements Phase {
       String targetConfigName,
       KafkaSchedulerConfiguration targetConfig,
       FrameworkState frameworkState,
+      KafkaState kafkaState,
+      LeadershipDrainer leadershipDrainer,
       KafkaOfferRequirementProvider offerReqProvider) {
     this.configName = targetConfigName;
     this.config = targetConfig;
-    this.blocks = createBlocks(configName, config.getServiceConfiguration().getCount(), frameworkState, offerReqProvider);
+    this.updateBlocks = createBlocks(
+        configName,
+        config.getServiceConfiguration().getCount(),
+        TimeUnit.SECONDS.toMillis(config.getServiceConfiguration().getIsrWaitTimeoutSecs()),
+        TimeUnit.SECONDS.toMillis(config.getServiceConfiguration().getLeadershipTimeoutSecs()),
+        frameworkState,
+        kafkaState,
+        leadershipDrainer,
+        offerReqProvider);
+    this.blocks = new ArrayList<Block>(updateBlocks);
     this.id = UUID.randomUUID();
   }
 
@@ -49,6 +64,17 @@ public class KafkaUpdatePhase implements Phase {
   }
 
 
+  /**
+   * Advances every Block which is waiting on its broker rather than on an offer, see
+   * {@link KafkaUpdateBlock#checkProgress()}. Called on every offer cycle, so that the ISR and leadership waits of all
+   * in-progress Blocks move along together rather than only the one the plan scheduler is currently handed.
+   */
+  public void checkProgress() {
+    for (KafkaUpdateBlock block : updateBlocks) {
+      block.checkProgress();
+    }
+  }
+
   @Override
   public UUID getId() {
     return id;
@@ -70,16 +96,30 @@ public class KafkaUpdatePhase implements Phase {
     return true;
   }
 
-  private static List<Block> createBlocks(
+  private static List<KafkaUpdateBlock> createBlocks(
       String configName,
       int brokerCount,
+      long isrWaitTimeoutMs,
+      long leadershipTimeoutMs,
       FrameworkState frameworkState,
+      KafkaState kafkaState,
+      LeadershipDrainer leadershipDrainer,
       KafkaOfferRequirementProvider offerReqProvider) {
 
-    List<Block> blocks = new ArrayList<Block>();
+    List<KafkaUpdateBlock> blocks = new ArrayList<KafkaUpdateBlock>();
 
     for (int i=0; i<brokerCount; i++) {
-      blocks.add(new KafkaUpdateBlock(frameworkState, offerReqProvider, configName, i));
+      // Brokers already running the target config, including those whose config only differs from it in ways which
+      // don't require a restart (see KafkaConfigState.syncConfigs), start out COMPLETE and aren't restarted.
+      blocks.add(new KafkaUpdateBlock(
+          frameworkState,
+          kafkaState,
+          leadershipDrainer,
+          offerReqProvider,
+          configName,
+          i,
+          isrWaitTimeoutMs,
+          leadershipTimeoutMs));
     }
 
     return blocks;
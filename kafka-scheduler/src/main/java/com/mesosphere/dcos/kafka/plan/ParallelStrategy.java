@@ -0,0 +1,141 @@
+package com.mesosphere.dcos.kafka.plan;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.mesos.scheduler.plan.Block;
+import org.apache.mesos.scheduler.plan.DefaultInstallStrategy;
+import org.apache.mesos.scheduler.plan.Phase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A strategy which updates up to a configured number of brokers in a {@link KafkaUpdatePhase} at once.
+ *
+ * A Block is active from the moment it is handed to the plan scheduler until it completes. Another pending Block is
+ * only handed out while fewer Blocks than the concurrency limit are active, and only if its broker shares no partition
+ * replicas with the brokers of the active Blocks, so that no partition loses more than one replica to the update at a
+ * time. When the partition state can't be read no Block is started alongside an active one.
+ *
+ * Only one Block is handed to the plan scheduler per offer cycle, and the plan scheduler only acts on pending Blocks.
+ * Active Blocks whose brokers are rejoining the ISR are instead all advanced on every offer cycle by
+ * {@link KafkaUpdatePhase#checkProgress()}, so their waits run concurrently rather than one after another.
+ */
+public class ParallelStrategy extends DefaultInstallStrategy {
+  private final Log log = LogFactory.getLog(ParallelStrategy.class);
+
+  private final Phase phase;
+  private final KafkaState kafkaState;
+  private final int concurrency;
+  private final Set<UUID> dispatchedBlockIds = new HashSet<>();
+
+  public ParallelStrategy(Phase phase, KafkaState kafkaState, int concurrency) {
+    super(phase);
+    this.phase = phase;
+    this.kafkaState = kafkaState;
+    this.concurrency = Math.max(1, concurrency);
+  }
+
+  @Override
+  public synchronized Block getCurrentBlock() {
+    List<Block> activeBlocks = getActiveBlocks();
+
+    // Keep driving an active Block whose broker hasn't been relaunched yet.
+    for (Block block : activeBlocks) {
+      if (block.isPending()) {
+        return block;
+      }
+    }
+
+    if (activeBlocks.size() < concurrency) {
+      for (Block block : phase.getBlocks()) {
+        if (block.isPending() && !sharesReplicas(block, activeBlocks)) {
+          log.info("Starting block: " + block.getName() + " alongside " + activeBlocks.size() + " active block(s)");
+          dispatchedBlockIds.add(block.getId());
+          return block;
+        }
+      }
+    }
+
+    // Every active Block is in progress and advanced by KafkaUpdatePhase.checkProgress(), whichever one is returned.
+    if (!activeBlocks.isEmpty()) {
+      return activeBlocks.get(0);
+    }
+
+    return super.getCurrentBlock();
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  private List<Block> getActiveBlocks() {
+    List<Block> activeBlocks = new ArrayList<>();
+
+    for (Block block : phase.getBlocks()) {
+      if (block.isComplete()) {
+        dispatchedBlockIds.remove(block.getId());
+      } else if (block.isInProgress() || dispatchedBlockIds.contains(block.getId())) {
+        activeBlocks.add(block);
+      }
+    }
+
+    return activeBlocks;
+  }
+
+  private boolean sharesReplicas(Block candidate, List<Block> activeBlocks) {
+    if (activeBlocks.isEmpty()) {
+      return false;
+    }
+
+    Integer candidateBrokerId = getBrokerId(candidate);
+    Set<Integer> activeBrokerIds = new HashSet<>();
+    for (Block block : activeBlocks) {
+      Integer brokerId = getBrokerId(block);
+      if (brokerId == null) {
+        return true;
+      }
+      activeBrokerIds.add(brokerId);
+    }
+
+    if (candidateBrokerId == null) {
+      return true;
+    }
+
+    try {
+      for (PartitionState partition : kafkaState.getPartitionStates()) {
+        List<Integer> replicas = partition.getReplicas();
+        if (!replicas.contains(candidateBrokerId)) {
+          continue;
+        }
+
+        for (Integer activeBrokerId : activeBrokerIds) {
+          if (replicas.contains(activeBrokerId)) {
+            log.info("Deferring block: " + candidate.getName() + ", broker " + candidateBrokerId
+                + " shares partition " + partition.getTopic() + "-" + partition.getPartition()
+                + " with updating broker " + activeBrokerId);
+            return true;
+          }
+        }
+      }
+    } catch (Exception ex) {
+      log.error("Failed to read partition states, deferring block: " + candidate.getName(), ex);
+      return true;
+    }
+
+    return false;
+  }
+
+  private static Integer getBrokerId(Block block) {
+    if (block instanceof KafkaUpdateBlock) {
+      return ((KafkaUpdateBlock) block).getBrokerId();
+    }
+
+    return null;
+  }
+}
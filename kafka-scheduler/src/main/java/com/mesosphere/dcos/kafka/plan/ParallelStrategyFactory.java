@@ -0,0 +1,29 @@
+package com.mesosphere.dcos.kafka.plan;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import org.apache.mesos.scheduler.plan.DefaultInstallStrategy;
+import org.apache.mesos.scheduler.plan.Phase;
+import org.apache.mesos.scheduler.plan.PhaseStrategy;
+import org.apache.mesos.scheduler.plan.PhaseStrategyFactory;
+
+/**
+ * Applies a {@link ParallelStrategy} to broker update phases, and the default install strategy to all other phases.
+ */
+public class ParallelStrategyFactory implements PhaseStrategyFactory {
+  private final KafkaState kafkaState;
+  private final int concurrency;
+
+  public ParallelStrategyFactory(KafkaState kafkaState, int concurrency) {
+    this.kafkaState = kafkaState;
+    this.concurrency = concurrency;
+  }
+
+  @Override
+  public PhaseStrategy getStrategy(Phase phase) {
+    if (phase instanceof KafkaUpdatePhase) {
+      return new ParallelStrategy(phase, kafkaState, concurrency);
+    }
+
+    return new DefaultInstallStrategy(phase);
+  }
+}
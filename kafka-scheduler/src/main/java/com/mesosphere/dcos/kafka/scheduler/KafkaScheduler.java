@@ -1,16 +1,23 @@
 package com.mesosphere.dcos.kafka.scheduler;
 
+import com.codahale.metrics.Timer;
 import com.google.protobuf.TextFormat;
+import com.mesosphere.dcos.kafka.cmd.LeadershipDrainer;
 import com.mesosphere.dcos.kafka.commons.state.KafkaState;
 import com.mesosphere.dcos.kafka.config.ConfigStateUpdater;
 import com.mesosphere.dcos.kafka.config.ConfigStateValidator.ValidationError;
 import com.mesosphere.dcos.kafka.config.ConfigStateValidator.ValidationException;
 import com.mesosphere.dcos.kafka.config.KafkaConfigState;
 import com.mesosphere.dcos.kafka.config.KafkaSchedulerConfiguration;
+import com.mesosphere.dcos.kafka.offer.AgentAttributeIndex;
+import com.mesosphere.dcos.kafka.offer.DynamicPortSelector;
 import com.mesosphere.dcos.kafka.offer.KafkaOfferRequirementProvider;
+import com.mesosphere.dcos.kafka.offer.KafkaResourceCleaner;
+import com.mesosphere.dcos.kafka.offer.OfferRanker;
 import com.mesosphere.dcos.kafka.offer.PersistentOfferRequirementProvider;
 import com.mesosphere.dcos.kafka.offer.PersistentOperationRecorder;
 import com.mesosphere.dcos.kafka.plan.KafkaUpdatePhase;
+import com.mesosphere.dcos.kafka.plan.ParallelStrategyFactory;
 import com.mesosphere.dcos.kafka.repair.KafkaFailureMonitor;
 import com.mesosphere.dcos.kafka.repair.KafkaRecoveryRequirementProvider;
 import com.mesosphere.dcos.kafka.repair.KafkaTaskFailureListener;
@@ -26,8 +33,7 @@ import org.apache.mesos.config.ConfigStoreException;
 import org.apache.mesos.config.RecoveryConfiguration;
 import org.apache.mesos.offer.InvalidRequirementException;
 import org.apache.mesos.offer.OfferAccepter;
-import org.apache.mesos.offer.ResourceCleaner;
-import org.apache.mesos.offer.ResourceCleanerScheduler;
+import org.apache.mesos.offer.OfferRecommendation;
 import org.apache.mesos.reconciliation.DefaultReconciler;
 import org.apache.mesos.reconciliation.Reconciler;
 import org.apache.mesos.scheduler.DefaultTaskKiller;
@@ -48,7 +54,7 @@ import java.util.concurrent.atomic.AtomicReference;
 /**
  * Kafka Framework Scheduler.
  */
-public class KafkaScheduler implements Scheduler, Runnable {
+public class KafkaScheduler implements Scheduler, Runnable, SchedulerEventLoop.Handler {
   private static final Log log = LogFactory.getLog(KafkaScheduler.class);
 
   private static final int TWO_WEEK_SEC = 2 * 7 * 24 * 60 * 60;
@@ -65,19 +71,47 @@ public class KafkaScheduler implements Scheduler, Runnable {
   private final KafkaTaskFailureListener kafkaTaskFailureListener;
 
   private final OfferAccepter offerAccepter;
+  private final KafkaResourceCleaner resourceCleaner;
+  private final AgentAttributeIndex attributeIndex;
+  private final DynamicPortSelector portSelector;
+  private final OfferRanker offerRanker;
   private final Reconciler reconciler;
+  private final KafkaUpdatePhase updatePhase;
   private final PlanManager planManager;
   private final AtomicReference<RecoveryStatus> recoveryStatusRef;
+  private final Optional<SchedulerEventLoop> eventLoop;
+  private final OfferCycleMetrics offerCycleMetrics;
   private SchedulerDriver driver;
   private static final Integer restartLock = 0;
   private static List<TaskInfo> tasksToRestart = new ArrayList<>();
   private static final Integer rescheduleLock = 0;
   private static List<TaskInfo> tasksToReschedule = new ArrayList<>();
 
-  private boolean isRegistered = false;
+  private volatile boolean isRegistered = false;
 
   public KafkaScheduler(KafkaSchedulerConfiguration configuration, Environment environment) throws ConfigStoreException, URISyntaxException {
-    ConfigStateUpdater configStateUpdater = new ConfigStateUpdater(configuration);
+    this(new ConfigStateUpdater(configuration), environment);
+  }
+
+  /**
+   * Creates a scheduler using the state stores of the provided {@link ConfigStateUpdater}, whose caches may already have
+   * been loaded while waiting for leadership.
+   */
+  public KafkaScheduler(ConfigStateUpdater configStateUpdater, Environment environment) throws ConfigStoreException, URISyntaxException {
+    this(
+            configStateUpdater,
+            new AtomicReference<>(new RecoveryStatus(Collections.emptyList(), Collections.emptyList())),
+            environment);
+  }
+
+  /**
+   * Creates a scheduler which publishes its recovery status to the provided reference, which may already be served by
+   * the API before the scheduler is created.
+   */
+  public KafkaScheduler(
+          ConfigStateUpdater configStateUpdater,
+          AtomicReference<RecoveryStatus> recoveryStatusRef,
+          Environment environment) throws ConfigStoreException, URISyntaxException {
     List<String> stageErrors = new ArrayList<>();
     KafkaSchedulerConfiguration targetConfigToUse;
 
@@ -103,31 +137,53 @@ public class KafkaScheduler implements Scheduler, Runnable {
 
     offerAccepter =
             new OfferAccepter(Arrays.asList(new PersistentOperationRecorder(frameworkState)));
+    resourceCleaner = new KafkaResourceCleaner(frameworkState);
+    attributeIndex = new AgentAttributeIndex();
+    portSelector = new DynamicPortSelector();
+    offerRanker = new OfferRanker(frameworkState);
 
     KafkaOfferRequirementProvider offerRequirementProvider =
-            new PersistentOfferRequirementProvider(frameworkState, configState, clusterState);
-
-    List<Phase> phases = Arrays.asList(
-            ReconciliationPhase.create(reconciler),
-            new KafkaUpdatePhase(
-                    configState.getTargetName().toString(),
-                    envConfig,
+            new PersistentOfferRequirementProvider(
                     frameworkState,
-                    offerRequirementProvider));
+                    configState,
+                    clusterState,
+                    attributeIndex,
+                    portSelector);
+
+    updatePhase = new KafkaUpdatePhase(
+            configState.getTargetName().toString(),
+            envConfig,
+            frameworkState,
+            kafkaState,
+            new LeadershipDrainer(envConfig.getZookeeperConfig(), kafkaState, frameworkState.getZkClient()),
+            offerRequirementProvider);
+    List<Phase> phases = Arrays.asList(ReconciliationPhase.create(reconciler), updatePhase);
     // If config validation had errors, expose them via the Stage.
     Plan installPlan = stageErrors.isEmpty()
             ? DefaultPlan.fromList(phases)
             : DefaultPlan.withErrors(phases, stageErrors);
 
-    recoveryStatusRef = new AtomicReference<>(new RecoveryStatus(Collections.emptyList(), Collections.emptyList()));
-    kafkaTaskFailureListener = new KafkaTaskFailureListener(frameworkState.getStateStore());
+    this.recoveryStatusRef = recoveryStatusRef;
+    kafkaTaskFailureListener = new KafkaTaskFailureListener(frameworkState);
     planScheduler = new DefaultPlanScheduler(
             offerAccepter,
             new DefaultTaskKiller(frameworkState.getStateStore(), kafkaTaskFailureListener));
 
-    planManager = createDeploymentPlanManager(installPlan, getPhaseStrategyFactory(envConfig));
+    planManager = createDeploymentPlanManager(installPlan, getPhaseStrategyFactory(envConfig, kafkaState));
     repairScheduler = createRecoveryScheduler(offerRequirementProvider);
     taskKiller = new DefaultTaskKiller(frameworkState.getStateStore(), kafkaTaskFailureListener);
+    eventLoop = createEventLoop(envConfig, environment);
+    offerCycleMetrics = new OfferCycleMetrics(environment.metrics());
+  }
+
+  private Optional<SchedulerEventLoop> createEventLoop(KafkaSchedulerConfiguration config, Environment environment) {
+    if (!config.getServiceConfiguration().isEventLoopEnabled()) {
+      return Optional.empty();
+    }
+
+    int capacity = config.getServiceConfiguration().getEventQueueCapacity();
+    log.info("Processing offers and status updates on event loop with queue capacity: " + capacity);
+    return Optional.of(new SchedulerEventLoop(capacity, this, environment.metrics()));
   }
 
   protected DefaultRecoveryScheduler createRecoveryScheduler(KafkaOfferRequirementProvider offerRequirementProvider) {
@@ -152,7 +208,9 @@ public class KafkaScheduler implements Scheduler, Runnable {
     return new DefaultPlanManager(deploymentPlan, strategyFactory);
   }
 
-  private static PhaseStrategyFactory getPhaseStrategyFactory(KafkaSchedulerConfiguration config) {
+  private static PhaseStrategyFactory getPhaseStrategyFactory(
+          KafkaSchedulerConfiguration config,
+          KafkaState kafkaState) {
     String strategy = config.getServiceConfiguration().getPhaseStrategy();
 
     switch (strategy) {
@@ -160,6 +218,8 @@ public class KafkaScheduler implements Scheduler, Runnable {
         return new DefaultStrategyFactory();
       case "STAGE":
         return new StageStrategyFactory();
+      case "PARALLEL":
+        return new ParallelStrategyFactory(kafkaState, config.getServiceConfiguration().getPhaseConcurrency());
       default:
         log.warn("Unknown strategy: " + strategy);
         return new StageStrategyFactory();
@@ -184,6 +244,15 @@ public class KafkaScheduler implements Scheduler, Runnable {
 
   @Override
   public void slaveLost(SchedulerDriver driver, SlaveID slaveId) {
+    if (eventLoop.isPresent()) {
+      eventLoop.get().enqueueSlaveLost(driver, slaveId);
+    } else {
+      handleSlaveLost(driver, slaveId);
+    }
+  }
+
+  @Override
+  public void handleSlaveLost(SchedulerDriver driver, SlaveID slaveId) {
     log.info("Slave lost slaveId: " + slaveId.getValue());
   }
 
@@ -197,11 +266,23 @@ public class KafkaScheduler implements Scheduler, Runnable {
   @Override
   public void offerRescinded(SchedulerDriver driver, OfferID offerId) {
     log.info("Offer rescinded: offerId: " + offerId.getValue());
+    if (eventLoop.isPresent()) {
+      eventLoop.get().enqueueRescind(driver, offerId);
+    }
   }
 
   @Override
   public void registered(SchedulerDriver driver, FrameworkID frameworkId, MasterInfo masterInfo) {
     log.info("Registered framework with frameworkId: " + frameworkId.getValue());
+    if (eventLoop.isPresent()) {
+      eventLoop.get().enqueueRegistered(driver, frameworkId);
+    } else {
+      handleRegistered(driver, frameworkId);
+    }
+  }
+
+  @Override
+  public void handleRegistered(SchedulerDriver driver, FrameworkID frameworkId) {
     try {
       frameworkState.getStateStore().storeFrameworkId(frameworkId);
       isRegistered = true;
@@ -239,6 +320,15 @@ public class KafkaScheduler implements Scheduler, Runnable {
   @Override
   public void reregistered(SchedulerDriver driver, MasterInfo masterInfo) {
     log.info("Reregistered framework.");
+    if (eventLoop.isPresent()) {
+      eventLoop.get().enqueueReregistered(driver);
+    } else {
+      handleReregistered(driver);
+    }
+  }
+
+  @Override
+  public void handleReregistered(SchedulerDriver driver) {
     try {
       isRegistered = true;
       reconcile();
@@ -261,13 +351,49 @@ public class KafkaScheduler implements Scheduler, Runnable {
         status.getState().toString(),
         status.getMessage()));
 
-    // Store status, then pass status to StageManager => Plan => Blocks
-    try {
-      frameworkState.updateStatus(status);
-      planManager.update(status);
-    } catch (Exception e) {
-      log.warn("Failed to update TaskStatus received from Mesos. "
-          + "This may be expected if Mesos sent stale status information: " + status, e);
+    if (eventLoop.isPresent()) {
+      eventLoop.get().enqueueStatus(driver, status);
+    } else {
+      handleStatusUpdates(driver, Arrays.asList(status));
+    }
+  }
+
+  @Override
+  public void handleStatusUpdates(SchedulerDriver driver, List<TaskStatus> statuses) {
+    // Only the latest status of each task in a batch is stored, but every status is passed to the Plan in order
+    Map<TaskID, TaskStatus> latestStatuses = new LinkedHashMap<>();
+    for (TaskStatus status : statuses) {
+      latestStatuses.remove(status.getTaskId());
+      latestStatuses.put(status.getTaskId(), status);
+    }
+
+    // The Plan isn't told about a task whose latest status couldn't be stored, so it doesn't run ahead of the state
+    Set<TaskID> failedTaskIds = new HashSet<>();
+    for (TaskStatus status : latestStatuses.values()) {
+      try {
+        frameworkState.updateStatus(status);
+      } catch (Exception e) {
+        failedTaskIds.add(status.getTaskId());
+        log.warn("Failed to update TaskStatus received from Mesos. "
+            + "This may be expected if Mesos sent stale status information: " + status, e);
+      }
+    }
+
+    if (latestStatuses.size() < statuses.size()) {
+      log.info(String.format("Coalesced %d status updates into %d", statuses.size(), latestStatuses.size()));
+    }
+
+    for (TaskStatus status : statuses) {
+      if (failedTaskIds.contains(status.getTaskId())) {
+        continue;
+      }
+
+      // Pass status to StageManager => Plan => Blocks
+      try {
+        planManager.update(status);
+      } catch (Exception e) {
+        log.warn("Failed to pass TaskStatus received from Mesos to the Plan: " + status, e);
+      }
     }
 
     if (hasOperations()) {
@@ -277,58 +403,84 @@ public class KafkaScheduler implements Scheduler, Runnable {
 
   @Override
   public void resourceOffers(SchedulerDriver driver, List<Offer> offers) {
-    try {
+    if (eventLoop.isPresent()) {
+      eventLoop.get().enqueueOffers(driver, offers);
+    } else {
+      handleResourceOffers(driver, offers);
+    }
+  }
+
+  @Override
+  public void handleResourceOffers(SchedulerDriver driver, List<Offer> offers) {
+    try (Timer.Context cycleContext = offerCycleMetrics.timeCycle()) {
       logOffers(offers);
-      reconciler.reconcile(driver);
-      processTaskOperations(driver);
+      attributeIndex.update(offers);
+      portSelector.update(offers);
+      try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.RECONCILE)) {
+        reconciler.reconcile(driver);
+      }
+      try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.TASK_OPERATIONS)) {
+        processTaskOperations(driver);
+      }
 
       List<OfferID> acceptedOffers = new ArrayList<>();
 
       if (!reconciler.isReconciled()) {
         log.info("Accepting no offers: Reconciler is still in progress");
       } else {
-        Optional<Block> blockOptional = planManager.getCurrentBlock();
-        if (blockOptional.isPresent()) {
-          Block block = blockOptional.get();
-          acceptedOffers = planScheduler.resourceOffers(driver, offers, block);
+        List<Offer> rankedOffers;
+        try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.RANK_OFFERS)) {
+          rankedOffers = offerRanker.rank(
+                  offers,
+                  envConfig.getBrokerConfiguration().getLogVolumes().stream()
+                          .anyMatch(volume -> "MOUNT".equals(volume.getType())));
+        }
+
+        Optional<Block> blockOptional;
+        try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.PLAN_SCHEDULER)) {
+          updatePhase.checkProgress();
+          blockOptional = planManager.getCurrentBlock();
+          if (blockOptional.isPresent()) {
+            acceptedOffers = planScheduler.resourceOffers(driver, rankedOffers, blockOptional.get());
+          }
         }
 
-        List<Offer> unacceptedOffers = filterAcceptedOffers(offers, acceptedOffers);
-        try {
+        List<Offer> unacceptedOffers = filterAcceptedOffers(rankedOffers, acceptedOffers);
+        try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.REPAIR_SCHEDULER)) {
           acceptedOffers.addAll(repairScheduler.resourceOffers(driver, unacceptedOffers, blockOptional));
         } catch (InvalidRequirementException e) {
           log.error("Error repairing block: " + blockOptional.get() + " Reason: " + e);
         }
 
-        ResourceCleanerScheduler cleanerScheduler = getCleanerScheduler();
-        if (cleanerScheduler != null) {
-          acceptedOffers.addAll(getCleanerScheduler().resourceOffers(driver, offers));
+        try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.RESOURCE_CLEANER)) {
+          List<OfferRecommendation> cleanupRecommendations = resourceCleaner.evaluate(offers);
+          if (!cleanupRecommendations.isEmpty()) {
+            acceptedOffers.addAll(offerAccepter.accept(driver, cleanupRecommendations));
+          }
         }
       }
 
       log.info(String.format("Accepted %d of %d offers: %s",
               acceptedOffers.size(), offers.size(), acceptedOffers));
-      declineOffers(driver, acceptedOffers, offers);
-      taskKiller.process(driver);
+      int declinedCount;
+      try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.DECLINE)) {
+        declinedCount = declineOffers(driver, acceptedOffers, offers);
+      }
+      offerCycleMetrics.recordOffers(offers.size(), acceptedOffers.size(), declinedCount);
+
+      try (Timer.Context context = offerCycleMetrics.time(OfferCycleMetrics.Stage.TASK_KILLER)) {
+        taskKiller.process(driver);
+      }
 
       if (!hasOperations()) {
         suppressOffers(driver);
       }
     } catch (Exception ex) {
+      offerCycleMetrics.recordFailure();
       log.error("Unexpected exception encountered when processing offers", ex);
     }
   }
 
-  private ResourceCleanerScheduler getCleanerScheduler() {
-    try {
-      ResourceCleaner cleaner = new ResourceCleaner(frameworkState.getStateStore());
-      return new ResourceCleanerScheduler(cleaner, offerAccepter);
-    } catch (Exception ex) {
-      log.error("Failed to construct ResourceCleaner", ex);
-      return null;
-    }
-  }
-
   private List<Offer> filterAcceptedOffers(List<Offer> offers, List<OfferID> acceptedOfferIds) {
     List<Offer> filteredOffers = new ArrayList<Offer>();
 
@@ -451,14 +603,17 @@ public class KafkaScheduler implements Scheduler, Runnable {
     }
   }
 
-  private void declineOffers(SchedulerDriver driver, List<OfferID> acceptedOffers, List<Offer> offers) {
+  private int declineOffers(SchedulerDriver driver, List<OfferID> acceptedOffers, List<Offer> offers) {
+    int declinedCount = 0;
     for (Offer offer : offers) {
       OfferID offerId = offer.getId();
       if (!acceptedOffers.contains(offerId)) {
         log.info("Declining offer: " + offerId.getValue());
         driver.declineOffer(offerId);
+        declinedCount++;
       }
     }
+    return declinedCount;
   }
 
   private void registerFramework(KafkaScheduler sched, FrameworkInfo frameworkInfo, String masterUri) {
@@ -500,6 +655,14 @@ public class KafkaScheduler implements Scheduler, Runnable {
     return recoveryStatusRef;
   }
 
+  /**
+   * Returns the event loop which must be run for offers and status updates to be processed, or an
+   * empty Optional if they are processed directly on the driver callback thread.
+   */
+  public Optional<SchedulerEventLoop> getEventLoop() {
+    return eventLoop;
+  }
+
   public static void restartTasks(TaskInfo taskInfo) {
     if (taskInfo != null) {
       taskKiller.killTask(taskInfo.getName(), false);
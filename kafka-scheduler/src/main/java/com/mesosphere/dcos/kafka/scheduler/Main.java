@@ -1,7 +1,10 @@
 package com.mesosphere.dcos.kafka.scheduler;
 
 import com.mesosphere.dcos.kafka.cmd.CmdExecutor;
+import com.mesosphere.dcos.kafka.cmd.JobManager;
+import com.mesosphere.dcos.kafka.cmd.OffsetService;
 import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.config.ConfigStateUpdater;
 import com.mesosphere.dcos.kafka.config.DropwizardConfiguration;
 import com.mesosphere.dcos.kafka.config.KafkaConfigState;
 import com.mesosphere.dcos.kafka.config.KafkaSchedulerConfiguration;
@@ -12,20 +15,25 @@ import io.dropwizard.Application;
 import io.dropwizard.configuration.EnvironmentVariableLookup;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.java8.Java8Bundle;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.text.StrSubstitutor;
 import org.apache.mesos.config.api.ConfigResource;
 import org.apache.mesos.dcos.DcosCluster;
-import org.apache.mesos.scheduler.plan.api.PlanResource;
+import org.apache.mesos.scheduler.recovery.RecoveryStatus;
 import org.apache.mesos.scheduler.recovery.api.RecoveryResource;
 import org.apache.mesos.state.api.JsonPropertyDeserializer;
 import org.apache.mesos.state.api.StateResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Main entry point for the Scheduler.
@@ -44,6 +52,9 @@ public final class Main extends Application<DropwizardConfiguration> {
   }
 
   ExecutorService kafkaSchedulerExecutorService = null;
+  ExecutorService kafkaSchedulerEventLoopExecutorService = null;
+  SchedulerLeaderElection leaderElection = null;
+  final AtomicReference<KafkaScheduler> activeScheduler = new AtomicReference<>();
 
   @Override
   public String getName() {
@@ -72,32 +83,106 @@ public final class Main extends Application<DropwizardConfiguration> {
     return environment;
   }
 
+  /**
+   * Registers the API and starts the scheduler. In HA mode, the scheduler is only started once this process is elected
+   * as the active scheduler. The HTTP server starts regardless, so that a standby answers its health checks, and API
+   * requests are rejected until the scheduler is active.
+   */
   @Override
   public void run(DropwizardConfiguration dropwizardConfiguration, Environment environment) throws Exception {
     LOGGER.info("DropwizardConfiguration: " + dropwizardConfiguration);
     this.dropwizardConfiguration = dropwizardConfiguration;
     this.environment = environment;
 
-    final KafkaScheduler kafkaScheduler = new KafkaScheduler(getKafkaSchedulerConfiguration(), getEnvironment());
-
-    registerJerseyResources(kafkaScheduler, getEnvironment(), this.dropwizardConfiguration);
-    registerHealthChecks(kafkaScheduler, getEnvironment());
-
+    // Executors must be registered with the lifecycle before the server starts, so that they're shut down with it.
     kafkaSchedulerExecutorService = environment.lifecycle().
             executorService("KafkaScheduler")
             .minThreads(1)
             .maxThreads(2)
             .build();
+    kafkaSchedulerEventLoopExecutorService = environment.lifecycle().
+            executorService("KafkaSchedulerEventLoop")
+            .minThreads(1)
+            .maxThreads(1)
+            .build();
+
+    final KafkaSchedulerConfiguration configuration = getKafkaSchedulerConfiguration();
+    final ConfigStateUpdater configStateUpdater = getConfigStateUpdater();
+    final AtomicReference<RecoveryStatus> recoveryStatusRef =
+            new AtomicReference<>(new RecoveryStatus(Collections.emptyList(), Collections.emptyList()));
+
+    registerJerseyResources(configStateUpdater, recoveryStatusRef, getEnvironment(), this.dropwizardConfiguration);
+    getEnvironment().healthChecks().register(ActiveSchedulerCheck.NAME, new ActiveSchedulerCheck(activeScheduler));
+
+    if (!configuration.getServiceConfiguration().isHaEnabled()) {
+      startScheduler(configStateUpdater, recoveryStatusRef);
+      return;
+    }
+
+    leaderElection = new SchedulerLeaderElection(configuration.getZookeeperConfig());
+    manage(leaderElection);
+    ExecutorService leaderElectionExecutorService = environment.lifecycle()
+            .executorService("KafkaLeaderElection")
+            .minThreads(1)
+            .maxThreads(1)
+            .build();
+    leaderElectionExecutorService.submit(() -> {
+      try {
+        // Only the task state, which the previous active scheduler may have changed, is read again on takeover.
+        configStateUpdater.preload();
+        leaderElection.awaitLeadership();
+        configStateUpdater.getFrameworkState().reloadCache();
+        startScheduler(configStateUpdater, recoveryStatusRef);
+      } catch (Exception e) {
+        LOGGER.error("Failed to take over as the active scheduler, exiting", e);
+        System.exit(1);
+      }
+    });
+  }
+
+  /**
+   * Builds the scheduler and registers it with Mesos, and makes it available to the API and health checks.
+   */
+  private void startScheduler(
+          ConfigStateUpdater configStateUpdater,
+          AtomicReference<RecoveryStatus> recoveryStatusRef) throws Exception {
+    final KafkaScheduler kafkaScheduler = new KafkaScheduler(configStateUpdater, recoveryStatusRef, getEnvironment());
+    registerHealthChecks(kafkaScheduler, getEnvironment());
+    activeScheduler.set(kafkaScheduler);
+
     kafkaSchedulerExecutorService.submit(kafkaScheduler);
+    if (kafkaScheduler.getEventLoop().isPresent()) {
+      kafkaSchedulerEventLoopExecutorService.submit(kafkaScheduler.getEventLoop().get());
+    }
+  }
+
+  /**
+   * Returns the config state to start the scheduler with. Its stores are available before the scheduler is started, so
+   * that the API can be registered before a standby takes over.
+   */
+  private ConfigStateUpdater getConfigStateUpdater() throws Exception {
+    ExecutorService configCleanupExecutorService = environment.lifecycle()
+            .executorService("KafkaConfigCleaner")
+            .minThreads(1)
+            .maxThreads(1)
+            .build();
+    ConfigStateUpdater configStateUpdater =
+            new ConfigStateUpdater(getKafkaSchedulerConfiguration(), configCleanupExecutorService);
+    manage(configStateUpdater.getFrameworkState());
+    manage(configStateUpdater.getKafkaState());
+    return configStateUpdater;
   }
 
   private void registerJerseyResources(
-          KafkaScheduler kafkaScheduler,
+          ConfigStateUpdater configStateUpdater,
+          AtomicReference<RecoveryStatus> recoveryStatusRef,
           Environment environment,
           DropwizardConfiguration configuration) throws URISyntaxException {
-    final KafkaState kafkaState = kafkaScheduler.getKafkaState();
-    final KafkaConfigState configState = kafkaScheduler.getConfigState();
-    final FrameworkState schedulerState = kafkaScheduler.getFrameworkState();
+    final KafkaState kafkaState = configStateUpdater.getKafkaState();
+    final KafkaConfigState configState = configStateUpdater.getConfigState();
+    final FrameworkState schedulerState = configStateUpdater.getFrameworkState();
+
+    environment.jersey().register(new StandbyFilter(activeScheduler));
 
     // Kafka-specific APIs:
     environment.jersey().register(new ConnectionController(
@@ -107,16 +192,32 @@ public final class Main extends Application<DropwizardConfiguration> {
             new ClusterState(new DcosCluster()),
             configuration.getSchedulerConfiguration().getZookeeperConfig().getFrameworkName()));
     environment.jersey().register(new BrokerController(kafkaState, schedulerState));
+    final ExecutorService offsetQueryExecutorService = environment.lifecycle()
+            .executorService("KafkaOffsetQuery")
+            .minThreads(OffsetService.DEFAULT_QUERY_THREADS)
+            .maxThreads(OffsetService.DEFAULT_QUERY_THREADS)
+            .build();
+    final JobManager jobManager = new JobManager(environment.lifecycle()
+            .executorService("KafkaJobs")
+            .minThreads(JobManager.DEFAULT_THREADS)
+            .maxThreads(JobManager.DEFAULT_THREADS)
+            .workQueue(new ArrayBlockingQueue<Runnable>(JobManager.DEFAULT_QUEUE_CAPACITY))
+            .build());
     environment.jersey().register(new TopicController(
-            new CmdExecutor(configuration.getSchedulerConfiguration(), kafkaState),
+            new CmdExecutor(
+                    configuration.getSchedulerConfiguration(),
+                    kafkaState,
+                    offsetQueryExecutorService,
+                    jobManager),
             kafkaState));
-    environment.jersey().register(new RecoveryResource(kafkaScheduler.getRecoveryStatusRef()));
+    environment.jersey().register(new JobController(jobManager));
+    environment.jersey().register(new RecoveryResource(recoveryStatusRef));
 
     // APIs from dcos-commons:
     environment.jersey().register(new ConfigResource<>(
             configState.getConfigStore(), KafkaSchedulerConfiguration.getFactoryInstance()));
     environment.jersey().register(new StateResource(schedulerState.getStateStore(), new JsonPropertyDeserializer()));
-    environment.jersey().register(new PlanResource(kafkaScheduler.getPlanManager()));
+    environment.jersey().register(new ActivePlanResource(activeScheduler));
   }
 
   private void registerHealthChecks(
@@ -130,4 +231,20 @@ public final class Main extends Application<DropwizardConfiguration> {
             RegisterCheck.NAME,
             new RegisterCheck(kafkaScheduler));
   }
+
+  /**
+   * Closes the provided resource when Dropwizard shuts down.
+   */
+  private void manage(Closeable closeable) {
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() throws Exception {
+        closeable.close();
+      }
+    });
+  }
 }
@@ -0,0 +1,83 @@
+package com.mesosphere.dcos.kafka.scheduler;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Instrumentation of the offer-processing pipeline in {@link KafkaScheduler}. Every stage of an offer cycle is timed
+ * separately, so that the stage responsible for a slow cycle can be identified, and the number of offers received,
+ * accepted and declined in each cycle is recorded as a histogram.
+ */
+public class OfferCycleMetrics {
+
+  /**
+   * The stages of a single offer cycle, in the order in which they're performed.
+   */
+  public enum Stage {
+    RECONCILE("reconcile"),
+    TASK_OPERATIONS("task-operations"),
+    RANK_OFFERS("rank-offers"),
+    PLAN_SCHEDULER("plan-scheduler"),
+    REPAIR_SCHEDULER("repair-scheduler"),
+    RESOURCE_CLEANER("resource-cleaner"),
+    DECLINE("decline"),
+    TASK_KILLER("task-killer");
+
+    private final String metricName;
+
+    Stage(String metricName) {
+      this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+      return metricName;
+    }
+  }
+
+  private final Timer cycleTimer;
+  private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+  private final Histogram offersReceived;
+  private final Histogram offersAccepted;
+  private final Histogram offersDeclined;
+  private final Counter cycleFailures;
+
+  public OfferCycleMetrics(MetricRegistry metrics) {
+    this.cycleTimer = metrics.timer(MetricRegistry.name(OfferCycleMetrics.class, "cycle"));
+    for (Stage stage : Stage.values()) {
+      stageTimers.put(stage, metrics.timer(MetricRegistry.name(OfferCycleMetrics.class, "stage", stage.getMetricName())));
+    }
+    this.offersReceived = metrics.histogram(MetricRegistry.name(OfferCycleMetrics.class, "offers-received"));
+    this.offersAccepted = metrics.histogram(MetricRegistry.name(OfferCycleMetrics.class, "offers-accepted"));
+    this.offersDeclined = metrics.histogram(MetricRegistry.name(OfferCycleMetrics.class, "offers-declined"));
+    this.cycleFailures = metrics.counter(MetricRegistry.name(OfferCycleMetrics.class, "cycle-failures"));
+  }
+
+  /**
+   * Starts timing an entire offer cycle. The returned context must be closed when the cycle completes.
+   */
+  public Timer.Context timeCycle() {
+    return cycleTimer.time();
+  }
+
+  /**
+   * Starts timing a single stage of an offer cycle. The returned context must be closed when the stage completes.
+   */
+  public Timer.Context time(Stage stage) {
+    return stageTimers.get(stage).time();
+  }
+
+  public void recordOffers(int received, int accepted, int declined) {
+    offersReceived.update(received);
+    offersAccepted.update(accepted);
+    offersDeclined.update(declined);
+  }
+
+  public void recordFailure() {
+    cycleFailures.inc();
+  }
+}
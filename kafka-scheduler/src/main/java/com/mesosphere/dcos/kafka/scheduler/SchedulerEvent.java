@@ -0,0 +1,127 @@
+package com.mesosphere.dcos.kafka.scheduler;
+
+import org.apache.mesos.Protos.FrameworkID;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.OfferID;
+import org.apache.mesos.Protos.SlaveID;
+import org.apache.mesos.Protos.TaskStatus;
+import org.apache.mesos.SchedulerDriver;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Mesos driver callback which has been queued for processing by the {@link SchedulerEventLoop}.
+ */
+public class SchedulerEvent {
+
+  /**
+   * The driver callback which produced an event.
+   */
+  public enum Type {
+    OFFERS,
+    STATUS,
+    RESCIND,
+    REGISTERED,
+    REREGISTERED,
+    SLAVE_LOST
+  }
+
+  private final Type type;
+  private final SchedulerDriver driver;
+  private final List<Offer> offers;
+  private final TaskStatus status;
+  private final OfferID offerId;
+  private final FrameworkID frameworkId;
+  private final SlaveID slaveId;
+  private final long enqueuedNanos;
+
+  private SchedulerEvent(
+          Type type,
+          SchedulerDriver driver,
+          List<Offer> offers,
+          TaskStatus status,
+          OfferID offerId,
+          FrameworkID frameworkId,
+          SlaveID slaveId) {
+    this.type = type;
+    this.driver = driver;
+    this.offers = offers;
+    this.status = status;
+    this.offerId = offerId;
+    this.frameworkId = frameworkId;
+    this.slaveId = slaveId;
+    this.enqueuedNanos = System.nanoTime();
+  }
+
+  public static SchedulerEvent offers(SchedulerDriver driver, List<Offer> offers) {
+    return new SchedulerEvent(Type.OFFERS, driver, offers, null, null, null, null);
+  }
+
+  public static SchedulerEvent status(SchedulerDriver driver, TaskStatus status) {
+    return new SchedulerEvent(Type.STATUS, driver, Collections.emptyList(), status, null, null, null);
+  }
+
+  public static SchedulerEvent rescind(SchedulerDriver driver, OfferID offerId) {
+    return new SchedulerEvent(Type.RESCIND, driver, Collections.emptyList(), null, offerId, null, null);
+  }
+
+  public static SchedulerEvent registered(SchedulerDriver driver, FrameworkID frameworkId) {
+    return new SchedulerEvent(Type.REGISTERED, driver, Collections.emptyList(), null, null, frameworkId, null);
+  }
+
+  public static SchedulerEvent reregistered(SchedulerDriver driver) {
+    return new SchedulerEvent(Type.REREGISTERED, driver, Collections.emptyList(), null, null, null, null);
+  }
+
+  public static SchedulerEvent slaveLost(SchedulerDriver driver, SlaveID slaveId) {
+    return new SchedulerEvent(Type.SLAVE_LOST, driver, Collections.emptyList(), null, null, null, slaveId);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public SchedulerDriver getDriver() {
+    return driver;
+  }
+
+  public List<Offer> getOffers() {
+    return offers;
+  }
+
+  public TaskStatus getStatus() {
+    return status;
+  }
+
+  public OfferID getOfferId() {
+    return offerId;
+  }
+
+  public FrameworkID getFrameworkId() {
+    return frameworkId;
+  }
+
+  public SlaveID getSlaveId() {
+    return slaveId;
+  }
+
+  /**
+   * Returns the {@link System#nanoTime()} at which this event was created by the driver callback.
+   */
+  public long getEnqueuedNanos() {
+    return enqueuedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "SchedulerEvent{" +
+            "type=" + type +
+            ", offers=" + offers.size() +
+            ", status=" + (status == null ? null : status.getTaskId().getValue()) +
+            ", offerId=" + (offerId == null ? null : offerId.getValue()) +
+            ", frameworkId=" + (frameworkId == null ? null : frameworkId.getValue()) +
+            ", slaveId=" + (slaveId == null ? null : slaveId.getValue()) +
+            '}';
+  }
+}
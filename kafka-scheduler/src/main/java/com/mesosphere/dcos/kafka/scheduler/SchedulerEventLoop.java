@@ -0,0 +1,245 @@
+package com.mesosphere.dcos.kafka.scheduler;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.mesos.Protos.FrameworkID;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.OfferID;
+import org.apache.mesos.Protos.SlaveID;
+import org.apache.mesos.Protos.TaskStatus;
+import org.apache.mesos.SchedulerDriver;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples the Mesos driver callback thread from offer and status processing. Driver callbacks
+ * enqueue {@link SchedulerEvent}s onto a bounded queue, and a single thread drains the queue in
+ * batches and hands the batched work to a {@link Handler}.
+ *
+ * Within a batch, registration and agent loss callbacks are processed first, then all status
+ * updates (in arrival order), and then all offers received in the batch are evaluated together in
+ * a single offer cycle. Offers which were rescinded before the batch was processed are dropped.
+ * Since every callback which touches the plan or the reconciler runs on the event loop thread,
+ * none of them can interleave with an offer cycle.
+ */
+public class SchedulerEventLoop implements Runnable {
+  private static final Log log = LogFactory.getLog(SchedulerEventLoop.class);
+
+  public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+  private static final int MAX_BATCH_SIZE = 100;
+
+  /**
+   * Performs the actual processing of batched driver callbacks on the event loop thread.
+   */
+  public interface Handler {
+    void handleRegistered(SchedulerDriver driver, FrameworkID frameworkId);
+
+    void handleReregistered(SchedulerDriver driver);
+
+    void handleSlaveLost(SchedulerDriver driver, SlaveID slaveId);
+
+    void handleStatusUpdates(SchedulerDriver driver, List<TaskStatus> statuses);
+
+    void handleResourceOffers(SchedulerDriver driver, List<Offer> offers);
+  }
+
+  private final BlockingQueue<SchedulerEvent> queue;
+  private final Handler handler;
+
+  private final Timer offersLatency;
+  private final Timer statusLatency;
+  private final Histogram batchSize;
+  private final Counter rejectedOffers;
+
+  public SchedulerEventLoop(int capacity, Handler handler, MetricRegistry metrics) {
+    this.queue = new ArrayBlockingQueue<>(capacity > 0 ? capacity : DEFAULT_QUEUE_CAPACITY);
+    this.handler = handler;
+
+    String queueDepthName = MetricRegistry.name(SchedulerEventLoop.class, "queue-depth");
+    metrics.remove(queueDepthName);
+    metrics.register(queueDepthName, new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return queue.size();
+      }
+    });
+    this.offersLatency = metrics.timer(MetricRegistry.name(SchedulerEventLoop.class, "offers-latency"));
+    this.statusLatency = metrics.timer(MetricRegistry.name(SchedulerEventLoop.class, "status-latency"));
+    this.batchSize = metrics.histogram(MetricRegistry.name(SchedulerEventLoop.class, "batch-size"));
+    this.rejectedOffers = metrics.counter(MetricRegistry.name(SchedulerEventLoop.class, "rejected-offers"));
+  }
+
+  /**
+   * Queues offers for processing. If the queue is full the offers are declined immediately, so
+   * that Mesos may re-offer them once the backlog has cleared.
+   */
+  public void enqueueOffers(SchedulerDriver driver, List<Offer> offers) {
+    if (!queue.offer(SchedulerEvent.offers(driver, offers))) {
+      log.warn(String.format("Event queue is full, declining %d offers", offers.size()));
+      rejectedOffers.inc(offers.size());
+      for (Offer offer : offers) {
+        driver.declineOffer(offer.getId());
+      }
+    }
+  }
+
+  /**
+   * Queues a status update for processing. Status updates are never dropped: if the queue is
+   * full this blocks the calling driver thread until space is available, which delays the
+   * implicit acknowledgement of the update.
+   */
+  public void enqueueStatus(SchedulerDriver driver, TaskStatus status) {
+    put(SchedulerEvent.status(driver, status));
+  }
+
+  /**
+   * Queues a (re-)registration with the master, blocking the calling driver thread if the queue
+   * is full, as for status updates.
+   */
+  public void enqueueRegistered(SchedulerDriver driver, FrameworkID frameworkId) {
+    put(SchedulerEvent.registered(driver, frameworkId));
+  }
+
+  public void enqueueReregistered(SchedulerDriver driver) {
+    put(SchedulerEvent.reregistered(driver));
+  }
+
+  /**
+   * Queues the loss of an agent, blocking the calling driver thread if the queue is full.
+   */
+  public void enqueueSlaveLost(SchedulerDriver driver, SlaveID slaveId) {
+    put(SchedulerEvent.slaveLost(driver, slaveId));
+  }
+
+  /**
+   * Queues a rescinded offer, so that it is dropped from any not-yet-processed batch.
+   */
+  public void enqueueRescind(SchedulerDriver driver, OfferID offerId) {
+    if (!queue.offer(SchedulerEvent.rescind(driver, offerId))) {
+      log.warn("Event queue is full, ignoring rescinded offer: " + offerId.getValue());
+    }
+  }
+
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  private void put(SchedulerEvent event) {
+    try {
+      queue.put(event);
+    } catch (InterruptedException e) {
+      log.error("Interrupted while queueing event: " + event, e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    Thread.currentThread().setName("KafkaSchedulerEventLoop");
+    log.info("Starting scheduler event loop");
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        List<SchedulerEvent> batch = new ArrayList<>();
+        batch.add(queue.take());
+        queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+        processBatch(batch);
+      } catch (InterruptedException e) {
+        log.info("Scheduler event loop interrupted, exiting");
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        log.error("Unexpected exception encountered when processing scheduler events", e);
+      }
+    }
+  }
+
+  void processBatch(List<SchedulerEvent> batch) {
+    batchSize.update(batch.size());
+
+    SchedulerDriver driver = null;
+    List<SchedulerEvent> driverEvents = new ArrayList<>();
+    List<TaskStatus> statuses = new ArrayList<>();
+    List<Offer> offers = new ArrayList<>();
+    Set<OfferID> rescindedOfferIds = new HashSet<>();
+    boolean hasOffers = false;
+
+    for (SchedulerEvent event : batch) {
+      driver = event.getDriver();
+      switch (event.getType()) {
+        case STATUS:
+          statuses.add(event.getStatus());
+          break;
+        case OFFERS:
+          hasOffers = true;
+          offers.addAll(event.getOffers());
+          break;
+        case RESCIND:
+          rescindedOfferIds.add(event.getOfferId());
+          break;
+        case REGISTERED:
+        case REREGISTERED:
+        case SLAVE_LOST:
+          driverEvents.add(event);
+          break;
+        default:
+          log.warn("Ignoring unknown event: " + event);
+          break;
+      }
+    }
+
+    for (SchedulerEvent event : driverEvents) {
+      switch (event.getType()) {
+        case REGISTERED:
+          handler.handleRegistered(event.getDriver(), event.getFrameworkId());
+          break;
+        case REREGISTERED:
+          handler.handleReregistered(event.getDriver());
+          break;
+        case SLAVE_LOST:
+          handler.handleSlaveLost(event.getDriver(), event.getSlaveId());
+          break;
+        default:
+          break;
+      }
+    }
+
+    if (!statuses.isEmpty()) {
+      handler.handleStatusUpdates(driver, statuses);
+    }
+
+    if (hasOffers) {
+      List<Offer> liveOffers = new ArrayList<>();
+      for (Offer offer : offers) {
+        if (rescindedOfferIds.contains(offer.getId())) {
+          log.info("Dropping rescinded offer: " + offer.getId().getValue());
+        } else {
+          liveOffers.add(offer);
+        }
+      }
+      handler.handleResourceOffers(driver, liveOffers);
+    }
+
+    long now = System.nanoTime();
+    for (SchedulerEvent event : batch) {
+      long latency = now - event.getEnqueuedNanos();
+      switch (event.getType()) {
+        case STATUS:
+          statusLatency.update(latency, TimeUnit.NANOSECONDS);
+          break;
+        case OFFERS:
+          offersLatency.update(latency, TimeUnit.NANOSECONDS);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.mesosphere.dcos.kafka.scheduler;
+
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.utils.ZKPaths;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Elects a single active scheduler among the scheduler processes of a framework, using a {@link LeaderLatch} under the
+ * framework's ZooKeeper root. Processes which aren't elected wait as standbys, and the next one takes over as soon as
+ * the active scheduler's ZooKeeper session ends.
+ *
+ * A scheduler which loses leadership, e.g. because its ZooKeeper connection was suspended, may no longer act on the
+ * framework's state, since a standby may already have taken over. The provided callback is invoked when this happens,
+ * which by default exits the process so that it's restarted as a standby.
+ */
+public class SchedulerLeaderElection implements Closeable {
+  private static final Log log = LogFactory.getLog(SchedulerLeaderElection.class);
+
+  static final String LEADER_PATH_NAME = "SchedulerLeader";
+
+  private static final int POLL_DELAY_MS = 1000;
+  private static final int CURATOR_MAX_RETRIES = 3;
+
+  private final CuratorFramework client;
+  private final LeaderLatch latch;
+  private volatile boolean closed = false;
+
+  public SchedulerLeaderElection(ZookeeperConfiguration zkConfig) {
+    this(zkConfig, () -> {
+      log.fatal("Scheduler lost leadership, exiting");
+      System.exit(1);
+    });
+  }
+
+  public SchedulerLeaderElection(ZookeeperConfiguration zkConfig, Runnable onLeadershipLost) {
+    this.client = CuratorFrameworkFactory.newClient(
+        zkConfig.getMesosZkUri(),
+        new ExponentialBackoffRetry(POLL_DELAY_MS, CURATOR_MAX_RETRIES));
+    this.latch = new LeaderLatch(
+        client,
+        ZKPaths.makePath(zkConfig.getZkRootPath(), LEADER_PATH_NAME),
+        UUID.randomUUID().toString());
+    this.latch.addListener(new LeaderLatchListener() {
+      @Override
+      public void isLeader() {
+        log.info("Elected as the active scheduler: " + latch.getId());
+      }
+
+      @Override
+      public void notLeader() {
+        if (!closed) {
+          onLeadershipLost.run();
+        }
+      }
+    });
+  }
+
+  /**
+   * Joins the election and blocks until this process is elected as the active scheduler.
+   */
+  public void awaitLeadership() throws Exception {
+    client.start();
+    latch.start();
+    log.info("Waiting for leadership as standby scheduler: " + latch.getId());
+    latch.await();
+  }
+
+  public boolean hasLeadership() {
+    return latch.hasLeadership();
+  }
+
+  /**
+   * Leaves the election, without invoking the leadership lost callback.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    try {
+      latch.close();
+    } finally {
+      client.close();
+    }
+  }
+}
@@ -3,29 +3,59 @@ package com.mesosphere.dcos.kafka.state;
 import com.google.protobuf.TextFormat;
 import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
 import com.mesosphere.dcos.kafka.offer.OfferUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.mesos.Protos.*;
 import org.apache.mesos.curator.CuratorStateStore;
-import org.apache.mesos.offer.TaskException;
-import org.apache.mesos.offer.TaskUtils;
 import org.apache.mesos.reconciliation.TaskStatusProvider;
 import org.apache.mesos.state.SchedulerState;
 import org.apache.mesos.state.StateStoreException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.util.*;
 
 /**
  * Read/write interface for storing and retrieving information about Framework tasks. The underlying data is stored
  * against Executor IDs of "broker-0", "broker-1", etc.
+ *
+ * TaskInfos and TaskStatuses are read once from the underlying state store and then served from memory. Writes made
+ * through this class go to the state store first and are then applied to the in-memory copy, so task state must not
+ * be written directly to {@link #getStateStore()}.
+ *
+ * Batched task writes go through a ZooKeeper client owned by this class, which is released by {@link #close()}.
  */
-public class FrameworkState extends SchedulerState implements TaskStatusProvider {
+public class FrameworkState extends SchedulerState implements TaskStatusProvider, Closeable {
     private static final Logger log = LoggerFactory.getLogger(FrameworkState.class);
 
+    private static final int POLL_DELAY_MS = 1000;
+    private static final int CURATOR_MAX_RETRIES = 3;
+
+    private final TaskStateCache cache = new TaskStateCache();
+    private final CuratorFramework zkClient;
+    private final TaskStateWriter writer;
+
     public FrameworkState(ZookeeperConfiguration zkConfig) {
         super(new CuratorStateStore(zkConfig.getFrameworkName(), zkConfig.getMesosZkUri()));
+        zkClient = CuratorFrameworkFactory.newClient(
+                zkConfig.getMesosZkUri(),
+                new ExponentialBackoffRetry(POLL_DELAY_MS, CURATOR_MAX_RETRIES));
+        zkClient.start();
+        writer = new TaskStateWriter(zkClient, zkConfig.getZkRootPath());
+        try {
+            cache.load(getStateStore());
+        } catch (Exception e) {
+            log.error("Failed to load task state into cache, will retry on next access", e);
+        }
     }
 
+    /**
+     * Records the provided TaskInfos along with an initial STAGING TaskStatus for each, in a single transaction. If the
+     * transaction fails nothing is recorded, and the in-memory copy is reloaded before the next access in case it was
+     * out of date.
+     */
     public void recordTasks(List<TaskInfo> taskInfos) throws StateStoreException {
         log.info(String.format("Recording %d updated TaskInfos/TaskStatuses:", taskInfos.size()));
         List<TaskStatus> taskStatuses = new ArrayList<>();
@@ -40,13 +70,31 @@ public class FrameworkState extends SchedulerState implements TaskStatusProvider
             taskStatuses.add(taskStatus);
         }
 
-        getStateStore().storeTasks(taskInfos);
+        TaskStateCache taskStateCache = getCache();
+        try {
+            writer.storeTasks(taskInfos, taskStatuses, taskStateCache);
+        } catch (StateStoreException e) {
+            taskStateCache.invalidate();
+            throw e;
+        }
+
+        taskStateCache.putTaskInfos(taskInfos);
         for (TaskStatus taskStatus : taskStatuses) {
-            recordTaskStatus(taskStatus);
+            taskStateCache.putTaskStatus(taskStatus);
         }
     }
 
+    /**
+     * Records the provided TaskStatus if it differs from the recorded TaskStatus of the same task in its task id, state
+     * or health. Other updates, such as reconciliation echoes and repeated health check results, aren't written.
+     */
     public void updateStatus(TaskStatus taskStatus) throws StateStoreException {
+        Optional<TaskStatus> recordedStatus = getCache().getTaskStatus(TaskStateCache.toTaskName(taskStatus));
+        if (recordedStatus.isPresent() && !isTransition(recordedStatus.get(), taskStatus)) {
+            log.debug("Skipping unchanged TaskStatus: {}", TextFormat.shortDebugString(taskStatus));
+            return;
+        }
+
         log.info(String.format("Recording updated TaskStatus to state store: %s", taskStatus));
         recordTaskStatus(taskStatus);
     }
@@ -56,38 +104,23 @@ public class FrameworkState extends SchedulerState implements TaskStatusProvider
     }
 
     public int getRunningBrokersCount() throws StateStoreException {
-        int count = 0;
-
-        for (TaskStatus taskStatus : getTaskStatuses()) {
-            if (taskStatus.getState().equals(TaskState.TASK_RUNNING)) {
-                count++;
-            }
-        }
-
-        return count;
+        return getCache().getTaskCount(TaskState.TASK_RUNNING);
     }
 
     @Override
     public Set<TaskStatus> getTaskStatuses() throws StateStoreException {
-        Set<TaskStatus> taskStatuses = new HashSet<TaskStatus>();
-        taskStatuses.addAll(getStateStore().fetchStatuses());
-        return taskStatuses;
+        return getCache().getTaskStatuses();
     }
 
     public List<TaskInfo> getTaskInfos() throws StateStoreException {
-        List<TaskInfo> taskInfos = new ArrayList<TaskInfo>();
-        taskInfos.addAll(getStateStore().fetchTasks());
-        return taskInfos;
+        return getCache().getTaskInfos();
     }
 
     public List<Resource> getExpectedResources() {
         List<Resource> resources = new ArrayList<>();
         try {
             for (TaskInfo taskInfo : getTaskInfos()) {
-                resources.addAll(taskInfo.getResourcesList());
-                if (taskInfo.hasExecutor()) {
-                    resources.addAll(taskInfo.getExecutor().getResourcesList());
-                }
+                resources.addAll(OfferUtils.getAllResources(taskInfo));
             }
         } catch (Exception ex) {
             log.error("Failed to retrieve all Task information", ex);
@@ -96,6 +129,20 @@ public class FrameworkState extends SchedulerState implements TaskStatusProvider
         return resources;
     }
 
+    /**
+     * Returns whether the provided reservation id is used by any recorded TaskInfo.
+     */
+    public boolean isExpectedResourceId(String resourceId) throws StateStoreException {
+        return getCache().isExpectedResourceId(resourceId);
+    }
+
+    /**
+     * Returns whether the provided persistent volume id is used by any recorded TaskInfo.
+     */
+    public boolean isExpectedPersistenceId(String persistenceId) throws StateStoreException {
+        return getCache().isExpectedPersistenceId(persistenceId);
+    }
+
     /**
      * Returns the full Task ID (including UUID) for the provided Broker index, or {@code null} if none is found.
      */
@@ -108,33 +155,53 @@ public class FrameworkState extends SchedulerState implements TaskStatusProvider
      * Returns the TaskInfo for the provided Broker index, or {@code null} if none is found.
      */
     public Optional<TaskInfo> getTaskInfoForBroker(Integer brokerId) throws Exception {
-        try {
-            return getStateStore().fetchTask(OfferUtils.brokerIdToTaskName(brokerId));
-        } catch (StateStoreException e) {
+        Optional<TaskInfo> taskInfo = getCache().getTaskInfoForBroker(brokerId);
+        if (!taskInfo.isPresent()) {
             log.warn(String.format(
                     "Failed to get TaskInfo for broker %d. This is expected when the service is "
-                            + "starting for the first time.", brokerId), e);
-            return Optional.empty();
+                            + "starting for the first time.", brokerId));
         }
+        return taskInfo;
     }
 
     /**
      * Returns the TaskStatus for the provided Broker index, or {@code null} if none is found.
      */
     public Optional<TaskStatus> getTaskStatusForBroker(Integer brokerId) throws Exception {
-        try {
-            return getStateStore().fetchStatus(OfferUtils.brokerIdToTaskName(brokerId));
-        } catch (StateStoreException e) {
+        Optional<TaskStatus> taskStatus = getCache().getTaskStatusForBroker(brokerId);
+        if (!taskStatus.isPresent()) {
             log.warn(String.format(
                     "Failed to get TaskStatus for broker %d. This is expected when the service is "
-                            + "starting for the first time.", brokerId), e);
-            return Optional.empty();
+                            + "starting for the first time.", brokerId));
         }
+        return taskStatus;
     }
 
     public void recordTaskInfo(TaskInfo taskInfo) throws StateStoreException {
         log.info(String.format("Recording updated TaskInfo to state store: %s", taskInfo));
-        getStateStore().storeTasks(Arrays.asList(taskInfo));
+        List<TaskInfo> taskInfos = Arrays.asList(taskInfo);
+        getStateStore().storeTasks(taskInfos);
+        getCache().putTaskInfos(taskInfos);
+    }
+
+    /**
+     * Discards the in-memory copy of task state and reloads it from the underlying state store.
+     */
+    public void reloadCache() throws StateStoreException {
+        cache.load(getStateStore());
+    }
+
+    /**
+     * Returns the ZooKeeper client connected to the state store's ensemble, for callers which keep their own nodes
+     * under the framework's root path. The client is closed along with this FrameworkState.
+     */
+    public CuratorFramework getZkClient() {
+        return zkClient;
+    }
+
+    @Override
+    public void close() {
+        zkClient.close();
     }
 
     private void recordTaskStatus(TaskStatus taskStatus) throws StateStoreException {
@@ -144,22 +211,25 @@ public class FrameworkState extends SchedulerState implements TaskStatusProvider
                     + taskStatus);
         } else {
             getStateStore().storeStatus(taskStatus);
+            getCache().putTaskStatus(taskStatus);
         }
     }
 
+    static boolean isTransition(TaskStatus recordedStatus, TaskStatus taskStatus) {
+        return !recordedStatus.getTaskId().equals(taskStatus.getTaskId())
+                || recordedStatus.getState() != taskStatus.getState()
+                || recordedStatus.hasHealthy() != taskStatus.hasHealthy()
+                || recordedStatus.getHealthy() != taskStatus.getHealthy();
+    }
+
     private boolean taskStatusExists(TaskStatus taskStatus) throws StateStoreException {
-        String taskName;
-        try {
-            taskName = TaskUtils.toTaskName(taskStatus.getTaskId());
-        } catch (TaskException e) {
-            throw new StateStoreException(String.format(
-                    "Failed to get TaskName/ExecName from TaskStatus %s", taskStatus), e);
-        }
-        try {
-            getStateStore().fetchStatus(taskName);
-            return true;
-        } catch (Exception e) {
-            return false;
+        return getCache().getTaskStatus(TaskStateCache.toTaskName(taskStatus)).isPresent();
+    }
+
+    private TaskStateCache getCache() throws StateStoreException {
+        if (!cache.isLoaded()) {
+            cache.load(getStateStore());
         }
+        return cache;
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.mesosphere.dcos.kafka.state;
+
+import com.mesosphere.dcos.kafka.offer.OfferUtils;
+import org.apache.mesos.Protos.Resource;
+import org.apache.mesos.Protos.TaskInfo;
+import org.apache.mesos.Protos.TaskState;
+import org.apache.mesos.Protos.TaskStatus;
+import org.apache.mesos.offer.TaskException;
+import org.apache.mesos.offer.TaskUtils;
+import org.apache.mesos.state.StateStore;
+import org.apache.mesos.state.StateStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * In-memory copy of the TaskInfos and TaskStatuses held in a {@link StateStore}, indexed by task name, broker id and
+ * {@link TaskState}, along with the reservation and persistence ids used by the TaskInfos. The cache is populated once
+ * from the StateStore, after which {@link FrameworkState} keeps it current by writing through every TaskInfo and
+ * TaskStatus it stores.
+ */
+class TaskStateCache {
+    private static final Logger log = LoggerFactory.getLogger(TaskStateCache.class);
+
+    private final Map<String, TaskInfo> taskInfosByName = new HashMap<>();
+    private final Map<String, TaskStatus> taskStatusesByName = new HashMap<>();
+    private final Map<Integer, String> taskNamesByBrokerId = new HashMap<>();
+    private final Map<TaskState, Set<String>> taskNamesByState = new EnumMap<>(TaskState.class);
+    private final Map<String, String> taskNamesByResourceId = new HashMap<>();
+    private final Map<String, String> taskNamesByPersistenceId = new HashMap<>();
+    private boolean loaded = false;
+
+    /**
+     * Replaces the content of this cache with everything currently held in the provided {@link StateStore}.
+     */
+    synchronized void load(StateStore stateStore) throws StateStoreException {
+        Collection<TaskInfo> taskInfos = stateStore.fetchTasks();
+        Collection<TaskStatus> taskStatuses = stateStore.fetchStatuses();
+
+        taskInfosByName.clear();
+        taskStatusesByName.clear();
+        taskNamesByBrokerId.clear();
+        taskNamesByState.clear();
+        taskNamesByResourceId.clear();
+        taskNamesByPersistenceId.clear();
+
+        putTaskInfos(taskInfos);
+        for (TaskStatus taskStatus : taskStatuses) {
+            putTaskStatus(taskStatus);
+        }
+
+        loaded = true;
+        log.info(String.format("Loaded %d TaskInfos and %d TaskStatuses into cache",
+                taskInfosByName.size(), taskStatusesByName.size()));
+    }
+
+    synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Marks the content of this cache as out of date, so that it's loaded again on the next access.
+     */
+    synchronized void invalidate() {
+        loaded = false;
+    }
+
+    synchronized void putTaskInfos(Collection<TaskInfo> taskInfos) {
+        for (TaskInfo taskInfo : taskInfos) {
+            TaskInfo previousTaskInfo = taskInfosByName.put(taskInfo.getName(), taskInfo);
+            if (previousTaskInfo != null) {
+                removeResourceIds(previousTaskInfo);
+            }
+            addResourceIds(taskInfo);
+
+            Integer brokerId = toBrokerId(taskInfo.getName());
+            if (brokerId != null) {
+                taskNamesByBrokerId.put(brokerId, taskInfo.getName());
+            }
+        }
+    }
+
+    synchronized void putTaskStatus(TaskStatus taskStatus) throws StateStoreException {
+        String taskName = toTaskName(taskStatus);
+
+        TaskStatus previousStatus = taskStatusesByName.put(taskName, taskStatus);
+        if (previousStatus != null) {
+            getTaskNames(previousStatus.getState()).remove(taskName);
+        }
+        getTaskNames(taskStatus.getState()).add(taskName);
+    }
+
+    synchronized List<TaskInfo> getTaskInfos() {
+        return new ArrayList<>(taskInfosByName.values());
+    }
+
+    synchronized Set<TaskStatus> getTaskStatuses() {
+        return new HashSet<>(taskStatusesByName.values());
+    }
+
+    synchronized Optional<TaskInfo> getTaskInfo(String taskName) {
+        return Optional.ofNullable(taskInfosByName.get(taskName));
+    }
+
+    synchronized Optional<TaskStatus> getTaskStatus(String taskName) {
+        return Optional.ofNullable(taskStatusesByName.get(taskName));
+    }
+
+    synchronized Optional<TaskInfo> getTaskInfoForBroker(int brokerId) {
+        String taskName = taskNamesByBrokerId.get(brokerId);
+        return taskName == null ? Optional.empty() : getTaskInfo(taskName);
+    }
+
+    synchronized Optional<TaskStatus> getTaskStatusForBroker(int brokerId) {
+        String taskName = taskNamesByBrokerId.get(brokerId);
+        return taskName == null ? Optional.empty() : getTaskStatus(taskName);
+    }
+
+    synchronized int getTaskCount(TaskState taskState) {
+        return getTaskNames(taskState).size();
+    }
+
+    synchronized boolean isExpectedResourceId(String resourceId) {
+        return taskNamesByResourceId.containsKey(resourceId);
+    }
+
+    synchronized boolean isExpectedPersistenceId(String persistenceId) {
+        return taskNamesByPersistenceId.containsKey(persistenceId);
+    }
+
+    static String toTaskName(TaskStatus taskStatus) throws StateStoreException {
+        try {
+            return TaskUtils.toTaskName(taskStatus.getTaskId());
+        } catch (TaskException e) {
+            throw new StateStoreException(String.format(
+                    "Failed to get TaskName/ExecName from TaskStatus %s", taskStatus), e);
+        }
+    }
+
+    private Set<String> getTaskNames(TaskState taskState) {
+        Set<String> taskNames = taskNamesByState.get(taskState);
+        if (taskNames == null) {
+            taskNames = new HashSet<>();
+            taskNamesByState.put(taskState, taskNames);
+        }
+        return taskNames;
+    }
+
+    private void addResourceIds(TaskInfo taskInfo) {
+        for (Resource resource : OfferUtils.getAllResources(taskInfo)) {
+            String resourceId = OfferUtils.getResourceId(resource);
+            if (resourceId != null) {
+                taskNamesByResourceId.put(resourceId, taskInfo.getName());
+            }
+            String persistenceId = OfferUtils.getPersistenceId(resource);
+            if (persistenceId != null) {
+                taskNamesByPersistenceId.put(persistenceId, taskInfo.getName());
+            }
+        }
+    }
+
+    private void removeResourceIds(TaskInfo taskInfo) {
+        for (Resource resource : OfferUtils.getAllResources(taskInfo)) {
+            String resourceId = OfferUtils.getResourceId(resource);
+            if (resourceId != null) {
+                taskNamesByResourceId.remove(resourceId, taskInfo.getName());
+            }
+            String persistenceId = OfferUtils.getPersistenceId(resource);
+            if (persistenceId != null) {
+                taskNamesByPersistenceId.remove(persistenceId, taskInfo.getName());
+            }
+        }
+    }
+
+    private static Integer toBrokerId(String taskName) {
+        try {
+            return OfferUtils.nameToId(taskName);
+        } catch (NumberFormatException e) {
+            log.warn("Task name doesn't correspond to a broker id: " + taskName);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mesosphere.dcos.kafka.state;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.mesos.Protos.TaskInfo;
+import org.apache.mesos.Protos.TaskStatus;
+import org.apache.mesos.curator.CuratorStateStore;
+import org.apache.mesos.state.StateStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Writes TaskInfos together with their TaskStatuses in a single ZooKeeper transaction, to the same nodes which
+ * {@link CuratorStateStore} reads them from. Either every node is written or none is, and the whole batch costs one
+ * round trip, rather than one per TaskInfo and TaskStatus.
+ *
+ * Whether a node must be created or updated is decided from the {@link TaskStateCache}, so the batch doesn't have to
+ * read ZooKeeper first. If the cache is out of date the transaction fails as a whole and nothing is written.
+ *
+ * The client is owned by the caller, which is responsible for closing it.
+ */
+class TaskStateWriter {
+    private static final Logger log = LoggerFactory.getLogger(TaskStateWriter.class);
+
+    static final String TASKS_ROOT_NAME = "Tasks";
+    static final String TASK_INFO_NAME = "TaskInfo";
+    static final String TASK_STATUS_NAME = "TaskStatus";
+
+    private final CuratorFramework client;
+    private final String tasksPath;
+    private boolean tasksPathCreated = false;
+
+    /**
+     * @param client a started client connected to the ZooKeeper ensemble of the state store
+     * @param rootPath the root path of the state store, see {@link
+     *        com.mesosphere.dcos.kafka.config.ZookeeperConfiguration#getZkRootPath()}
+     */
+    TaskStateWriter(CuratorFramework client, String rootPath) {
+        this.client = client;
+        this.tasksPath = ZKPaths.makePath(rootPath, TASKS_ROOT_NAME);
+    }
+
+    /**
+     * Stores the TaskInfos and the TaskStatuses of the same tasks in one transaction.
+     *
+     * @param taskInfos the TaskInfos to store
+     * @param taskStatuses a TaskStatus for each TaskInfo, in the same order
+     * @param cache the cache holding the tasks which already exist in the state store
+     */
+    void storeTasks(List<TaskInfo> taskInfos, List<TaskStatus> taskStatuses, TaskStateCache cache)
+            throws StateStoreException {
+        if (taskInfos.isEmpty()) {
+            return;
+        }
+
+        try {
+            ensureTasksPath();
+
+            CuratorTransactionFinal transaction = null;
+            for (int i = 0; i < taskInfos.size(); i++) {
+                TaskInfo taskInfo = taskInfos.get(i);
+                String taskPath = ZKPaths.makePath(tasksPath, taskInfo.getName());
+                String infoPath = ZKPaths.makePath(taskPath, TASK_INFO_NAME);
+                String statusPath = ZKPaths.makePath(taskPath, TASK_STATUS_NAME);
+                byte[] infoBytes = taskInfo.toByteArray();
+                byte[] statusBytes = taskStatuses.get(i).toByteArray();
+
+                if (cache.getTaskInfo(taskInfo.getName()).isPresent()) {
+                    transaction = next(transaction).setData().forPath(infoPath, infoBytes).and();
+                } else {
+                    transaction = next(transaction).create().forPath(taskPath).and();
+                    transaction = next(transaction).create().forPath(infoPath, infoBytes).and();
+                }
+
+                if (cache.getTaskStatus(taskInfo.getName()).isPresent()) {
+                    transaction = next(transaction).setData().forPath(statusPath, statusBytes).and();
+                } else {
+                    transaction = next(transaction).create().forPath(statusPath, statusBytes).and();
+                }
+            }
+
+            transaction.commit();
+            log.info(String.format("Stored %d TaskInfos and TaskStatuses in one transaction", taskInfos.size()));
+        } catch (Exception e) {
+            throw new StateStoreException("Failed to store TaskInfos and TaskStatuses in one transaction", e);
+        }
+    }
+
+    private CuratorTransaction next(CuratorTransactionFinal transaction) {
+        return transaction == null ? client.inTransaction() : transaction;
+    }
+
+    private synchronized void ensureTasksPath() throws Exception {
+        if (!tasksPathCreated) {
+            ZKPaths.mkdirs(client.getZookeeperClient().getZooKeeper(), tasksPath);
+            tasksPathCreated = true;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mesosphere.dcos.kafka.web;
+
+import com.mesosphere.dcos.kafka.scheduler.KafkaScheduler;
+import org.apache.mesos.scheduler.plan.api.PlanResource;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves the {@link PlanResource} of the active scheduler. The plan is only built once a standby scheduler takes over,
+ * after the HTTP server has started, so the PlanResource is located on each request rather than registered directly.
+ */
+@Path("/v1/plan")
+public class ActivePlanResource {
+  private final AtomicReference<KafkaScheduler> activeScheduler;
+  private PlanResource planResource;
+
+  public ActivePlanResource(AtomicReference<KafkaScheduler> activeScheduler) {
+    this.activeScheduler = activeScheduler;
+  }
+
+  @Path("/")
+  public synchronized PlanResource getPlanResource() {
+    KafkaScheduler kafkaScheduler = activeScheduler.get();
+    if (kafkaScheduler == null) {
+      throw new WebApplicationException(Response.Status.SERVICE_UNAVAILABLE);
+    }
+
+    if (planResource == null) {
+      planResource = new PlanResource(kafkaScheduler.getPlanManager());
+    }
+    return planResource;
+  }
+}
@@ -0,0 +1,28 @@
+package com.mesosphere.dcos.kafka.web;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.mesosphere.dcos.kafka.scheduler.KafkaScheduler;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This health-check fails while the process is a standby scheduler, which hasn't taken over as the active scheduler
+ * yet, and succeeds once the active scheduler has been started.
+ */
+public class ActiveSchedulerCheck extends HealthCheck {
+  public static final String NAME = "active_scheduler";
+  private final AtomicReference<KafkaScheduler> activeScheduler;
+
+  public ActiveSchedulerCheck(AtomicReference<KafkaScheduler> activeScheduler) {
+    this.activeScheduler = activeScheduler;
+  }
+
+  @Override
+  protected Result check() throws Exception {
+    if (activeScheduler.get() != null) {
+      return Result.healthy("Scheduler is active.");
+    } else {
+      return Result.unhealthy("Scheduler is a standby, waiting to take over.");
+    }
+  }
+}
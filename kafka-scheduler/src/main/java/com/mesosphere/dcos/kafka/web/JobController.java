@@ -0,0 +1,69 @@
+package com.mesosphere.dcos.kafka.web;
+
+import com.mesosphere.dcos.kafka.cmd.Job;
+import com.mesosphere.dcos.kafka.cmd.JobManager;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Optional;
+
+@Path("/v1/jobs")
+@Produces("application/json")
+public class JobController {
+  private final Log log = LogFactory.getLog(JobController.class);
+
+  private final JobManager jobManager;
+
+  public JobController(JobManager jobManager) {
+    this.jobManager = jobManager;
+  }
+
+  @GET
+  public Response listJobs() {
+    try {
+      JSONArray jobs = new JSONArray();
+      for (Job job : jobManager.getJobs()) {
+        jobs.put(job.toJson(Long.MAX_VALUE));
+      }
+      return Response.ok(jobs.toString(), MediaType.APPLICATION_JSON).build();
+    } catch (Exception ex) {
+      log.error("Failed to list jobs", ex);
+      return Response.serverError().build();
+    }
+  }
+
+  @GET
+  @Path("/{id}")
+  public Response getJob(@PathParam("id") String id, @QueryParam("since") Long sinceLine) {
+    try {
+      Optional<Job> job = jobManager.getJob(id);
+      if (!job.isPresent()) {
+        return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      long since = sinceLine == null ? 0 : sinceLine;
+      return Response.ok(job.get().toJson(since).toString(), MediaType.APPLICATION_JSON).build();
+    } catch (Exception ex) {
+      log.error("Failed to fetch job: " + id, ex);
+      return Response.serverError().build();
+    }
+  }
+
+  @DELETE
+  @Path("/{id}")
+  public Response cancelJob(@PathParam("id") String id) {
+    try {
+      Optional<Job> job = jobManager.cancel(id);
+      if (!job.isPresent()) {
+        return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      return Response.ok(job.get().toJson(Long.MAX_VALUE).toString(), MediaType.APPLICATION_JSON).build();
+    } catch (Exception ex) {
+      log.error("Failed to cancel job: " + id, ex);
+      return Response.serverError().build();
+    }
+  }
+}
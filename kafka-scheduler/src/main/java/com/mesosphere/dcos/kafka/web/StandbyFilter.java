@@ -0,0 +1,33 @@
+package com.mesosphere.dcos.kafka.web;
+
+import com.mesosphere.dcos.kafka.scheduler.KafkaScheduler;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rejects API requests with 503 Service Unavailable until the active scheduler has been started, so that a standby
+ * scheduler serves its health checks but none of the API.
+ */
+@PreMatching
+public class StandbyFilter implements ContainerRequestFilter {
+  private final AtomicReference<KafkaScheduler> activeScheduler;
+
+  public StandbyFilter(AtomicReference<KafkaScheduler> activeScheduler) {
+    this.activeScheduler = activeScheduler;
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    if (activeScheduler.get() == null) {
+      requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+          .entity("Scheduler is a standby, waiting to take over.")
+          .type(MediaType.TEXT_PLAIN)
+          .build());
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.mesosphere.dcos.kafka.web;
 
 import com.mesosphere.dcos.kafka.cmd.CmdExecutor;
+import com.mesosphere.dcos.kafka.cmd.Job;
 import com.mesosphere.dcos.kafka.commons.state.KafkaState;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -10,8 +11,8 @@ import org.json.JSONObject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @Path("/v1/topics")
 public class TopicController {
@@ -77,6 +78,18 @@ public class TopicController {
     }
   }
 
+  @GET
+  @Path("/offsets")
+  public Response getOffsets(@QueryParam("topic") List<String> topicNames, @QueryParam("time") Long time) {
+    try {
+      JSONObject offsets = cmdExecutor.getOffsets(topicNames, time);
+      return Response.ok(offsets.toString(), MediaType.APPLICATION_JSON).build();
+    } catch (Exception ex) {
+      log.error("Failed to fetch offsets for: " + topicNames + " with exception: " + ex);
+      return Response.serverError().build();
+    }
+  }
+
   @GET
   @Path("/{name}")
   public Response getTopic(@PathParam("name") String topicName) {
@@ -97,11 +110,11 @@ public class TopicController {
       @QueryParam("key") String key,
       @QueryParam("value") String value,
       @QueryParam("partitions") String partitions,
-      @QueryParam("messages") String messages) {
+      @QueryParam("messages") String messages,
+      @QueryParam("async") boolean async) {
 
     try {
       JSONObject result = null;
-      List<String> cmds = null;
 
       if (operation == null) {
         result = new JSONObject();
@@ -110,11 +123,14 @@ public class TopicController {
         switch (operation) {
           case "producer-test":
             int messageCount = Integer.parseInt(messages);
+            if (async) {
+              Job job = cmdExecutor.submitProducerTest(name, messageCount);
+              return Response.accepted(job.toJson(0).toString()).type(MediaType.APPLICATION_JSON).build();
+            }
             result = cmdExecutor.producerTest(name, messageCount);
             break;
           case "partitions":
-            cmds = Arrays.asList("--partitions", partitions);
-            result = cmdExecutor.alterTopic(name, cmds);
+            result = cmdExecutor.addPartitions(name, Integer.parseInt(partitions));
             break;
           default:
             result = new JSONObject();
@@ -125,6 +141,9 @@ public class TopicController {
 
       return Response.ok(result.toString(), MediaType.APPLICATION_JSON).build();
 
+    } catch (RejectedExecutionException ex) {
+      log.warn("Rejected operation: " + operation + " on Topic: " + name + ", too many jobs queued");
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
     } catch (Exception ex) {
       log.error("Failed to perform operation: " + operation + " on Topic: " + name + " with exception: " + ex);
       return Response.serverError().build();
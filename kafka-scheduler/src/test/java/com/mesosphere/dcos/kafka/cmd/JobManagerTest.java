@@ -0,0 +1,102 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class tests the JobManager and Job classes.
+ */
+public class JobManagerTest {
+    private ThreadPoolExecutor executor;
+    private JobManager jobManager;
+
+    @Before
+    public void beforeEach() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1));
+        jobManager = new JobManager(executor);
+    }
+
+    @After
+    public void afterEach() {
+        for (Job job : jobManager.getJobs()) {
+            job.cancel();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testJobOutputCollected() throws Exception {
+        Job job = jobManager.submit("echo", Arrays.asList("sh", "-c", "echo line0; echo line1 >&2; echo line2"));
+        waitForFinish(job);
+
+        Assert.assertEquals(Job.State.SUCCEEDED, job.getState());
+        JSONObject json = job.toJson(0);
+        Assert.assertEquals(0, json.getInt("exit_code"));
+        Assert.assertEquals(3, json.getJSONArray("output").length());
+        Assert.assertEquals(3, json.getLong("next_line"));
+
+        JSONObject incremental = jobManager.getJob(job.getId()).get().toJson(2);
+        Assert.assertEquals(1, incremental.getJSONArray("output").length());
+        Assert.assertEquals("line2", incremental.getJSONArray("output").getString(0));
+    }
+
+    @Test
+    public void testAwaitFinished() throws Exception {
+        Job job = jobManager.submit("echo", Arrays.asList("sh", "-c", "sleep 0.2; echo line0; echo line1"));
+        job.awaitFinished();
+
+        Assert.assertEquals(Job.State.SUCCEEDED, job.getState());
+        String nl = System.lineSeparator();
+        Assert.assertEquals("line0" + nl + "line1" + nl, job.getOutput());
+    }
+
+    @Test
+    public void testFailedJob() throws Exception {
+        Job job = jobManager.submit("fail", Arrays.asList("sh", "-c", "exit 3"));
+        waitForFinish(job);
+
+        Assert.assertEquals(Job.State.FAILED, job.getState());
+        Assert.assertEquals(3, job.toJson(0).getInt("exit_code"));
+    }
+
+    @Test
+    public void testCancelRunningJob() throws Exception {
+        Job job = jobManager.submit("sleep", Arrays.asList("sleep", "30"));
+        while (job.getState() == Job.State.QUEUED) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertTrue(jobManager.cancel(job.getId()).isPresent());
+        job.awaitFinished();
+        Assert.assertEquals(Job.State.CANCELLED, job.getState());
+        Assert.assertFalse(job.cancel());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testQueueBounded() throws Exception {
+        jobManager.submit("sleep", Arrays.asList("sleep", "30"));
+        jobManager.submit("sleep", Arrays.asList("sleep", "30"));
+        jobManager.submit("sleep", Arrays.asList("sleep", "30"));
+    }
+
+    @Test
+    public void testUnknownJob() {
+        Assert.assertFalse(jobManager.getJob("unknown").isPresent());
+        Assert.assertFalse(jobManager.cancel("unknown").isPresent());
+    }
+
+    private static void waitForFinish(Job job) throws InterruptedException {
+        for (int i = 0; i < 100 && !job.isFinished(); i++) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingServer;
+import org.apache.mesos.dcos.DcosConstants;
+import org.apache.mesos.testing.CuratorTestUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class tests the LeadershipDrainer class.
+ */
+public class LeadershipDrainerTest {
+    private static final String testFrameworkName = "kafka";
+    private static final String testRoot = DcosConstants.SERVICE_ROOT_PATH_PREFIX + testFrameworkName;
+    private static final String topicPath = testRoot + "/brokers/topics/topic0";
+    private static final String reassignPath = testRoot + "/admin/reassign_partitions";
+    private static final String electionPath = testRoot + "/admin/preferred_replica_election";
+    private static final String drainedPath = testRoot + "/" + LeadershipDrainer.DRAINED_LEADERSHIP_NAME;
+
+    private static TestingServer testingServer;
+    private CuratorFramework zkClient;
+    private ZookeeperConfiguration zkConfig;
+    private KafkaState kafkaState;
+    private LeadershipDrainer drainer;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        testingServer = new TestingServer();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        CuratorTestUtils.clear(testingServer);
+        zkClient = CuratorFrameworkFactory.newClient(
+                testingServer.getConnectString(),
+                new RetryNTimes(0, 0));
+        zkClient.start();
+
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                topicPath, "{\"version\":1,\"partitions\":{\"0\":[0,1],\"1\":[1,0]}}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                topicPath + "/partitions/0/state", "{\"leader\":0,\"isr\":[0,1]}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                topicPath + "/partitions/1/state", "{\"leader\":1,\"isr\":[1,0]}".getBytes());
+
+        zkConfig = new ZookeeperConfiguration(
+                testFrameworkName,
+                testingServer.getConnectString(),
+                testingServer.getConnectString());
+        kafkaState = new KafkaState(zkConfig);
+        drainer = new LeadershipDrainer(zkClient, zkClient, zkConfig, kafkaState);
+    }
+
+    @Test
+    public void testDrainAndRestore() throws Exception {
+        // The broker is moved to the end of the replicas of the partition it's preferred for
+        Assert.assertFalse(drainer.drain(0));
+        Assert.assertTrue(drainer.isDraining(0));
+        JSONArray reassignment = readPartitions(reassignPath);
+        Assert.assertEquals(1, reassignment.length());
+        Assert.assertEquals(0, reassignment.getJSONObject(0).getInt("partition"));
+        Assert.assertEquals("[1,0]", reassignment.getJSONObject(0).getJSONArray("replicas").toString());
+
+        // Waits for the controller to complete the reassignment
+        Assert.assertFalse(drainer.drain(0));
+        Assert.assertNull(zkClient.checkExists().forPath(electionPath));
+        completeReassignment("{\"0\":[1,0],\"1\":[1,0]}");
+
+        // Requests an election for the partition the broker still leads
+        Assert.assertFalse(drainer.drain(0));
+        JSONArray election = readPartitions(electionPath);
+        Assert.assertEquals(1, election.length());
+        Assert.assertEquals(0, election.getJSONObject(0).getInt("partition"));
+
+        zkClient.delete().forPath(electionPath);
+        zkClient.setData().forPath(topicPath + "/partitions/0/state", "{\"leader\":1,\"isr\":[1,0]}".getBytes());
+        waitForLeader(0, 1);
+        Assert.assertTrue(drainer.drain(0));
+
+        // Restoring reverses the reassignment, then requests an election
+        Assert.assertFalse(drainer.restore(0));
+        reassignment = readPartitions(reassignPath);
+        Assert.assertEquals("[0,1]", reassignment.getJSONObject(0).getJSONArray("replicas").toString());
+        Assert.assertFalse(drainer.restore(0));
+        completeReassignment("{\"0\":[0,1],\"1\":[1,0]}");
+
+        Assert.assertTrue(drainer.restore(0));
+        Assert.assertEquals(0, readPartitions(electionPath).getJSONObject(0).getInt("partition"));
+        Assert.assertFalse(drainer.isDraining(0));
+        Assert.assertNull(zkClient.checkExists().forPath(drainedPath + "/0"));
+    }
+
+    @Test
+    public void testRestoreAfterFailover() throws Exception {
+        Assert.assertFalse(drainer.drain(0));
+        JSONArray stored = readPartitions(drainedPath + "/0");
+        Assert.assertEquals("[0,1]", stored.getJSONObject(0).getJSONArray("replicas").toString());
+        completeReassignment("{\"0\":[1,0],\"1\":[1,0]}");
+
+        // A new scheduler finds the original replica order in ZK, although the topic's replicas have been reordered
+        LeadershipDrainer failedOver = new LeadershipDrainer(zkClient, zkClient, zkConfig, kafkaState);
+        Assert.assertTrue(failedOver.isDraining(0));
+        Assert.assertFalse(failedOver.restore(0));
+        JSONArray reassignment = readPartitions(reassignPath);
+        Assert.assertEquals(1, reassignment.length());
+        Assert.assertEquals("[0,1]", reassignment.getJSONObject(0).getJSONArray("replicas").toString());
+
+        // Restoration continues after another failover, without reassigning again
+        failedOver = new LeadershipDrainer(zkClient, zkClient, zkConfig, kafkaState);
+        completeReassignment("{\"0\":[0,1],\"1\":[1,0]}");
+        Assert.assertTrue(failedOver.restore(0));
+        Assert.assertNull(zkClient.checkExists().forPath(reassignPath));
+        Assert.assertEquals(0, readPartitions(electionPath).getJSONObject(0).getInt("partition"));
+        Assert.assertFalse(failedOver.isDraining(0));
+        Assert.assertNull(zkClient.checkExists().forPath(drainedPath + "/0"));
+    }
+
+    @Test
+    public void testRestoreSkipsReassignedPartitions() throws Exception {
+        Assert.assertFalse(drainer.drain(0));
+        completeReassignment("{\"0\":[1,0],\"1\":[1,0]}");
+
+        // The partition is moved off the broker while it's restarting, so its new assignment is kept
+        zkClient.setData().forPath(topicPath, "{\"version\":1,\"partitions\":{\"0\":[1,2],\"1\":[1,0]}}".getBytes());
+        waitForReplicas(0, Arrays.asList(1, 2));
+        Assert.assertTrue(drainer.restore(0));
+        Assert.assertNull(zkClient.checkExists().forPath(reassignPath));
+        Assert.assertNull(zkClient.checkExists().forPath(electionPath));
+        Assert.assertFalse(drainer.isDraining(0));
+        Assert.assertNull(zkClient.checkExists().forPath(drainedPath + "/0"));
+    }
+
+    @Test
+    public void testDrainWaitsForOtherReassignment() throws Exception {
+        zkClient.create().creatingParentsIfNeeded().forPath(reassignPath, "{}".getBytes());
+        Assert.assertFalse(drainer.drain(0));
+        Assert.assertFalse(drainer.isDraining(0));
+        Assert.assertNull(zkClient.checkExists().forPath(drainedPath + "/0"));
+    }
+
+    @Test
+    public void testNothingToDrain() throws Exception {
+        Assert.assertFalse(drainer.drain(2));
+        Assert.assertTrue(drainer.drain(2));
+        Assert.assertTrue(drainer.restore(2));
+        Assert.assertNull(zkClient.checkExists().forPath(reassignPath));
+        Assert.assertNull(zkClient.checkExists().forPath(electionPath));
+    }
+
+    @Test
+    public void testRestoreWithoutDrain() throws Exception {
+        Assert.assertTrue(drainer.restore(0));
+    }
+
+    private void completeReassignment(String partitions) throws Exception {
+        zkClient.delete().forPath(reassignPath);
+        zkClient.setData().forPath(topicPath, ("{\"version\":1,\"partitions\":" + partitions + "}").getBytes());
+    }
+
+    private void waitForLeader(int partition, int leader) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            for (PartitionState partitionState : kafkaState.getPartitionStates()) {
+                if (partitionState.getPartition() == partition
+                        && partitionState.getLeader().get() == leader) {
+                    return;
+                }
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private void waitForReplicas(int partition, List<Integer> replicas) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            for (PartitionState partitionState : kafkaState.getPartitionStates()) {
+                if (partitionState.getPartition() == partition
+                        && partitionState.getReplicas().equals(replicas)) {
+                    return;
+                }
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private JSONArray readPartitions(String path) throws Exception {
+        return new JSONObject(new String(zkClient.getData().forPath(path))).getJSONArray("partitions");
+    }
+}
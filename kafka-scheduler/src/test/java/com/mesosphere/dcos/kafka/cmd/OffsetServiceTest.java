@@ -0,0 +1,139 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingServer;
+import org.apache.mesos.dcos.DcosConstants;
+import org.apache.mesos.testing.CuratorTestUtils;
+import org.junit.*;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class tests the OffsetService class against a fake broker which answers Offsets requests.
+ */
+public class OffsetServiceTest {
+    private static final String testFrameworkName = "kafka";
+    private static final String testRoot = DcosConstants.SERVICE_ROOT_PATH_PREFIX + testFrameworkName;
+    private static final long testOffset = 42L;
+
+    private static TestingServer testingServer;
+    private CuratorFramework zkClient;
+    private ServerSocket brokerSocket;
+    private ExecutorService executor;
+    private OffsetService offsetService;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        testingServer = new TestingServer();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        CuratorTestUtils.clear(testingServer);
+        zkClient = CuratorFrameworkFactory.newClient(testingServer.getConnectString(), new RetryNTimes(0, 0));
+        zkClient.start();
+
+        brokerSocket = new ServerSocket(0);
+        executor = Executors.newCachedThreadPool();
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                serveOffsetRequest();
+            }
+        });
+
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/ids/0",
+                ("{\"host\":\"localhost\",\"port\":" + brokerSocket.getLocalPort() + "}").getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0", "{\"version\":1,\"partitions\":{\"0\":[0],\"1\":[0]}}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0/partitions/0/state", "{\"leader\":0,\"isr\":[0]}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0/partitions/1/state", "{\"leader\":-1,\"isr\":[]}".getBytes());
+
+        ZookeeperConfiguration zkConfig = new ZookeeperConfiguration(
+                testFrameworkName,
+                testingServer.getConnectString(),
+                testingServer.getConnectString());
+        offsetService = new OffsetService(new KafkaState(zkConfig), executor);
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        brokerSocket.close();
+        executor.shutdownNow();
+        zkClient.close();
+    }
+
+    @Test
+    public void testGetOffsets() throws Exception {
+        Map<String, Map<Integer, Optional<Long>>> offsets =
+                offsetService.getOffsets(Arrays.asList("topic0", "missing-topic"), OffsetService.LATEST_TIME);
+
+        Assert.assertEquals(2, offsets.size());
+        Assert.assertEquals(Optional.of(testOffset), offsets.get("topic0").get(0));
+        Assert.assertEquals(Optional.empty(), offsets.get("topic0").get(1));
+        Assert.assertTrue(offsets.get("missing-topic").isEmpty());
+    }
+
+    /**
+     * Answers a single version 0 Offsets request, returning {@link #testOffset} for every requested partition.
+     */
+    private void serveOffsetRequest() {
+        try (Socket socket = brokerSocket.accept()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            in.readInt(); // request size
+            Assert.assertEquals(2, in.readShort()); // api key
+            Assert.assertEquals(0, in.readShort()); // api version
+            int correlationId = in.readInt();
+            readString(in); // client id
+            Assert.assertEquals(-1, in.readInt()); // replica id
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream response = new DataOutputStream(bytes);
+            response.writeInt(correlationId);
+            int topicCount = in.readInt();
+            response.writeInt(topicCount);
+            for (int i = 0; i < topicCount; i++) {
+                String topic = readString(in);
+                response.writeShort(topic.length());
+                response.writeBytes(topic);
+                int partitionCount = in.readInt();
+                response.writeInt(partitionCount);
+                for (int j = 0; j < partitionCount; j++) {
+                    response.writeInt(in.readInt()); // partition
+                    in.readLong(); // time
+                    in.readInt(); // max offsets
+                    response.writeShort(0);
+                    response.writeInt(1);
+                    response.writeLong(testOffset);
+                }
+            }
+
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+            out.flush();
+        } catch (IOException e) {
+            // Socket closed by afterEach
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readShort()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
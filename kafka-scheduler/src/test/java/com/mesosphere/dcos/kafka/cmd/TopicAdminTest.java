@@ -0,0 +1,195 @@
+package com.mesosphere.dcos.kafka.cmd;
+
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingServer;
+import org.apache.mesos.dcos.DcosConstants;
+import org.apache.mesos.testing.CuratorTestUtils;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class tests the TopicAdmin class.
+ */
+public class TopicAdminTest {
+    private static final String testFrameworkName = "kafka";
+    private static final String testRoot = DcosConstants.SERVICE_ROOT_PATH_PREFIX + testFrameworkName;
+    private static final String NL = System.lineSeparator();
+    private static final String PARTITIONS_NOT_INCREASED =
+            "Output: " + TopicAdmin.PARTITIONS_WARNING + NL +
+                    "Error while executing topic command : " +
+                    "The number of partitions for a topic can only be increased" + NL;
+
+    private static TestingServer testingServer;
+    private CuratorFramework zkClient;
+    private KafkaState kafkaState;
+    private TopicAdmin topicAdmin;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        testingServer = new TestingServer();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        CuratorTestUtils.clear(testingServer);
+        zkClient = CuratorFrameworkFactory.newClient(
+                testingServer.getConnectString(),
+                new RetryNTimes(0, 0));
+        zkClient.start();
+        for (int i = 0; i < 3; i++) {
+            zkClient.create().creatingParentsIfNeeded().forPath(
+                    testRoot + "/brokers/ids/" + i, "{host:host, port:9092}".getBytes());
+        }
+
+        ZookeeperConfiguration zkConfig = new ZookeeperConfiguration(
+                testFrameworkName,
+                testingServer.getConnectString(),
+                testingServer.getConnectString());
+        kafkaState = new KafkaState(zkConfig);
+        topicAdmin = new TopicAdmin(zkConfig, kafkaState);
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        kafkaState.close();
+        zkClient.close();
+    }
+
+    @Test
+    public void testAssignReplicasToBrokers() throws Exception {
+        Map<Integer, List<Integer>> assignment =
+                TopicAdmin.assignReplicasToBrokers(Arrays.asList(2, 0, 1), 4, 2, 0, 0);
+        Assert.assertEquals(Arrays.asList(0, 1), assignment.get(0));
+        Assert.assertEquals(Arrays.asList(1, 2), assignment.get(1));
+        Assert.assertEquals(Arrays.asList(2, 0), assignment.get(2));
+        Assert.assertEquals(Arrays.asList(0, 2), assignment.get(3));
+    }
+
+    @Test(expected = TopicAdmin.TopicAdminException.class)
+    public void testAssignReplicasTooFewBrokers() throws Exception {
+        TopicAdmin.assignReplicasToBrokers(Arrays.asList(0), 1, 2, 0, 0);
+    }
+
+    @Test
+    public void testCreateTopic() throws Exception {
+        JSONObject result = topicAdmin.createTopic("topic0", 3, 2);
+        Assert.assertEquals("Output: Created topic \"topic0\"." + NL, result.getString("message"));
+
+        JSONObject topic = readJson(testRoot + "/brokers/topics/topic0");
+        Assert.assertEquals(3, topic.getJSONObject("partitions").length());
+        Assert.assertEquals(2, topic.getJSONObject("partitions").getJSONArray("0").length());
+        Assert.assertNotNull(zkClient.checkExists().forPath(testRoot + "/config/topics/topic0"));
+
+        result = topicAdmin.createTopic("topic0", 3, 2);
+        Assert.assertEquals(
+                "Output: Error while executing topic command : Topic \"topic0\" already exists." + NL,
+                result.getString("message"));
+    }
+
+    @Test
+    public void testCreateTopicWithCollisionChars() throws Exception {
+        JSONObject result = topicAdmin.createTopic("topic_0", 1, 1);
+        Assert.assertEquals(
+                "Output: WARNING: Due to limitations in metric names, topics with a period ('.') or underscore " +
+                        "('_') could collide. To avoid issues it is best to use either, but not both." + NL +
+                        "Created topic \"topic_0\"." + NL,
+                result.getString("message"));
+    }
+
+    @Test
+    public void testCreateTopicCollidingName() throws Exception {
+        topicAdmin.createTopic("topic_0", 1, 1);
+        JSONObject result = topicAdmin.createTopic("topic.0", 1, 1);
+        Assert.assertEquals(
+                "Output: " + TopicAdmin.COLLISION_WARNING + NL +
+                        "Error while executing topic command : " +
+                        "Topic \"topic.0\" collides with existing topics: topic_0" + NL,
+                result.getString("message"));
+        Assert.assertNull(zkClient.checkExists().forPath(testRoot + "/brokers/topics/topic.0"));
+    }
+
+    @Test
+    public void testCreateTopicInvalidName() throws Exception {
+        JSONObject result = topicAdmin.createTopic("bad/topic", 1, 1);
+        Assert.assertTrue(result.getString("message").contains("is illegal"));
+        Assert.assertNull(zkClient.checkExists().forPath(testRoot + "/brokers/topics/bad/topic"));
+    }
+
+    @Test
+    public void testDeleteTopic() throws Exception {
+        topicAdmin.createTopic("topic0", 1, 1);
+        JSONObject result = topicAdmin.deleteTopic("topic0");
+        Assert.assertEquals(
+                "Output: Topic topic0 is marked for deletion." + NL +
+                        "Note: This will have no impact if delete.topic.enable is not set to true." + NL,
+                result.getString("message"));
+        Assert.assertNotNull(zkClient.checkExists().forPath(testRoot + "/admin/delete_topics/topic0"));
+    }
+
+    @Test
+    public void testAddPartitions() throws Exception {
+        topicAdmin.createTopic("topic0", 2, 3);
+        JSONObject result = topicAdmin.addPartitions("topic0", 4);
+        Assert.assertEquals(
+                "Output: WARNING: If partitions are increased for a topic that has a key, " +
+                        "the partition logic or ordering of the messages will be affected" + NL +
+                        "Adding partitions succeeded!" + NL,
+                result.getString("message"));
+
+        JSONObject partitions = readJson(testRoot + "/brokers/topics/topic0").getJSONObject("partitions");
+        Assert.assertEquals(4, partitions.length());
+        Assert.assertEquals(3, partitions.getJSONArray("3").length());
+
+        result = topicAdmin.addPartitions("topic0", 1);
+        Assert.assertEquals(PARTITIONS_NOT_INCREASED, result.getString("message"));
+    }
+
+    @Test
+    public void testAddPartitionsSameCount() throws Exception {
+        topicAdmin.createTopic("topic0", 2, 1);
+        JSONObject result = topicAdmin.addPartitions("topic0", 2);
+        Assert.assertEquals(PARTITIONS_NOT_INCREASED, result.getString("message"));
+        Assert.assertEquals(2, readJson(testRoot + "/brokers/topics/topic0").getJSONObject("partitions").length());
+    }
+
+    @Test
+    public void testPartitionHealth() throws Exception {
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0",
+                "{\"version\":1,\"partitions\":{\"0\":[0,1],\"1\":[1,2],\"2\":[2,0]}}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0/partitions/0/state",
+                "{\"leader\":0,\"isr\":[0,1]}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0/partitions/1/state",
+                "{\"leader\":1,\"isr\":[1]}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0/partitions/2/state",
+                "{\"leader\":-1,\"isr\":[]}".getBytes());
+
+        String underReplicated = topicAdmin.underReplicatedPartitions().getString("message");
+        Assert.assertFalse(underReplicated.contains("Partition: 0\t"));
+        Assert.assertTrue(underReplicated.contains("Partition: 1\tLeader: 1\tReplicas: 1,2\tIsr: 1"));
+        Assert.assertTrue(underReplicated.contains("Partition: 2\tLeader: none\tReplicas: 2,0\tIsr: "));
+
+        String unavailable = topicAdmin.unavailablePartitions().getString("message");
+        Assert.assertFalse(unavailable.contains("Partition: 1\t"));
+        Assert.assertTrue(unavailable.contains("Partition: 2\tLeader: none"));
+    }
+
+    private JSONObject readJson(String path) throws Exception {
+        return new JSONObject(new String(zkClient.getData().forPath(path), "UTF-8"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.mesosphere.dcos.kafka.config;
+
+import com.mesosphere.dcos.kafka.test.ConfigTestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+/**
+ * This class tests the ConfigCache class.
+ */
+public class ConfigCacheTest {
+    private KafkaSchedulerConfiguration config;
+    private long configBytes;
+
+    @Before
+    public void beforeEach() throws Exception {
+        config = ConfigTestUtils.getTestKafkaSchedulerConfiguration();
+        configBytes = config.getBytes().length;
+    }
+
+    @Test
+    public void testPutGetInvalidate() {
+        ConfigCache cache = new ConfigCache();
+        UUID id = UUID.randomUUID();
+
+        Assert.assertNull(cache.get(id));
+        cache.put(id, config);
+        Assert.assertSame(config, cache.get(id));
+        Assert.assertEquals(configBytes, cache.getTotalBytes());
+
+        cache.put(id, config);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(configBytes, cache.getTotalBytes());
+
+        cache.invalidate(id);
+        Assert.assertNull(cache.get(id));
+        Assert.assertEquals(0, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        ConfigCache cache = new ConfigCache(2 * configBytes);
+        UUID id0 = UUID.randomUUID();
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+
+        cache.put(id0, config);
+        cache.put(id1, config);
+        cache.get(id0);
+        cache.put(id2, config);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(2 * configBytes, cache.getTotalBytes());
+        Assert.assertNotNull(cache.get(id0));
+        Assert.assertNull(cache.get(id1));
+        Assert.assertNotNull(cache.get(id2));
+    }
+
+    @Test
+    public void testOversizedConfigNotCached() {
+        ConfigCache cache = new ConfigCache(configBytes - 1);
+        UUID id = UUID.randomUUID();
+
+        cache.put(id, config);
+        Assert.assertNull(cache.get(id));
+        Assert.assertEquals(0, cache.getTotalBytes());
+    }
+}
@@ -0,0 +1,117 @@
+package com.mesosphere.dcos.kafka.config;
+
+import com.mesosphere.dcos.kafka.test.ConfigTestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class tests the ConfigDiff class.
+ */
+public class ConfigDiffTest {
+    private KafkaSchedulerConfiguration oldConfig;
+    private KafkaSchedulerConfiguration newConfig;
+
+    @Before
+    public void beforeEach() {
+        oldConfig = ConfigTestUtils.getTestKafkaSchedulerConfiguration();
+        newConfig = ConfigTestUtils.getTestKafkaSchedulerConfiguration();
+    }
+
+    @Test
+    public void testNoChanges() {
+        ConfigDiff diff = ConfigDiff.between(oldConfig, newConfig);
+        Assert.assertTrue(diff.getChanges().isEmpty());
+        Assert.assertEquals(ConfigDiff.ChangeType.NO_OP, diff.getType());
+        Assert.assertFalse(diff.isRestartRequired());
+    }
+
+    @Test
+    public void testSchedulerChangeIsDynamic() {
+        newConfig.getServiceConfiguration().setPhaseStrategy("STAGE");
+        newConfig.getServiceConfiguration().setCount(5);
+
+        ConfigDiff diff = ConfigDiff.between(oldConfig, newConfig);
+        Assert.assertEquals(2, diff.getChanges().size());
+        Assert.assertEquals(ConfigDiff.ChangeType.DYNAMIC, diff.getType());
+        Assert.assertFalse(diff.isRestartRequired());
+    }
+
+    @Test
+    public void testExecutorChangeRequiresRestart() {
+        newConfig.getExecutorConfiguration().setMem(512);
+
+        ConfigDiff diff = ConfigDiff.between(oldConfig, newConfig);
+        Assert.assertEquals(1, diff.getChanges().size());
+        Assert.assertEquals("executor.mem", diff.getChanges().get(0).getKey());
+        Assert.assertEquals(ConfigDiff.ChangeType.RESTART_REQUIRED, diff.getType());
+        Assert.assertTrue(diff.isRestartRequired());
+    }
+
+    @Test
+    public void testBrokerChangeRequiresRestart() {
+        newConfig.getExecutorConfiguration().setMem(512);
+        newConfig.getBrokerConfiguration().setCpus(2);
+
+        ConfigDiff diff = ConfigDiff.between(oldConfig, newConfig);
+        Assert.assertEquals(2, diff.getChanges().size());
+        Assert.assertEquals(ConfigDiff.ChangeType.RESTART_REQUIRED, diff.getType());
+        Assert.assertTrue(diff.isRestartRequired());
+    }
+
+    @Test
+    public void testOverrideChangeRequiresRestart() {
+        Map<String, String> overrides = new HashMap<>();
+        overrides.put("log.retention.hours", "24");
+        oldConfig.getKafkaConfiguration().setOverrides(new HashMap<>(overrides));
+        overrides.put("log.retention.hours", "48");
+        newConfig.getKafkaConfiguration().setOverrides(overrides);
+
+        ConfigDiff diff = ConfigDiff.between(oldConfig, newConfig);
+        Assert.assertEquals(1, diff.getChanges().size());
+        ConfigDiff.Change change = diff.getChanges().get(0);
+        Assert.assertEquals("kafka.overrides.log.retention.hours", change.getKey());
+        Assert.assertEquals("24", change.getOldValue());
+        Assert.assertEquals("48", change.getNewValue());
+        Assert.assertTrue(diff.isRestartRequired());
+    }
+
+    @Test
+    public void testEquivalentOverridesAreNoOp() {
+        Map<String, String> oldOverrides = new HashMap<>();
+        oldOverrides.put("logRetentionHours", "24");
+        oldConfig.getKafkaConfiguration().setOverrides(oldOverrides);
+        Map<String, String> newOverrides = new HashMap<>();
+        newOverrides.put("log.retention.hours", " 24 ");
+        newConfig.getKafkaConfiguration().setOverrides(newOverrides);
+
+        ConfigDiff diff = ConfigDiff.between(oldConfig, newConfig);
+        Assert.assertEquals(1, diff.getChanges().size());
+        Assert.assertEquals(ConfigDiff.ChangeType.NO_OP, diff.getType());
+        Assert.assertEquals(ConfigDiff.getRestartHash(oldConfig), ConfigDiff.getRestartHash(newConfig));
+    }
+
+    @Test
+    public void testRestartHash() {
+        String hash = ConfigDiff.getRestartHash(oldConfig);
+        Assert.assertEquals(hash, ConfigDiff.getRestartHash(newConfig));
+
+        newConfig.getServiceConfiguration().setCount(5);
+        Assert.assertEquals(hash, ConfigDiff.getRestartHash(newConfig));
+
+        newConfig.getBrokerConfiguration().setCpus(4);
+        Assert.assertNotEquals(hash, ConfigDiff.getRestartHash(newConfig));
+    }
+
+    @Test
+    public void testUnknownKeysRequireRestart() {
+        Assert.assertEquals(ConfigDiff.ChangeType.RESTART_REQUIRED, ConfigDiff.getChangeType("service.user"));
+        Assert.assertEquals(ConfigDiff.ChangeType.RESTART_REQUIRED, ConfigDiff.getChangeType("service.counts"));
+        Assert.assertEquals(ConfigDiff.ChangeType.DYNAMIC, ConfigDiff.getChangeType("recovery.enable_replacement"));
+        Assert.assertEquals(ConfigDiff.ChangeType.RESTART_REQUIRED, ConfigDiff.getChangeType("kafka.kafka_sandbox_path"));
+        Assert.assertEquals(ConfigDiff.ChangeType.RESTART_REQUIRED, ConfigDiff.getChangeType("healthcheck.interval"));
+    }
+}
@@ -58,9 +58,16 @@ public class ConfigStateValidatorTest {
                 "bad-framework-name",
                 KafkaTestUtils.testUser,
                 KafkaTestUtils.testPlacementStrategy,
+                KafkaTestUtils.testPlacementAttribute,
                 KafkaTestUtils.testPhaseStrategy,
+                KafkaTestUtils.testPhaseConcurrency,
+                KafkaTestUtils.testIsrWaitTimeoutSecs,
+                KafkaTestUtils.testLeadershipTimeoutSecs,
                 KafkaTestUtils.testRole,
-                KafkaTestUtils.testPrincipal);
+                KafkaTestUtils.testPrincipal,
+                KafkaTestUtils.testEventLoopEnabled,
+                KafkaTestUtils.testEventQueueCapacity,
+                KafkaTestUtils.testHaEnabled);
 
         ConfigStateValidator configStateValidator = new ConfigStateValidator(frameworkState);
         Collection<ConfigStateValidator.ValidationError> errors = configStateValidator.validateServiceConfigChange(oldServiceConfiguration, newServiceConfiguration);
@@ -76,4 +83,33 @@ public class ConfigStateValidatorTest {
         Collection<ConfigStateValidator.ValidationError> errors = configStateValidator.validateServiceConfigChange(oldServiceConfiguration, newServiceConfiguration);
         Assert.assertEquals(0, errors.size());
     }
+
+    @Test
+    public void testPageCacheStarvationFails() throws ConfigStateValidator.ValidationException {
+        BrokerConfiguration oldBrokerConfiguration = ConfigTestUtils.getTestBrokerConfiguration();
+        BrokerConfiguration newBrokerConfiguration = ConfigTestUtils.getTestBrokerConfiguration();
+        newBrokerConfiguration.setHeap(new HeapConfig(950));
+
+        ConfigStateValidator configStateValidator = new ConfigStateValidator(frameworkState);
+        Collection<ConfigStateValidator.ValidationError> errors =
+                configStateValidator.validateBrokerConfigChange(oldBrokerConfiguration, newBrokerConfiguration);
+        Assert.assertEquals(1, errors.size());
+        Assert.assertTrue(errors.iterator().next().toString().contains("page cache"));
+    }
+
+    @Test
+    public void testMemoryProfileIgnoresHeapSize() throws ConfigStateValidator.ValidationException {
+        BrokerConfiguration oldBrokerConfiguration = ConfigTestUtils.getTestBrokerConfiguration();
+        BrokerConfiguration newBrokerConfiguration = ConfigTestUtils.getTestBrokerConfiguration();
+        newBrokerConfiguration.setHeap(new HeapConfig(2000));
+        newBrokerConfiguration.setMemoryProfile("READ_HEAVY");
+
+        ConfigStateValidator configStateValidator = new ConfigStateValidator(frameworkState);
+        Assert.assertEquals(0,
+                configStateValidator.validateBrokerConfigChange(oldBrokerConfiguration, newBrokerConfiguration).size());
+
+        newBrokerConfiguration.setMemoryProfile("UNKNOWN");
+        Assert.assertEquals(1,
+                configStateValidator.validateBrokerConfigChange(oldBrokerConfiguration, newBrokerConfiguration).size());
+    }
 }
@@ -1,16 +1,24 @@
 package com.mesosphere.dcos.kafka.config;
 
 import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.offer.OfferUtils;
+import com.mesosphere.dcos.kafka.offer.PersistentOfferRequirementProvider;
+import com.mesosphere.dcos.kafka.state.FrameworkState;
 import com.mesosphere.dcos.kafka.test.ConfigTestUtils;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.retry.RetryNTimes;
 import org.apache.curator.test.TestingServer;
+import org.apache.mesos.Protos;
 import org.apache.mesos.config.ConfigStoreException;
 import org.apache.mesos.testing.CuratorTestUtils;
 import org.junit.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.UUID;
 
@@ -29,6 +37,9 @@ public class KafkaConfigStateTest {
     @Mock
     KafkaState state;
 
+    @Mock
+    FrameworkState frameworkState;
+
     @BeforeClass
     public static void beforeAll() throws Exception {
         testZk = new TestingServer();
@@ -66,6 +77,68 @@ public class KafkaConfigStateTest {
         Assert.assertNotNull(outConfig);
     }
 
+    @Test
+    public void testFetchCached() throws Exception {
+        UUID id = configState.store(config);
+        KafkaSchedulerConfiguration outConfig = configState.fetch(id);
+
+        testZk.stop();
+        Assert.assertSame(outConfig, configState.fetch(id));
+    }
+
+    @Test(expected=ConfigStoreException.class)
+    public void testCleanConfigsInvalidatesCache() throws Exception {
+        UUID targetId = configState.store(config);
+        UUID oldId = configState.store(config);
+        configState.setTargetName(targetId);
+        configState.fetch(oldId);
+
+        Mockito.when(frameworkState.getTaskInfos()).thenReturn(Collections.emptyList());
+        configState.cleanConfigs(frameworkState);
+        Assert.assertNotNull(configState.fetch(targetId));
+        configState.fetch(oldId);
+    }
+
+    @Test
+    public void testSyncConfigsMovesDuplicates() throws Exception {
+        UUID duplicateId = configState.store(config);
+        KafkaSchedulerConfiguration restartConfig = ConfigTestUtils.getTestKafkaSchedulerConfiguration();
+        restartConfig.getBrokerConfiguration().setCpus(4);
+        UUID restartId = configState.store(restartConfig);
+
+        KafkaSchedulerConfiguration targetConfig = ConfigTestUtils.getTestKafkaSchedulerConfiguration();
+        targetConfig.getServiceConfiguration().setCount(5);
+        UUID targetId = configState.store(targetConfig);
+        configState.setTargetName(targetId);
+
+        Mockito.when(frameworkState.getTaskInfos()).thenReturn(Arrays.asList(
+                getTestTaskInfo("broker-0", duplicateId),
+                getTestTaskInfo("broker-1", restartId),
+                getTestTaskInfo("broker-2", targetId)));
+        configState.syncConfigs(frameworkState);
+
+        ArgumentCaptor<Protos.TaskInfo> captor = ArgumentCaptor.forClass(Protos.TaskInfo.class);
+        Mockito.verify(frameworkState).recordTaskInfo(captor.capture());
+        Assert.assertEquals("broker-0", captor.getValue().getName());
+        Assert.assertEquals(targetId.toString(), OfferUtils.getConfigName(captor.getValue()));
+    }
+
+    @Test
+    public void testCleanConfigsKeepsTaskConfigs() throws Exception {
+        UUID taskId = configState.store(config);
+        UUID unusedId = configState.store(config);
+        UUID targetId = configState.store(config);
+        configState.setTargetName(targetId);
+
+        Mockito.when(frameworkState.getTaskInfos()).thenReturn(Arrays.asList(getTestTaskInfo("broker-0", taskId)));
+        configState.cleanConfigs(frameworkState);
+
+        Collection<UUID> configNames = configState.getConfigNames();
+        Assert.assertEquals(2, configNames.size());
+        Assert.assertTrue(configNames.contains(taskId));
+        Assert.assertFalse(configNames.contains(unusedId));
+    }
+
     @Test(expected=ConfigStoreException.class)
     public void testStoreFetchFailure() throws Exception {
         configState.store(config);
@@ -122,4 +195,16 @@ public class KafkaConfigStateTest {
         testZk.stop();
         configState.setTargetName(UUID.randomUUID());
     }
+
+    private static Protos.TaskInfo getTestTaskInfo(String name, UUID configName) {
+        return Protos.TaskInfo.newBuilder()
+                .setName(name)
+                .setTaskId(Protos.TaskID.newBuilder().setValue(name + "__" + UUID.randomUUID()))
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("test-agent-id"))
+                .setLabels(Protos.Labels.newBuilder()
+                        .addLabels(Protos.Label.newBuilder()
+                                .setKey(PersistentOfferRequirementProvider.CONFIG_TARGET_KEY)
+                                .setValue(configName.toString())))
+                .build();
+    }
 }
@@ -0,0 +1,64 @@
+package com.mesosphere.dcos.kafka.config;
+
+import com.mesosphere.dcos.kafka.test.ConfigTestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the MemoryPlanner class.
+ */
+public class MemoryPlannerTest {
+    private BrokerConfiguration brokerConfig;
+
+    @Before
+    public void beforeEach() {
+        brokerConfig = ConfigTestUtils.getTestBrokerConfiguration();
+    }
+
+    @Test
+    public void testManualUsesConfiguredHeap() {
+        MemoryPlanner.Plan plan = MemoryPlanner.plan(brokerConfig);
+        Assert.assertEquals(MemoryPlanner.Profile.MANUAL, plan.getProfile());
+        Assert.assertEquals(500, plan.getHeapMb());
+        Assert.assertEquals(0, plan.getDirectMemoryMb());
+        Assert.assertEquals(500, plan.getPageCacheMb());
+        Assert.assertEquals("-Xms500M -Xmx500M", plan.getKafkaHeapOpts());
+    }
+
+    @Test
+    public void testProfileDividesTaskMemory() {
+        brokerConfig.setMem(16384);
+        brokerConfig.setMemoryProfile("BALANCED");
+
+        MemoryPlanner.Plan plan = MemoryPlanner.plan(brokerConfig);
+        Assert.assertEquals(4096, plan.getHeapMb());
+        Assert.assertEquals(1638, plan.getDirectMemoryMb());
+        Assert.assertEquals(16384 - 4096 - 1638, plan.getPageCacheMb());
+        Assert.assertEquals("-Xms4096M -Xmx4096M -XX:MaxDirectMemorySize=1638M", plan.getKafkaHeapOpts());
+    }
+
+    @Test
+    public void testHeapBounded() {
+        brokerConfig.setMem(65536);
+        brokerConfig.setMemoryProfile("READ_HEAVY");
+        Assert.assertEquals(6144, MemoryPlanner.plan(brokerConfig).getHeapMb());
+
+        brokerConfig.setMem(512);
+        Assert.assertEquals(MemoryPlanner.MIN_HEAP_MB, MemoryPlanner.plan(brokerConfig).getHeapMb());
+    }
+
+    @Test
+    public void testUnknownProfile() {
+        try {
+            MemoryPlanner.parseProfile("UNKNOWN");
+            Assert.fail("Expected an unknown profile to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        brokerConfig.setMemoryProfile("UNKNOWN");
+        Assert.assertEquals(MemoryPlanner.Profile.MANUAL, MemoryPlanner.plan(brokerConfig).getProfile());
+        Assert.assertEquals(MemoryPlanner.Profile.MANUAL, MemoryPlanner.parseProfile(null));
+    }
+}
@@ -0,0 +1,128 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import com.mesosphere.dcos.kafka.state.FrameworkState;
+import com.mesosphere.dcos.kafka.test.KafkaTestUtils;
+import org.apache.mesos.Protos.*;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * This class tests the AttributePlacementStrategy class.
+ */
+public class AttributePlacementStrategyTest {
+  @Mock private FrameworkState state;
+  private AgentAttributeIndex attributeIndex;
+  private AttributePlacementStrategy strategy;
+
+  @Before
+  public void beforeEach() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    attributeIndex = new AgentAttributeIndex();
+    strategy = new AttributePlacementStrategy(state, attributeIndex, "rack");
+    when(state.getTaskInfos()).thenReturn(Collections.emptyList());
+  }
+
+  @Test
+  public void testSelectsRackWithFewestBrokers() throws Exception {
+    attributeIndex.update(Arrays.asList(
+        getOffer("agent-0", "rack-a"),
+        getOffer("agent-1", "rack-b"),
+        getOffer("agent-2", "rack-c")));
+    when(state.getTaskInfos()).thenReturn(Arrays.asList(
+        getTaskInfo("broker-0", "agent-0", "rack-a"),
+        getTaskInfo("broker-1", "agent-3", "rack-c")));
+
+    Assert.assertEquals(Optional.of("rack-b"), strategy.selectValue("broker-2"));
+    // The broker being placed doesn't count towards its own rack
+    Assert.assertEquals(Optional.of("rack-a"), strategy.selectValue("broker-0"));
+  }
+
+  @Test
+  public void testBrokersWithoutRackCountedByAgent() throws Exception {
+    attributeIndex.update(Arrays.asList(
+        getOffer("agent-0", "rack-a"),
+        getOffer("agent-1", "rack-b")));
+    when(state.getTaskInfos()).thenReturn(Arrays.asList(getTaskInfo("broker-0", "agent-0", null)));
+
+    Assert.assertEquals(Optional.of("rack-b"), strategy.selectValue("broker-1"));
+  }
+
+  @Test
+  public void testNoRackWithoutAttribute() throws Exception {
+    attributeIndex.update(Arrays.asList(getOffer("agent-0", null)));
+    Assert.assertFalse(strategy.selectValue("broker-0").isPresent());
+  }
+
+  @Test
+  public void testAvoidsOtherRacksAndBrokerAgents() throws Exception {
+    attributeIndex.update(Arrays.asList(
+        getOffer("agent-0", "rack-a"),
+        getOffer("agent-1", "rack-a"),
+        getOffer("agent-2", "rack-b"),
+        getOffer("agent-3", null)));
+    when(state.getTaskInfos()).thenReturn(Arrays.asList(getTaskInfo("broker-0", "agent-0", "rack-a")));
+
+    List<SlaveID> avoid = strategy.getAgentsToAvoid(getTaskInfo("broker-1", "", "rack-a"));
+    Set<String> avoidIds = new HashSet<>();
+    for (SlaveID agentId : avoid) {
+      avoidIds.add(agentId.getValue());
+    }
+
+    Assert.assertEquals(new HashSet<>(Arrays.asList("agent-0", "agent-2", "agent-3")), avoidIds);
+    Assert.assertNull(strategy.getAgentsToColocate(getTaskInfo("broker-1", "", "rack-a")));
+  }
+
+  @Test
+  public void testIndexKeepsAgentsFromEarlierCycles() throws Exception {
+    attributeIndex.update(Arrays.asList(getOffer("agent-0", "rack-a")));
+    attributeIndex.update(Arrays.asList(getOffer("agent-1", "rack-b")));
+
+    Assert.assertEquals(Optional.of("rack-a"), attributeIndex.getValue("agent-0", "rack"));
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("rack-b")), attributeIndex.getOfferedValues("rack"));
+  }
+
+  private static Offer getOffer(String agentId, String rack) {
+    Offer.Builder offer = Offer.newBuilder()
+        .setId(OfferID.newBuilder().setValue(UUID.randomUUID().toString()))
+        .setFrameworkId(KafkaTestUtils.testFrameworkId)
+        .setSlaveId(SlaveID.newBuilder().setValue(agentId))
+        .setHostname(agentId);
+
+    if (rack != null) {
+      offer.addAttributes(Attribute.newBuilder()
+          .setName("rack")
+          .setType(Value.Type.TEXT)
+          .setText(Value.Text.newBuilder().setValue(rack)));
+    }
+
+    return offer.build();
+  }
+
+  private static TaskInfo getTaskInfo(String name, String agentId, String rack) {
+    Environment.Builder environment = Environment.newBuilder();
+    if (rack != null) {
+      environment.addVariables(Environment.Variable.newBuilder()
+          .setName(AttributePlacementStrategy.BROKER_RACK_ENV)
+          .setValue(rack));
+    }
+
+    CommandInfo command = CommandInfo.newBuilder()
+        .setValue("")
+        .setEnvironment(environment)
+        .build();
+
+    return TaskInfo.newBuilder()
+        .setName(name)
+        .setTaskId(TaskID.newBuilder().setValue(name + "__" + UUID.randomUUID()))
+        .setSlaveId(SlaveID.newBuilder().setValue(agentId))
+        .setData(command.toByteString())
+        .build();
+  }
+}
@@ -0,0 +1,110 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import com.mesosphere.dcos.kafka.test.KafkaTestUtils;
+import org.apache.mesos.Protos.*;
+import org.apache.mesos.offer.ResourceUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * This class tests the DynamicPortSelector class.
+ */
+public class DynamicPortSelectorTest {
+  private DynamicPortSelector selector;
+
+  @Before
+  public void beforeEach() {
+    selector = new DynamicPortSelector();
+  }
+
+  @Test
+  public void testSelectsOfferedPorts() {
+    selector.update(Arrays.asList(getOffer("agent-0", 9500, 9501)));
+    Assert.assertEquals(Arrays.asList(9500L, 9501L), selector.select(2, Collections.emptyList()));
+  }
+
+  @Test
+  public void testPrefersPortsOfferedByMostAgents() {
+    selector.update(Arrays.asList(
+        getOffer("agent-0", 9100, 9200),
+        getOffer("agent-1", 9150, 9300),
+        getOffer("agent-2", 9180, 9400)));
+
+    Assert.assertEquals(Arrays.asList(9180L, 9181L), selector.select(2, Collections.emptyList()));
+  }
+
+  @Test
+  public void testSelectedPortsAvailableTogether() {
+    selector.update(Arrays.asList(
+        getOffer("agent-0", 9100, 9100),
+        getOffer("agent-1", 9100, 9100),
+        getOffer("agent-2", 9500, 9501)));
+
+    // Port 9100 is offered by two agents, but neither has a second port to go with it
+    List<Long> ports = selector.select(2, Collections.emptyList());
+    Assert.assertEquals(9100L, (long) ports.get(0));
+    Assert.assertTrue(ports.get(1) >= DynamicPortSelector.MIN_PORT);
+  }
+
+  @Test
+  public void testRequiredPortsRestrictAgents() {
+    selector.update(Arrays.asList(
+        getOffer("agent-0", 9092, 9092),
+        getOffer("agent-1", 9200, 9300),
+        getOffer("agent-2", 9092, 9095)));
+
+    Assert.assertEquals(Arrays.asList(9093L), selector.select(1, Arrays.asList(9092L)));
+  }
+
+  @Test
+  public void testSelectsOnAgent() {
+    selector.update(Arrays.asList(
+        getOffer("agent-0", 9100, 9200),
+        getOffer("agent-1", 9700, 9700)));
+
+    Assert.assertEquals(Arrays.asList(9700L), selector.select("agent-1", 1, Collections.emptyList()));
+  }
+
+  @Test
+  public void testIgnoresReservedPorts() {
+    Offer offer = Offer.newBuilder(getOffer("agent-0", 9600, 9600))
+        .addResources(ResourceUtils.getDesiredRanges(
+            KafkaTestUtils.testRole,
+            KafkaTestUtils.testPrincipal,
+            "ports",
+            Arrays.asList(Value.Range.newBuilder().setBegin(9100).setEnd(9100).build())))
+        .build();
+    selector.update(Arrays.asList(offer));
+
+    Assert.assertEquals(Arrays.asList(9600L), selector.select(1, Collections.emptyList()));
+  }
+
+  @Test
+  public void testRandomPortsWithoutOffers() {
+    List<Long> ports = selector.select(2, Collections.emptyList());
+    Assert.assertEquals(2, ports.size());
+    Assert.assertNotEquals(ports.get(0), ports.get(1));
+    for (Long port : ports) {
+      Assert.assertTrue(port >= DynamicPortSelector.MIN_PORT);
+      Assert.assertTrue(port < DynamicPortSelector.MIN_PORT + DynamicPortSelector.PORT_COUNT);
+    }
+  }
+
+  private static Offer getOffer(String agentId, long begin, long end) {
+    return Offer.newBuilder()
+        .setId(OfferID.newBuilder().setValue(UUID.randomUUID().toString()))
+        .setFrameworkId(KafkaTestUtils.testFrameworkId)
+        .setSlaveId(SlaveID.newBuilder().setValue(agentId))
+        .setHostname(agentId)
+        .addResources(Resource.newBuilder()
+            .setName("ports")
+            .setType(Value.Type.RANGES)
+            .setRanges(Value.Ranges.newBuilder()
+                .addRange(Value.Range.newBuilder().setBegin(begin).setEnd(end)))
+            .setRole("*"))
+        .build();
+  }
+}
@@ -0,0 +1,112 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import com.mesosphere.dcos.kafka.state.FrameworkState;
+import com.mesosphere.dcos.kafka.test.KafkaTestUtils;
+import org.apache.mesos.Protos.*;
+import org.apache.mesos.offer.DestroyOfferRecommendation;
+import org.apache.mesos.offer.OfferRecommendation;
+import org.apache.mesos.offer.UnreserveOfferRecommendation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class KafkaResourceCleanerTest {
+  private static final String expectedResourceId = "expected-resource-id";
+  private static final String expectedPersistenceId = "expected-persistence-id";
+
+  @Mock private FrameworkState state;
+  private KafkaResourceCleaner cleaner;
+
+  @Before
+  public void beforeEach() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    when(state.isExpectedResourceId(anyString())).thenReturn(false);
+    when(state.isExpectedResourceId(expectedResourceId)).thenReturn(true);
+    when(state.isExpectedPersistenceId(anyString())).thenReturn(false);
+    when(state.isExpectedPersistenceId(expectedPersistenceId)).thenReturn(true);
+    cleaner = new KafkaResourceCleaner(state);
+  }
+
+  @Test
+  public void testExpectedResourcesIgnored() throws Exception {
+    Offer offer = getOffer(
+        getReservedCpus(expectedResourceId),
+        getVolume(expectedResourceId, expectedPersistenceId),
+        Resource.newBuilder()
+            .setName("mem")
+            .setType(Value.Type.SCALAR)
+            .setScalar(Value.Scalar.newBuilder().setValue(1024))
+            .setRole("*")
+            .build());
+
+    Assert.assertTrue(cleaner.evaluate(Arrays.asList(offer)).isEmpty());
+  }
+
+  @Test
+  public void testUnexpectedReservationUnreserved() throws Exception {
+    Offer offer = getOffer(getReservedCpus("unexpected-resource-id"));
+
+    List<OfferRecommendation> recommendations = cleaner.evaluate(Arrays.asList(offer));
+    Assert.assertEquals(1, recommendations.size());
+    Assert.assertTrue(recommendations.get(0) instanceof UnreserveOfferRecommendation);
+  }
+
+  @Test
+  public void testUnexpectedVolumeDestroyedAndUnreserved() throws Exception {
+    Offer offer = getOffer(getVolume(expectedResourceId, "unexpected-persistence-id"));
+
+    List<OfferRecommendation> recommendations = cleaner.evaluate(Arrays.asList(offer));
+    Assert.assertEquals(2, recommendations.size());
+    Assert.assertTrue(recommendations.get(0) instanceof DestroyOfferRecommendation);
+    Assert.assertTrue(recommendations.get(1) instanceof UnreserveOfferRecommendation);
+  }
+
+  private static Offer getOffer(Resource... resources) {
+    return Offer.newBuilder()
+        .setId(OfferID.newBuilder().setValue(KafkaTestUtils.testOfferId))
+        .setFrameworkId(KafkaTestUtils.testFrameworkId)
+        .setSlaveId(SlaveID.newBuilder().setValue(KafkaTestUtils.testSlaveId))
+        .setHostname(KafkaTestUtils.testHostname)
+        .addAllResources(Arrays.asList(resources))
+        .build();
+  }
+
+  private static Resource getReservedCpus(String resourceId) {
+    return Resource.newBuilder()
+        .setName("cpus")
+        .setType(Value.Type.SCALAR)
+        .setScalar(Value.Scalar.newBuilder().setValue(1.0))
+        .setRole(KafkaTestUtils.testRole)
+        .setReservation(getReservation(resourceId))
+        .build();
+  }
+
+  private static Resource getVolume(String resourceId, String persistenceId) {
+    return Resource.newBuilder()
+        .setName("disk")
+        .setType(Value.Type.SCALAR)
+        .setScalar(Value.Scalar.newBuilder().setValue(5000))
+        .setRole(KafkaTestUtils.testRole)
+        .setReservation(getReservation(resourceId))
+        .setDisk(Resource.DiskInfo.newBuilder()
+            .setPersistence(Resource.DiskInfo.Persistence.newBuilder().setId(persistenceId))
+            .setVolume(Volume.newBuilder().setContainerPath("kafka-volume").setMode(Volume.Mode.RW)))
+        .build();
+  }
+
+  private static Resource.ReservationInfo getReservation(String resourceId) {
+    return Resource.ReservationInfo.newBuilder()
+        .setPrincipal(KafkaTestUtils.testPrincipal)
+        .setLabels(Labels.newBuilder()
+            .addLabels(Label.newBuilder().setKey("resource_id").setValue(resourceId)))
+        .build();
+  }
+}
@@ -0,0 +1,101 @@
+package com.mesosphere.dcos.kafka.offer;
+
+import com.mesosphere.dcos.kafka.state.FrameworkState;
+import com.mesosphere.dcos.kafka.test.KafkaTestUtils;
+import org.apache.mesos.Protos.*;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * This class tests the OfferRanker class.
+ */
+public class OfferRankerTest {
+  @Mock private FrameworkState state;
+  private OfferRanker ranker;
+
+  @Before
+  public void beforeEach() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    when(state.getTaskInfos()).thenReturn(Collections.emptyList());
+    ranker = new OfferRanker(state);
+  }
+
+  @Test
+  public void testRanksByFreeResources() {
+    Offer small = getOffer("agent-0", 1, 1024, 0);
+    Offer large = getOffer("agent-1", 4, 8192, 0);
+    Offer medium = getOffer("agent-2", 2, 4096, 0);
+
+    Assert.assertEquals(Arrays.asList(large, medium, small), ranker.rank(Arrays.asList(small, large, medium), false));
+  }
+
+  @Test
+  public void testPenalizesAgentsRunningBrokers() throws Exception {
+    Offer crowded = getOffer("agent-0", 4, 8192, 0);
+    Offer empty = getOffer("agent-1", 3, 6144, 0);
+    when(state.getTaskInfos()).thenReturn(Arrays.asList(getTaskInfo("broker-0", "agent-0")));
+
+    Assert.assertEquals(Arrays.asList(empty, crowded), ranker.rank(Arrays.asList(crowded, empty), false));
+  }
+
+  @Test
+  public void testPrefersMountDiskOnlyWhenRequested() {
+    Offer root = getOffer("agent-0", 2, 4096, 0);
+    Offer mount = getOffer("agent-1", 2, 2048, 10000);
+
+    Assert.assertEquals(Arrays.asList(root, mount), ranker.rank(Arrays.asList(root, mount), false));
+    Assert.assertEquals(Arrays.asList(mount, root), ranker.rank(Arrays.asList(root, mount), true));
+  }
+
+  @Test
+  public void testEqualScoresKeepOrder() {
+    Offer first = getOffer("agent-0", 2, 4096, 0);
+    Offer second = getOffer("agent-1", 2, 4096, 0);
+
+    Assert.assertEquals(Arrays.asList(first, second), ranker.rank(Arrays.asList(first, second), true));
+  }
+
+  private static Offer getOffer(String agentId, double cpus, double mem, double mountDisk) {
+    Offer.Builder offer = Offer.newBuilder()
+        .setId(OfferID.newBuilder().setValue(UUID.randomUUID().toString()))
+        .setFrameworkId(KafkaTestUtils.testFrameworkId)
+        .setSlaveId(SlaveID.newBuilder().setValue(agentId))
+        .setHostname(agentId)
+        .addResources(getScalar("cpus", cpus))
+        .addResources(getScalar("mem", mem));
+
+    if (mountDisk > 0) {
+      offer.addResources(Resource.newBuilder(getScalar("disk", mountDisk))
+          .setDisk(Resource.DiskInfo.newBuilder()
+              .setSource(Resource.DiskInfo.Source.newBuilder()
+                  .setType(Resource.DiskInfo.Source.Type.MOUNT)
+                  .setMount(Resource.DiskInfo.Source.Mount.newBuilder().setRoot("/mnt/disk0")))));
+    }
+
+    return offer.build();
+  }
+
+  private static Resource getScalar(String name, double value) {
+    return Resource.newBuilder()
+        .setName(name)
+        .setType(Value.Type.SCALAR)
+        .setScalar(Value.Scalar.newBuilder().setValue(value))
+        .setRole("*")
+        .build();
+  }
+
+  private static TaskInfo getTaskInfo(String name, String agentId) {
+    return TaskInfo.newBuilder()
+        .setName(name)
+        .setTaskId(TaskID.newBuilder().setValue(name + "__" + UUID.randomUUID()))
+        .setSlaveId(SlaveID.newBuilder().setValue(agentId))
+        .build();
+  }
+}
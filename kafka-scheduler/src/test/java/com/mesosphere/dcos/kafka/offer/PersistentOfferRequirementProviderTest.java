@@ -2,8 +2,10 @@ package com.mesosphere.dcos.kafka.offer;
 
 import com.mesosphere.dcos.kafka.commons.KafkaTask;
 import com.mesosphere.dcos.kafka.config.HeapConfig;
+import com.mesosphere.dcos.kafka.config.JvmProfile;
 import com.mesosphere.dcos.kafka.config.KafkaConfigState;
 import com.mesosphere.dcos.kafka.config.KafkaSchedulerConfiguration;
+import com.mesosphere.dcos.kafka.config.VolumeConfig;
 import com.mesosphere.dcos.kafka.state.ClusterState;
 import com.mesosphere.dcos.kafka.state.FrameworkState;
 import com.mesosphere.dcos.kafka.test.ConfigTestUtils;
@@ -249,6 +251,90 @@ public class PersistentOfferRequirementProviderTest {
     Assert.assertEquals("9092", envVariables.get(2).getValue());
   }
 
+  @Test
+  public void testNewRequirementWithVolumes() throws Exception {
+    schedulerConfig.getBrokerConfiguration().setVolumes(Arrays.asList(
+            new VolumeConfig(3000, "MOUNT"),
+            new VolumeConfig(2000, "ROOT")));
+    when(configState.fetch(UUID.fromString(KafkaTestUtils.testConfigName))).thenReturn(schedulerConfig);
+    PersistentOfferRequirementProvider provider = new PersistentOfferRequirementProvider(state, configState, clusterState);
+    OfferRequirement req = provider.getNewOfferRequirement(KafkaTestUtils.testConfigName, 0);
+
+    List<Resource> disks = getResources(req, "disk");
+    Assert.assertEquals(2, disks.size());
+    Assert.assertEquals(3000, disks.get(0).getScalar().getValue(), 0.0);
+    Assert.assertEquals(Resource.DiskInfo.Source.Type.MOUNT, disks.get(0).getDisk().getSource().getType());
+    Assert.assertEquals(2000, disks.get(1).getScalar().getValue(), 0.0);
+
+    TaskInfo taskInfo = req.getTaskRequirements().iterator().next().getTaskInfo();
+    Map<String, String> env = TaskUtils.fromEnvironmentToMap(CommandInfo.parseFrom(taskInfo.getData()).getEnvironment());
+    String[] logDirs = env.get("KAFKA_OVERRIDE_LOG_DIRS").split(",");
+    Assert.assertEquals(2, logDirs.length);
+    for (int i = 0; i < logDirs.length; i++) {
+      Assert.assertEquals(disks.get(i).getDisk().getVolume().getContainerPath() + "/broker-0", logDirs[i]);
+    }
+  }
+
+  @Test
+  public void testUpdateRequirementKeepsVolumes() throws Exception {
+    schedulerConfig.getBrokerConfiguration().setVolumes(Arrays.asList(
+            new VolumeConfig(3000, "ROOT"),
+            new VolumeConfig(2000, "ROOT")));
+    when(configState.fetch(UUID.fromString(KafkaTestUtils.testConfigName))).thenReturn(schedulerConfig);
+    List<Resource> resources = new ArrayList<>();
+    resources.add(ResourceUtils.getDesiredScalar(KafkaTestUtils.testRole, KafkaTestUtils.testPrincipal, "cpus", 0.5));
+    resources.add(ResourceUtils.getDesiredRootVolume(KafkaTestUtils.testRole, KafkaTestUtils.testPrincipal, 3000, "a"));
+    resources.add(ResourceUtils.getDesiredRootVolume(KafkaTestUtils.testRole, KafkaTestUtils.testPrincipal, 2000, "b"));
+    TaskInfo oldTaskInfo = configKafkaHeapOpts(getTaskInfo(resources), new HeapConfig(256));
+
+    PersistentOfferRequirementProvider provider = new PersistentOfferRequirementProvider(state, configState, clusterState);
+    OfferRequirement req = provider.getUpdateOfferRequirement(KafkaTestUtils.testConfigName, oldTaskInfo);
+
+    List<Resource> disks = getResources(req, "disk");
+    Assert.assertEquals(2, disks.size());
+    Assert.assertEquals(3000, disks.get(0).getScalar().getValue(), 0.0);
+    Assert.assertEquals("a", disks.get(0).getDisk().getVolume().getContainerPath());
+    Assert.assertEquals(2000, disks.get(1).getScalar().getValue(), 0.0);
+    Assert.assertEquals("b", disks.get(1).getDisk().getVolume().getContainerPath());
+  }
+
+  @Test
+  public void testUpdateRequirementJvmProfile() throws Exception {
+    schedulerConfig.getBrokerConfiguration().setJvmProfile("LOW_LATENCY");
+    when(configState.fetch(UUID.fromString(KafkaTestUtils.testConfigName))).thenReturn(schedulerConfig);
+    Resource cpu = ResourceUtils.getDesiredScalar(KafkaTestUtils.testRole, KafkaTestUtils.testPrincipal, "cpus", 0.5);
+    TaskInfo oldTaskInfo = configKafkaHeapOpts(getTaskInfo(Arrays.asList(cpu)), new HeapConfig(256));
+
+    PersistentOfferRequirementProvider provider = new PersistentOfferRequirementProvider(state, configState, clusterState);
+    TaskInfo taskInfo = provider.getUpdateOfferRequirement(KafkaTestUtils.testConfigName, oldTaskInfo)
+            .getTaskRequirements().iterator().next().getTaskInfo();
+    Map<String, String> env = TaskUtils.fromEnvironmentToMap(CommandInfo.parseFrom(taskInfo.getData()).getEnvironment());
+    String performanceOpts = env.get(PersistentOfferRequirementProvider.KAFKA_JVM_PERFORMANCE_OPTS);
+    Assert.assertEquals(JvmProfile.LOW_LATENCY.getPerformanceOpts(), performanceOpts);
+    Assert.assertTrue(performanceOpts.contains("-XX:MaxGCPauseMillis=20"));
+    Assert.assertTrue(performanceOpts.contains("-XX:+UseGCLogFileRotation"));
+
+    // Returning to the default profile restores the defaults of kafka-run-class.sh
+    schedulerConfig.getBrokerConfiguration().setJvmProfile("DEFAULT");
+    oldTaskInfo = TaskInfo.newBuilder(oldTaskInfo).setData(taskInfo.getData()).build();
+    taskInfo = provider.getUpdateOfferRequirement(KafkaTestUtils.testConfigName, oldTaskInfo)
+            .getTaskRequirements().iterator().next().getTaskInfo();
+    env = TaskUtils.fromEnvironmentToMap(CommandInfo.parseFrom(taskInfo.getData()).getEnvironment());
+    Assert.assertFalse(env.containsKey(PersistentOfferRequirementProvider.KAFKA_JVM_PERFORMANCE_OPTS));
+  }
+
+  private static List<Resource> getResources(OfferRequirement req, String name) {
+    TaskInfo taskInfo = req.getTaskRequirements().iterator().next().getTaskInfo();
+    List<Resource> resources = new ArrayList<>();
+    for (Resource resource : taskInfo.getResourcesList()) {
+      if (name.equals(resource.getName())) {
+        resources.add(resource);
+      }
+    }
+
+    return resources;
+  }
+
   private static Resource getResource(OfferRequirement req, String name) {
     Assert.assertEquals(1, req.getTaskRequirements().size());
     TaskInfo taskInfo = req.getTaskRequirements().iterator().next().getTaskInfo();
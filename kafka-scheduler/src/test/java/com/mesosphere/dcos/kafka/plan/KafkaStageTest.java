@@ -1,5 +1,7 @@
 package com.mesosphere.dcos.kafka.plan;
 
+import com.mesosphere.dcos.kafka.cmd.LeadershipDrainer;
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
 import com.mesosphere.dcos.kafka.config.KafkaSchedulerConfiguration;
 import com.mesosphere.dcos.kafka.config.ServiceConfiguration;
 import com.mesosphere.dcos.kafka.offer.PersistentOfferRequirementProvider;
@@ -24,6 +26,8 @@ public class KafkaStageTest {
     @Mock KafkaSchedulerConfiguration schedulerConfiguration;
     @Mock ServiceConfiguration serviceConfiguration;
     @Mock FrameworkState frameworkState;
+    @Mock KafkaState kafkaState;
+    @Mock LeadershipDrainer leadershipDrainer;
     @Mock PersistentOfferRequirementProvider offerRequirementProvider;
     @Mock Reconciler reconciler;
 
@@ -64,6 +68,8 @@ public class KafkaStageTest {
                         "target-config-name",
                         schedulerConfiguration,
                         frameworkState,
+                        kafkaState,
+                        leadershipDrainer,
                         offerRequirementProvider));
 
         return DefaultPlan.fromList(phases);
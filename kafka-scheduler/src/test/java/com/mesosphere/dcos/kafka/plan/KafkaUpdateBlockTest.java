@@ -1,5 +1,8 @@
 package com.mesosphere.dcos.kafka.plan;
 
+import com.mesosphere.dcos.kafka.cmd.LeadershipDrainer;
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
 import com.mesosphere.dcos.kafka.config.KafkaConfigState;
 import com.mesosphere.dcos.kafka.offer.PersistentOfferRequirementProvider;
 import com.mesosphere.dcos.kafka.state.ClusterState;
@@ -18,11 +21,15 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -30,6 +37,8 @@ import static org.mockito.Mockito.when;
  */
 public class KafkaUpdateBlockTest {
     @Mock private FrameworkState frameworkState;
+    @Mock private KafkaState kafkaState;
+    @Mock private LeadershipDrainer leadershipDrainer;
     @Mock private KafkaConfigState configState;
     @Mock private ClusterState clusterState;
     @Mock private Capabilities capabilities;
@@ -41,6 +50,8 @@ public class KafkaUpdateBlockTest {
             .build();
     private static final Collection<Protos.Offer.Operation> nonEmptyOperations =
             Arrays.asList(operation);
+    private static final long isrWaitTimeoutMs = 60000;
+    private static final long leadershipTimeoutMs = 120000;
 
     @Before
     public void beforeEach() throws Exception {
@@ -49,6 +60,8 @@ public class KafkaUpdateBlockTest {
         when(stateStore.fetchFrameworkId()).thenReturn(Optional.of(KafkaTestUtils.testFrameworkId));
         when(frameworkState.getStateStore()).thenReturn(stateStore);
         when(frameworkState.getTaskStatusForBroker(any())).thenReturn(Optional.empty());
+        when(leadershipDrainer.drain(anyInt())).thenReturn(true);
+        when(leadershipDrainer.restore(anyInt())).thenReturn(true);
         when(configState.fetch(UUID.fromString(KafkaTestUtils.testConfigName))).thenReturn(
                 ConfigTestUtils.getTestKafkaSchedulerConfiguration());
         when(capabilities.supportsNamedVips()).thenReturn(true);
@@ -57,9 +70,13 @@ public class KafkaUpdateBlockTest {
         updateBlock =
                 new KafkaUpdateBlock(
                         frameworkState,
+                        kafkaState,
+                        leadershipDrainer,
                         offerRequirementProvider,
                         KafkaTestUtils.testConfigName,
-                        0);
+                        0,
+                        isrWaitTimeoutMs,
+                        leadershipTimeoutMs);
     }
 
     @Test
@@ -129,6 +146,210 @@ public class KafkaUpdateBlockTest {
         Assert.assertTrue(updateBlock.isPending());
     }
 
+    @Test
+    public void testCompleteOnlyOnceInIsr() throws Exception {
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(
+                getPartitionState(0, Arrays.asList(1)),
+                getPartitionState(1, Arrays.asList(0, 1)),
+                getPartitionState(2, Arrays.asList(1, 2))));
+        updateBlock.start();
+        updateBlock.updateOfferStatus(nonEmptyOperations);
+        Protos.TaskID taskId = updateBlock.getPendingTaskIds().get(0);
+        updateBlock.update(getRunningTaskStatus(taskId.getValue()));
+        Assert.assertTrue(updateBlock.isInProgress());
+        Assert.assertTrue(updateBlock.isReplicating());
+        Assert.assertTrue(updateBlock.getMessage(),
+                updateBlock.getMessage().contains("waiting to rejoin the ISR of 2 of 3 partitions"));
+
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(
+                getPartitionState(0, Arrays.asList(1, 0)),
+                getPartitionState(1, Arrays.asList(0, 1)),
+                getPartitionState(2, Arrays.asList(1, 2))));
+        Assert.assertTrue(updateBlock.isInProgress());
+        updateBlock.checkProgress();
+        Assert.assertTrue(updateBlock.isComplete());
+        Assert.assertFalse(updateBlock.isReplicating());
+    }
+
+    @Test
+    public void testStatusReadsDontAdvanceReplication() throws Exception {
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(getPartitionState(0, Arrays.asList(1))));
+        updateBlock.start();
+        updateBlock.updateOfferStatus(nonEmptyOperations);
+        Protos.TaskID taskId = updateBlock.getPendingTaskIds().get(0);
+        updateBlock.update(getRunningTaskStatus(taskId.getValue()));
+        Assert.assertTrue(updateBlock.isReplicating());
+
+        reset(kafkaState, leadershipDrainer);
+        Assert.assertTrue(updateBlock.isInProgress());
+        Assert.assertFalse(updateBlock.isComplete());
+        Assert.assertFalse(updateBlock.isPending());
+        updateBlock.getMessage();
+        verifyZeroInteractions(kafkaState, leadershipDrainer);
+    }
+
+    @Test
+    public void testStatusUpdateAdvancesReplication() throws Exception {
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(getPartitionState(0, Arrays.asList(1))));
+        updateBlock.start();
+        updateBlock.updateOfferStatus(nonEmptyOperations);
+        Protos.TaskID taskId = updateBlock.getPendingTaskIds().get(0);
+        updateBlock.update(getRunningTaskStatus(taskId.getValue()));
+        Assert.assertTrue(updateBlock.isInProgress());
+
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(getPartitionState(0, Arrays.asList(1, 0))));
+        updateBlock.update(getRunningTaskStatus("other-task-id"));
+        Assert.assertTrue(updateBlock.isComplete());
+    }
+
+    @Test
+    public void testCompleteAfterIsrWaitTimeout() throws Exception {
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(getPartitionState(0, Arrays.asList(1))));
+        updateBlock = new KafkaUpdateBlock(
+                frameworkState,
+                kafkaState,
+                leadershipDrainer,
+                offerRequirementProvider,
+                KafkaTestUtils.testConfigName,
+                0,
+                100,
+                leadershipTimeoutMs);
+        updateBlock.start();
+        updateBlock.updateOfferStatus(nonEmptyOperations);
+        Protos.TaskID taskId = updateBlock.getPendingTaskIds().get(0);
+        updateBlock.update(getRunningTaskStatus(taskId.getValue()));
+        Assert.assertTrue(updateBlock.isInProgress());
+
+        Thread.sleep(200);
+        Assert.assertTrue(updateBlock.isInProgress());
+        updateBlock.checkProgress();
+        Assert.assertTrue(updateBlock.isComplete());
+    }
+
+    @Test
+    public void testTerminatedWhileWaitingForIsr() throws Exception {
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(getPartitionState(0, Arrays.asList(1))));
+        updateBlock.start();
+        updateBlock.updateOfferStatus(nonEmptyOperations);
+        Protos.TaskID taskId = updateBlock.getPendingTaskIds().get(0);
+        updateBlock.update(getRunningTaskStatus(taskId.getValue()));
+        Assert.assertTrue(updateBlock.isInProgress());
+
+        updateBlock.update(getFailedTaskStatus(taskId.getValue()));
+        Assert.assertTrue(updateBlock.isPending());
+        Assert.assertFalse(updateBlock.isReplicating());
+    }
+
+    @Test
+    public void testRestartWaitsForLeadershipDrain() throws Exception {
+        when(frameworkState.getTaskStatusForBroker(any()))
+                .thenReturn(Optional.of(getRunningTaskStatus("running-task-id")));
+        when(leadershipDrainer.drain(0)).thenReturn(false);
+
+        Assert.assertFalse(updateBlock.start().isPresent());
+        Assert.assertTrue(updateBlock.isPending());
+        Assert.assertTrue(updateBlock.getMessage(),
+                updateBlock.getMessage().contains("moving partition leadership to other brokers"));
+    }
+
+    @Test
+    public void testRestartAfterLeadershipTimeout() throws Exception {
+        when(frameworkState.getTaskStatusForBroker(any()))
+                .thenReturn(Optional.of(getRunningTaskStatus("running-task-id")));
+        when(leadershipDrainer.drain(0)).thenReturn(false);
+        updateBlock = new KafkaUpdateBlock(
+                frameworkState,
+                kafkaState,
+                leadershipDrainer,
+                offerRequirementProvider,
+                KafkaTestUtils.testConfigName,
+                0,
+                isrWaitTimeoutMs,
+                0);
+
+        Assert.assertFalse(updateBlock.start().isPresent());
+        Assert.assertFalse(updateBlock.getMessage(),
+                updateBlock.getMessage().contains("moving partition leadership to other brokers"));
+    }
+
+    @Test
+    public void testCompleteOnlyOnceLeadershipRestored() throws Exception {
+        when(leadershipDrainer.restore(0)).thenReturn(false);
+        updateBlock.start();
+        updateBlock.updateOfferStatus(nonEmptyOperations);
+        Protos.TaskID taskId = updateBlock.getPendingTaskIds().get(0);
+        updateBlock.update(getRunningTaskStatus(taskId.getValue()));
+        Assert.assertTrue(updateBlock.isInProgress());
+        Assert.assertTrue(updateBlock.getMessage(),
+                updateBlock.getMessage().contains("restoring partition leadership"));
+
+        when(leadershipDrainer.restore(0)).thenReturn(true);
+        Assert.assertTrue(updateBlock.isInProgress());
+        updateBlock.checkProgress();
+        Assert.assertTrue(updateBlock.isComplete());
+    }
+
+    @Test
+    public void testResumeRestoringLeadershipAfterFailover() throws Exception {
+        when(frameworkState.getTaskInfoForBroker(0)).thenReturn(Optional.of(getTargetTaskInfo()));
+        when(leadershipDrainer.isDraining(0)).thenReturn(true);
+        when(leadershipDrainer.restore(0)).thenReturn(false);
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(getPartitionState(0, Arrays.asList(1, 0))));
+
+        updateBlock = new KafkaUpdateBlock(
+                frameworkState,
+                kafkaState,
+                leadershipDrainer,
+                offerRequirementProvider,
+                KafkaTestUtils.testConfigName,
+                0,
+                isrWaitTimeoutMs,
+                leadershipTimeoutMs);
+        Assert.assertTrue(updateBlock.isComplete());
+        verifyZeroInteractions(leadershipDrainer);
+
+        updateBlock.checkProgress();
+        Assert.assertTrue(updateBlock.isInProgress());
+        Assert.assertTrue(updateBlock.isReplicating());
+
+        when(leadershipDrainer.restore(0)).thenReturn(true);
+        updateBlock.checkProgress();
+        Assert.assertTrue(updateBlock.isComplete());
+    }
+
+    @Test
+    public void testCompleteWhenNotDrained() throws Exception {
+        when(frameworkState.getTaskInfoForBroker(0)).thenReturn(Optional.of(getTargetTaskInfo()));
+
+        updateBlock = new KafkaUpdateBlock(
+                frameworkState,
+                kafkaState,
+                leadershipDrainer,
+                offerRequirementProvider,
+                KafkaTestUtils.testConfigName,
+                0,
+                isrWaitTimeoutMs,
+                leadershipTimeoutMs);
+        updateBlock.checkProgress();
+        Assert.assertTrue(updateBlock.isComplete());
+        Assert.assertFalse(updateBlock.isReplicating());
+    }
+
+    private static Protos.TaskInfo getTargetTaskInfo() {
+        return Protos.TaskInfo.newBuilder()
+                .setName(KafkaTestUtils.testTaskName)
+                .setTaskId(KafkaTestUtils.testTaskId)
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue(KafkaTestUtils.testSlaveId))
+                .setLabels(Protos.Labels.newBuilder().addLabels(Protos.Label.newBuilder()
+                        .setKey("config_target")
+                        .setValue(KafkaTestUtils.testConfigName)))
+                .build();
+    }
+
+    private static PartitionState getPartitionState(int partition, List<Integer> isr) {
+        return new PartitionState("topic0", partition, Arrays.asList(0, 1, 2), isr.get(0), isr);
+    }
+
     private Protos.TaskStatus getRunningTaskStatus(String taskId) {
         return getTaskStatus(taskId, Protos.TaskState.TASK_RUNNING);
     }
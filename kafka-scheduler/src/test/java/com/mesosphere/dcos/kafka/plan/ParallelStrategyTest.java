@@ -0,0 +1,201 @@
+package com.mesosphere.dcos.kafka.plan;
+
+import com.mesosphere.dcos.kafka.cmd.LeadershipDrainer;
+import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
+import com.mesosphere.dcos.kafka.config.KafkaConfigState;
+import com.mesosphere.dcos.kafka.config.KafkaSchedulerConfiguration;
+import com.mesosphere.dcos.kafka.offer.PersistentOfferRequirementProvider;
+import com.mesosphere.dcos.kafka.state.ClusterState;
+import com.mesosphere.dcos.kafka.state.FrameworkState;
+import com.mesosphere.dcos.kafka.test.ConfigTestUtils;
+import com.mesosphere.dcos.kafka.test.KafkaTestUtils;
+import org.apache.mesos.Protos;
+import org.apache.mesos.dcos.Capabilities;
+import org.apache.mesos.scheduler.plan.Block;
+import org.apache.mesos.scheduler.plan.Phase;
+import org.apache.mesos.state.StateStore;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class tests the ParallelStrategy class.
+ */
+public class ParallelStrategyTest {
+    @Mock private Phase phase;
+    @Mock private KafkaState kafkaState;
+    private List<Block> blocks;
+
+    @Before
+    public void beforeEach() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        blocks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            blocks.add(getBlock(i));
+        }
+        when(phase.getBlocks()).thenReturn(blocks);
+        when(kafkaState.getPartitionStates()).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void testStartsUpToConcurrencyBlocks() throws Exception {
+        ParallelStrategy strategy = new ParallelStrategy(phase, kafkaState, 2);
+
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+        setInProgress(blocks.get(0));
+        Assert.assertEquals(blocks.get(1), strategy.getCurrentBlock());
+        setInProgress(blocks.get(1));
+
+        // Concurrency limit reached, an active block is returned
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+
+        setComplete(blocks.get(0));
+        Assert.assertEquals(blocks.get(2), strategy.getCurrentBlock());
+    }
+
+    @Test
+    public void testPendingActiveBlockDrivenFirst() throws Exception {
+        ParallelStrategy strategy = new ParallelStrategy(phase, kafkaState, 3);
+
+        // The broker is being restarted, so the block stays pending until it's relaunched
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+
+        setInProgress(blocks.get(0));
+        Assert.assertEquals(blocks.get(1), strategy.getCurrentBlock());
+    }
+
+    @Test
+    public void testBrokersSharingReplicasNotUpdatedTogether() throws Exception {
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(
+                new PartitionState("topic0", 0, Arrays.asList(0, 1), 0, Arrays.asList(0, 1))));
+        ParallelStrategy strategy = new ParallelStrategy(phase, kafkaState, 3);
+
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+        setInProgress(blocks.get(0));
+
+        // Broker 1 shares a partition with broker 0, broker 2 doesn't
+        Assert.assertEquals(blocks.get(2), strategy.getCurrentBlock());
+        setInProgress(blocks.get(2));
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+
+        setComplete(blocks.get(0));
+        Assert.assertEquals(blocks.get(1), strategy.getCurrentBlock());
+    }
+
+    @Test
+    public void testNoParallelUpdateWithoutPartitionState() throws Exception {
+        when(kafkaState.getPartitionStates()).thenThrow(new Exception("zk unavailable"));
+        ParallelStrategy strategy = new ParallelStrategy(phase, kafkaState, 3);
+
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+        setInProgress(blocks.get(0));
+        Assert.assertEquals(blocks.get(0), strategy.getCurrentBlock());
+    }
+
+    @Test
+    public void testActiveBlocksReplicateTogether() throws Exception {
+        // Brokers 0 and 1 share no partition, so both are updated at once
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(
+                new PartitionState("topic0", 0, Arrays.asList(0, 2), 2, Arrays.asList(2)),
+                new PartitionState("topic0", 1, Arrays.asList(1, 2), 2, Arrays.asList(2))));
+        KafkaUpdatePhase updatePhase = getUpdatePhase(2);
+        ParallelStrategy strategy = new ParallelStrategy(updatePhase, kafkaState, 2);
+
+        KafkaUpdateBlock block0 = (KafkaUpdateBlock) strategy.getCurrentBlock();
+        Assert.assertEquals(0, block0.getBrokerId());
+        launch(block0);
+        KafkaUpdateBlock block1 = (KafkaUpdateBlock) strategy.getCurrentBlock();
+        Assert.assertEquals(1, block1.getBrokerId());
+        launch(block1);
+        Assert.assertTrue(block0.isReplicating());
+        Assert.assertTrue(block1.isReplicating());
+
+        // Both brokers rejoin the ISR, and a single offer cycle completes both Blocks
+        when(kafkaState.getPartitionStates()).thenReturn(Arrays.asList(
+                new PartitionState("topic0", 0, Arrays.asList(0, 2), 2, Arrays.asList(2, 0)),
+                new PartitionState("topic0", 1, Arrays.asList(1, 2), 2, Arrays.asList(2, 1))));
+        updatePhase.checkProgress();
+        Assert.assertTrue(block0.isComplete());
+        Assert.assertTrue(block1.isComplete());
+    }
+
+    @Test
+    public void testConcurrencyAtLeastOne() {
+        Assert.assertEquals(1, new ParallelStrategy(phase, kafkaState, 0).getConcurrency());
+    }
+
+    private KafkaUpdatePhase getUpdatePhase(int brokerCount) throws Exception {
+        FrameworkState frameworkState = mock(FrameworkState.class);
+        StateStore stateStore = mock(StateStore.class);
+        when(stateStore.fetchFrameworkId()).thenReturn(Optional.of(KafkaTestUtils.testFrameworkId));
+        when(frameworkState.getStateStore()).thenReturn(stateStore);
+        when(frameworkState.getTaskStatusForBroker(any())).thenReturn(Optional.empty());
+
+        KafkaSchedulerConfiguration config = ConfigTestUtils.getTestKafkaSchedulerConfiguration();
+        config.getServiceConfiguration().setCount(brokerCount);
+        KafkaConfigState configState = mock(KafkaConfigState.class);
+        when(configState.fetch(UUID.fromString(KafkaTestUtils.testConfigName))).thenReturn(config);
+        Capabilities capabilities = mock(Capabilities.class);
+        when(capabilities.supportsNamedVips()).thenReturn(true);
+        ClusterState clusterState = mock(ClusterState.class);
+        when(clusterState.getCapabilities()).thenReturn(capabilities);
+
+        LeadershipDrainer leadershipDrainer = mock(LeadershipDrainer.class);
+        when(leadershipDrainer.restore(anyInt())).thenReturn(true);
+
+        return new KafkaUpdatePhase(
+                KafkaTestUtils.testConfigName,
+                config,
+                frameworkState,
+                kafkaState,
+                leadershipDrainer,
+                new PersistentOfferRequirementProvider(frameworkState, configState, clusterState));
+    }
+
+    private static void launch(KafkaUpdateBlock block) {
+        Assert.assertTrue(block.start().isPresent());
+        block.updateOfferStatus(Arrays.asList(Protos.Offer.Operation.newBuilder()
+                .setType(Protos.Offer.Operation.Type.LAUNCH)
+                .build()));
+        block.update(Protos.TaskStatus.newBuilder()
+                .setTaskId(block.getPendingTaskIds().get(0))
+                .setState(Protos.TaskState.TASK_RUNNING)
+                .build());
+    }
+
+    private static KafkaUpdateBlock getBlock(int brokerId) {
+        KafkaUpdateBlock block = mock(KafkaUpdateBlock.class);
+        when(block.getId()).thenReturn(UUID.randomUUID());
+        when(block.getBrokerId()).thenReturn(brokerId);
+        when(block.getName()).thenReturn("broker-" + brokerId);
+        when(block.isPending()).thenReturn(true);
+        return block;
+    }
+
+    private static void setInProgress(Block block) {
+        when(block.isPending()).thenReturn(false);
+        when(block.isInProgress()).thenReturn(true);
+    }
+
+    private static void setComplete(Block block) {
+        when(block.isPending()).thenReturn(false);
+        when(block.isInProgress()).thenReturn(false);
+        when(block.isComplete()).thenReturn(true);
+    }
+}
@@ -1,5 +1,6 @@
 package com.mesosphere.dcos.kafka.scheduler;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.mesosphere.dcos.kafka.config.DropwizardConfiguration;
@@ -81,6 +82,20 @@ public class KafkaSchedulerTest {
         verify(driver, times(1)).reconcileTasks(anyObject());
     }
 
+    @Test
+    public void testResourceOffersMetrics() {
+        MetricRegistry metrics = environment.metrics();
+        long cycles = metrics.timer(MetricRegistry.name(OfferCycleMetrics.class, "cycle")).getCount();
+        long reconciles = metrics.timer(MetricRegistry.name(OfferCycleMetrics.class, "stage", "reconcile")).getCount();
+
+        kafkaScheduler.resourceOffers(driver, Collections.emptyList());
+
+        Assert.assertEquals(cycles + 1,
+                metrics.timer(MetricRegistry.name(OfferCycleMetrics.class, "cycle")).getCount());
+        Assert.assertEquals(reconciles + 1,
+                metrics.timer(MetricRegistry.name(OfferCycleMetrics.class, "stage", "reconcile")).getCount());
+    }
+
     @Test
     public void testRestartEmptyTasks() {
         KafkaScheduler.restartTasks(null);
@@ -0,0 +1,180 @@
+package com.mesosphere.dcos.kafka.scheduler;
+
+import com.codahale.metrics.MetricRegistry;
+import com.mesosphere.dcos.kafka.test.KafkaTestUtils;
+import org.apache.mesos.Protos;
+import org.apache.mesos.SchedulerDriver;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests the SchedulerEventLoop class.
+ */
+public class SchedulerEventLoopTest {
+    @Mock private SchedulerDriver driver;
+    @Mock private SchedulerEventLoop.Handler handler;
+    private MetricRegistry metrics;
+
+    private static final Protos.TaskStatus testTaskStatus = Protos.TaskStatus.newBuilder()
+            .setTaskId(KafkaTestUtils.testTaskId)
+            .setState(Protos.TaskState.TASK_RUNNING)
+            .build();
+
+    @Before
+    public void beforeEach() {
+        MockitoAnnotations.initMocks(this);
+        metrics = new MetricRegistry();
+    }
+
+    @Test
+    public void testStatusesProcessedBeforeOffers() {
+        SchedulerEventLoop eventLoop = new SchedulerEventLoop(10, handler, metrics);
+        eventLoop.processBatch(Arrays.asList(
+                SchedulerEvent.offers(driver, Arrays.asList(getOffer("offer-1"))),
+                SchedulerEvent.status(driver, testTaskStatus)));
+
+        InOrder inOrder = inOrder(handler);
+        inOrder.verify(handler).handleStatusUpdates(driver, Arrays.asList(testTaskStatus));
+        inOrder.verify(handler).handleResourceOffers(eq(driver), anyListOf(Protos.Offer.class));
+    }
+
+    @Test
+    public void testOffersCoalescedAndRescindedOffersDropped() {
+        SchedulerEventLoop eventLoop = new SchedulerEventLoop(10, handler, metrics);
+        eventLoop.processBatch(Arrays.asList(
+                SchedulerEvent.offers(driver, Arrays.asList(getOffer("offer-1"))),
+                SchedulerEvent.offers(driver, Arrays.asList(getOffer("offer-2"), getOffer("offer-3"))),
+                SchedulerEvent.rescind(driver, Protos.OfferID.newBuilder().setValue("offer-2").build())));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(handler, times(1)).handleResourceOffers(eq(driver), captor.capture());
+        verify(handler, never()).handleStatusUpdates(any(), anyListOf(Protos.TaskStatus.class));
+        Assert.assertEquals(
+                Arrays.asList(getOffer("offer-1"), getOffer("offer-3")),
+                captor.getValue());
+    }
+
+    @Test
+    public void testDriverEventsProcessedFirst() {
+        SchedulerEventLoop eventLoop = new SchedulerEventLoop(10, handler, metrics);
+        Protos.SlaveID slaveId = Protos.SlaveID.newBuilder().setValue(KafkaTestUtils.testSlaveId).build();
+        eventLoop.processBatch(Arrays.asList(
+                SchedulerEvent.offers(driver, Arrays.asList(getOffer("offer-1"))),
+                SchedulerEvent.status(driver, testTaskStatus),
+                SchedulerEvent.registered(driver, KafkaTestUtils.testFrameworkId),
+                SchedulerEvent.slaveLost(driver, slaveId),
+                SchedulerEvent.reregistered(driver)));
+
+        InOrder inOrder = inOrder(handler);
+        inOrder.verify(handler).handleRegistered(driver, KafkaTestUtils.testFrameworkId);
+        inOrder.verify(handler).handleSlaveLost(driver, slaveId);
+        inOrder.verify(handler).handleReregistered(driver);
+        inOrder.verify(handler).handleStatusUpdates(driver, Arrays.asList(testTaskStatus));
+        inOrder.verify(handler).handleResourceOffers(eq(driver), anyListOf(Protos.Offer.class));
+    }
+
+    @Test
+    public void testReregistrationWhileProcessingOffers() throws Exception {
+        CountDownLatch offersStarted = new CountDownLatch(1);
+        CountDownLatch releaseOffers = new CountDownLatch(1);
+        CountDownLatch reregistered = new CountDownLatch(1);
+        AtomicBoolean processingOffers = new AtomicBoolean(false);
+        AtomicBoolean overlapped = new AtomicBoolean(false);
+        List<Thread> handlerThreads = Collections.synchronizedList(new ArrayList<>());
+
+        SchedulerEventLoop.Handler blockingHandler = new SchedulerEventLoop.Handler() {
+            @Override
+            public void handleRegistered(SchedulerDriver driver, Protos.FrameworkID frameworkId) {
+            }
+
+            @Override
+            public void handleReregistered(SchedulerDriver driver) {
+                handlerThreads.add(Thread.currentThread());
+                if (processingOffers.get()) {
+                    overlapped.set(true);
+                }
+                reregistered.countDown();
+            }
+
+            @Override
+            public void handleSlaveLost(SchedulerDriver driver, Protos.SlaveID slaveId) {
+            }
+
+            @Override
+            public void handleStatusUpdates(SchedulerDriver driver, List<Protos.TaskStatus> statuses) {
+            }
+
+            @Override
+            public void handleResourceOffers(SchedulerDriver driver, List<Protos.Offer> offers) {
+                handlerThreads.add(Thread.currentThread());
+                processingOffers.set(true);
+                offersStarted.countDown();
+                try {
+                    releaseOffers.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                processingOffers.set(false);
+            }
+        };
+
+        SchedulerEventLoop eventLoop = new SchedulerEventLoop(10, blockingHandler, metrics);
+        Thread loopThread = new Thread(eventLoop);
+        loopThread.start();
+        try {
+            eventLoop.enqueueOffers(driver, Arrays.asList(getOffer("offer-1")));
+            Assert.assertTrue(offersStarted.await(5, TimeUnit.SECONDS));
+
+            // The driver thread reregisters while the offer cycle is still running
+            eventLoop.enqueueReregistered(driver);
+            Assert.assertFalse(reregistered.await(200, TimeUnit.MILLISECONDS));
+
+            releaseOffers.countDown();
+            Assert.assertTrue(reregistered.await(5, TimeUnit.SECONDS));
+            Assert.assertFalse(overlapped.get());
+            Assert.assertEquals(Arrays.asList(loopThread, loopThread), handlerThreads);
+        } finally {
+            releaseOffers.countDown();
+            loopThread.interrupt();
+            loopThread.join(5000);
+        }
+    }
+
+    @Test
+    public void testFullQueueDeclinesOffers() {
+        SchedulerEventLoop eventLoop = new SchedulerEventLoop(1, handler, metrics);
+        eventLoop.enqueueOffers(driver, Arrays.asList(getOffer("offer-1")));
+        eventLoop.enqueueOffers(driver, Arrays.asList(getOffer("offer-2")));
+
+        Assert.assertEquals(1, eventLoop.getQueueDepth());
+        verify(driver, times(1)).declineOffer(Protos.OfferID.newBuilder().setValue("offer-2").build());
+        Assert.assertEquals(1, metrics.counter(
+                MetricRegistry.name(SchedulerEventLoop.class, "rejected-offers")).getCount());
+    }
+
+    private static Protos.Offer getOffer(String offerId) {
+        return Protos.Offer.newBuilder()
+                .setId(Protos.OfferID.newBuilder().setValue(offerId))
+                .setFrameworkId(KafkaTestUtils.testFrameworkId)
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue(KafkaTestUtils.testSlaveId))
+                .setHostname(KafkaTestUtils.testHostname)
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.mesosphere.dcos.kafka.scheduler;
+
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.curator.test.TestingServer;
+import org.apache.mesos.testing.CuratorTestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class tests the SchedulerLeaderElection class.
+ */
+public class SchedulerLeaderElectionTest {
+    private static final String testFrameworkName = "kafka";
+
+    private static TestingServer testingServer;
+    private ZookeeperConfiguration zkConfig;
+    private AtomicInteger leadershipLost;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        testingServer = new TestingServer();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        CuratorTestUtils.clear(testingServer);
+        zkConfig = new ZookeeperConfiguration(
+                testFrameworkName,
+                testingServer.getConnectString(),
+                testingServer.getConnectString());
+        leadershipLost = new AtomicInteger();
+    }
+
+    @Test
+    public void testStandbyTakesOver() throws Exception {
+        SchedulerLeaderElection active = new SchedulerLeaderElection(zkConfig, leadershipLost::incrementAndGet);
+        SchedulerLeaderElection standby = new SchedulerLeaderElection(zkConfig, leadershipLost::incrementAndGet);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            active.awaitLeadership();
+            Assert.assertTrue(active.hasLeadership());
+
+            Future<?> takeover = executor.submit(() -> {
+                standby.awaitLeadership();
+                return null;
+            });
+            Thread.sleep(500);
+            Assert.assertFalse(takeover.isDone());
+            Assert.assertFalse(standby.hasLeadership());
+
+            active.close();
+            takeover.get(10, TimeUnit.SECONDS);
+            Assert.assertTrue(standby.hasLeadership());
+            Assert.assertEquals(0, leadershipLost.get());
+        } finally {
+            standby.close();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.mesosphere.dcos.kafka.state;
+
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.curator.test.TestingServer;
+import org.apache.mesos.Protos;
+import org.apache.mesos.curator.CuratorStateStore;
+import org.apache.mesos.offer.TaskUtils;
+import org.apache.mesos.testing.CuratorTestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * This class tests the FrameworkState class.
+ */
+public class FrameworkStateTest {
+    private static final String testFrameworkName = "kafka";
+    private static final String testTaskName = "broker-0";
+
+    private static TestingServer testingServer;
+    private ZookeeperConfiguration zkConfig;
+    private FrameworkState frameworkState;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        testingServer = new TestingServer();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        CuratorTestUtils.clear(testingServer);
+        zkConfig = new ZookeeperConfiguration(
+                testFrameworkName,
+                testingServer.getConnectString(),
+                testingServer.getConnectString());
+        frameworkState = new FrameworkState(zkConfig);
+    }
+
+    @Test
+    public void testEmptyState() throws Exception {
+        Assert.assertEquals(0, frameworkState.getTaskInfos().size());
+        Assert.assertEquals(0, frameworkState.getTaskStatuses().size());
+        Assert.assertEquals(0, frameworkState.getRunningBrokersCount());
+        Assert.assertFalse(frameworkState.getTaskInfoForBroker(0).isPresent());
+    }
+
+    @Test
+    public void testRecordTasks() throws Exception {
+        Protos.TaskInfo taskInfo = getTestTaskInfo();
+        frameworkState.recordTasks(Arrays.asList(taskInfo));
+
+        Assert.assertEquals(Arrays.asList(taskInfo), frameworkState.getTaskInfos());
+        Assert.assertEquals(taskInfo, frameworkState.getTaskInfoForBroker(0).get());
+        Assert.assertEquals(
+                Protos.TaskState.TASK_STAGING,
+                frameworkState.getTaskStatusForBroker(0).get().getState());
+        Assert.assertEquals(0, frameworkState.getRunningBrokersCount());
+    }
+
+    @Test
+    public void testUpdateStatus() throws Exception {
+        Protos.TaskInfo taskInfo = getTestTaskInfo();
+        frameworkState.recordTasks(Arrays.asList(taskInfo));
+        frameworkState.updateStatus(getTestTaskStatus(taskInfo, Protos.TaskState.TASK_RUNNING));
+        Assert.assertEquals(1, frameworkState.getRunningBrokersCount());
+
+        frameworkState.updateStatus(getTestTaskStatus(taskInfo, Protos.TaskState.TASK_FAILED));
+        Assert.assertEquals(0, frameworkState.getRunningBrokersCount());
+        Assert.assertEquals(1, frameworkState.getTaskStatuses().size());
+    }
+
+    @Test
+    public void testUnchangedStatusNotRecorded() throws Exception {
+        Protos.TaskInfo taskInfo = getTestTaskInfo();
+        frameworkState.recordTasks(Arrays.asList(taskInfo));
+        Protos.TaskStatus runningStatus = getTestTaskStatus(taskInfo, Protos.TaskState.TASK_RUNNING);
+        frameworkState.updateStatus(runningStatus);
+
+        frameworkState.updateStatus(runningStatus.toBuilder()
+                .setReason(Protos.TaskStatus.Reason.REASON_RECONCILIATION)
+                .build());
+        Assert.assertEquals(runningStatus, frameworkState.getTaskStatusForBroker(0).get());
+
+        Protos.TaskStatus healthyStatus = runningStatus.toBuilder().setHealthy(true).build();
+        frameworkState.updateStatus(healthyStatus);
+        Assert.assertEquals(healthyStatus, frameworkState.getTaskStatusForBroker(0).get());
+
+        CuratorStateStore stateStore = new CuratorStateStore(testFrameworkName, testingServer.getConnectString());
+        Assert.assertEquals(healthyStatus, stateStore.fetchStatus(testTaskName));
+    }
+
+    @Test
+    public void testStateLoadedOnStartup() throws Exception {
+        Protos.TaskInfo taskInfo = getTestTaskInfo();
+        frameworkState.recordTasks(Arrays.asList(taskInfo));
+        frameworkState.updateStatus(getTestTaskStatus(taskInfo, Protos.TaskState.TASK_RUNNING));
+
+        FrameworkState restartedState = new FrameworkState(zkConfig);
+        Assert.assertEquals(Arrays.asList(taskInfo), restartedState.getTaskInfos());
+        Assert.assertEquals(1, restartedState.getRunningBrokersCount());
+    }
+
+    @Test
+    public void testRecordTasksReadableFromStateStore() throws Exception {
+        Protos.TaskInfo taskInfo0 = getTestTaskInfo();
+        Protos.TaskInfo taskInfo1 = getTestTaskInfo().toBuilder()
+                .setName("broker-1")
+                .setTaskId(TaskUtils.toTaskId("broker-1"))
+                .build();
+        frameworkState.recordTasks(Arrays.asList(taskInfo0, taskInfo1));
+        frameworkState.updateStatus(getTestTaskStatus(taskInfo0, Protos.TaskState.TASK_RUNNING));
+
+        // Relaunching a known task updates its existing nodes
+        Protos.TaskInfo relaunchedTaskInfo = getTestTaskInfo("resource-0");
+        frameworkState.recordTasks(Arrays.asList(relaunchedTaskInfo));
+
+        CuratorStateStore stateStore = new CuratorStateStore(testFrameworkName, testingServer.getConnectString());
+        Assert.assertEquals(2, stateStore.fetchTasks().size());
+        Assert.assertEquals(relaunchedTaskInfo, stateStore.fetchTask(testTaskName));
+        Assert.assertEquals(2, stateStore.fetchStatuses().size());
+        for (Protos.TaskStatus taskStatus : stateStore.fetchStatuses()) {
+            Assert.assertEquals(Protos.TaskState.TASK_STAGING, taskStatus.getState());
+        }
+    }
+
+    @Test
+    public void testExpectedResourceIdsFollowTaskInfo() throws Exception {
+        frameworkState.recordTasks(Arrays.asList(getTestTaskInfo("resource-0")));
+        Assert.assertTrue(frameworkState.isExpectedResourceId("resource-0"));
+
+        frameworkState.recordTaskInfo(getTestTaskInfo("resource-1"));
+        Assert.assertFalse(frameworkState.isExpectedResourceId("resource-0"));
+        Assert.assertTrue(frameworkState.isExpectedResourceId("resource-1"));
+
+        FrameworkState restartedState = new FrameworkState(zkConfig);
+        Assert.assertTrue(restartedState.isExpectedResourceId("resource-1"));
+    }
+
+    private static Protos.TaskInfo getTestTaskInfo(String resourceId) {
+        return getTestTaskInfo().toBuilder()
+                .addResources(Protos.Resource.newBuilder()
+                        .setName("cpus")
+                        .setType(Protos.Value.Type.SCALAR)
+                        .setScalar(Protos.Value.Scalar.newBuilder().setValue(1.0))
+                        .setRole("test-role")
+                        .setReservation(Protos.Resource.ReservationInfo.newBuilder()
+                                .setPrincipal("test-principal")
+                                .setLabels(Protos.Labels.newBuilder()
+                                        .addLabels(Protos.Label.newBuilder()
+                                                .setKey("resource_id")
+                                                .setValue(resourceId)))))
+                .build();
+    }
+
+    private static Protos.TaskInfo getTestTaskInfo() {
+        return Protos.TaskInfo.newBuilder()
+                .setName(testTaskName)
+                .setTaskId(TaskUtils.toTaskId(testTaskName))
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("test-slave-id"))
+                .setExecutor(Protos.ExecutorInfo.newBuilder()
+                        .setExecutorId(Protos.ExecutorID.newBuilder().setValue("test-executor-id"))
+                        .setCommand(Protos.CommandInfo.newBuilder().setValue("test-cmd")))
+                .build();
+    }
+
+    private static Protos.TaskStatus getTestTaskStatus(Protos.TaskInfo taskInfo, Protos.TaskState state) {
+        return Protos.TaskStatus.newBuilder()
+                .setTaskId(taskInfo.getTaskId())
+                .setExecutorId(taskInfo.getExecutor().getExecutorId())
+                .setState(state)
+                .build();
+    }
+}
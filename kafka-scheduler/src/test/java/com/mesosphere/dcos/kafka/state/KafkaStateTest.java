@@ -1,6 +1,7 @@
 package com.mesosphere.dcos.kafka.state;
 
 import com.mesosphere.dcos.kafka.commons.state.KafkaState;
+import com.mesosphere.dcos.kafka.commons.state.PartitionState;
 import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
@@ -10,11 +11,13 @@ import org.apache.mesos.dcos.DcosConstants;
 import org.apache.mesos.testing.CuratorTestUtils;
 import org.apache.zookeeper.KeeperException;
 import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -98,13 +101,81 @@ public class KafkaStateTest {
         Assert.assertEquals("broker-0.kafka.mesos:9092", brokerDNSEndpoints.get(0));
     }
 
+    @Test
+    public void testBrokerRegistrationChangesObserved() throws Exception {
+        Assert.assertEquals(0, kafkaState.getBrokerEndpoints().size());
+
+        zkClient.create().creatingParentsIfNeeded().forPath(testRoot + "/brokers/ids/0", "{host:host, port:9092}".getBytes());
+        Assert.assertTrue(waitForEndpointCount(1));
+        Assert.assertEquals("host:9092", kafkaState.getBrokerEndpoints().get(0));
+
+        zkClient.delete().forPath(testRoot + "/brokers/ids/0");
+        Assert.assertTrue(waitForEndpointCount(0));
+        Assert.assertFalse(kafkaState.getBroker("0").isPresent());
+    }
+
     @Test
     public void testGetEmptyTopics() throws Exception {
         Assert.assertEquals(0, kafkaState.getTopics().length());
     }
 
+    @Test
+    public void testPartitionStateChangesObserved() throws Exception {
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0", "{\"version\":1,\"partitions\":{\"0\":[0,1]}}".getBytes());
+        zkClient.create().creatingParentsIfNeeded().forPath(
+                testRoot + "/brokers/topics/topic0/partitions/0/state", "{\"leader\":0,\"isr\":[0]}".getBytes());
+
+        List<PartitionState> underReplicated = kafkaState.getUnderReplicatedPartitions();
+        Assert.assertEquals(1, underReplicated.size());
+        Assert.assertEquals(Arrays.asList(0, 1), underReplicated.get(0).getReplicas());
+        Assert.assertEquals(Integer.valueOf(0), underReplicated.get(0).getLeader().get());
+        Assert.assertEquals(1, kafkaState.getUnavailablePartitions().size());
+
+        zkClient.setData().forPath(
+                testRoot + "/brokers/topics/topic0/partitions/0/state", "{\"leader\":0,\"isr\":[0,1]}".getBytes());
+        for (int i = 0; i < 50 && !kafkaState.getUnderReplicatedPartitions().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(0, kafkaState.getUnderReplicatedPartitions().size());
+    }
+
     @Test(expected= KeeperException.NoNodeException.class)
     public void testGetNonExistantTopic() throws Exception {
         kafkaState.getTopic("fake-topic-name");
     }
+
+    @Test
+    public void testGetTopicWithLimitedInFlightReads() throws Exception {
+        KafkaState limitedState = new KafkaState(zkConfig, 2);
+        for (int i = 0; i < 5; i++) {
+            zkClient.create().creatingParentsIfNeeded().forPath(
+                    testRoot + "/brokers/topics/topic0/partitions/" + i + "/state",
+                    ("{\"leader\":" + i + ",\"isr\":[" + i + "]}").getBytes());
+        }
+
+        JSONArray partitions = limitedState.getTopic("topic0").getJSONArray("partitions");
+        Assert.assertEquals(5, partitions.length());
+        for (int i = 0; i < partitions.length(); i++) {
+            JSONObject partition = partitions.getJSONObject(i);
+            String partitionId = partition.keys().next();
+            Assert.assertEquals(Integer.parseInt(partitionId), partition.getJSONObject(partitionId).getInt("leader"));
+        }
+    }
+
+    @Test(expected= KeeperException.NoNodeException.class)
+    public void testGetTopicMissingPartitionState() throws Exception {
+        zkClient.create().creatingParentsIfNeeded().forPath(testRoot + "/brokers/topics/topic0/partitions/0");
+        kafkaState.getTopic("topic0");
+    }
+
+    private boolean waitForEndpointCount(int count) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            if (kafkaState.getBrokerEndpoints().size() == count) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
 }
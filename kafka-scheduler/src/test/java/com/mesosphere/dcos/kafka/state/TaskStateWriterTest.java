@@ -0,0 +1,116 @@
+package com.mesosphere.dcos.kafka.state;
+
+import com.mesosphere.dcos.kafka.config.ZookeeperConfiguration;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingServer;
+import org.apache.mesos.Protos;
+import org.apache.mesos.curator.CuratorStateStore;
+import org.apache.mesos.offer.TaskUtils;
+import org.apache.mesos.state.StateStoreException;
+import org.apache.mesos.testing.CuratorTestUtils;
+import org.junit.*;
+
+import java.util.Arrays;
+
+/**
+ * This class tests the TaskStateWriter class against the nodes read by CuratorStateStore.
+ */
+public class TaskStateWriterTest {
+    private static final String testFrameworkName = "kafka";
+
+    private static TestingServer testingServer;
+    private CuratorFramework zkClient;
+    private CuratorStateStore stateStore;
+    private TaskStateCache cache;
+    private TaskStateWriter writer;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        testingServer = new TestingServer();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        CuratorTestUtils.clear(testingServer);
+        ZookeeperConfiguration zkConfig = new ZookeeperConfiguration(
+                testFrameworkName,
+                testingServer.getConnectString(),
+                testingServer.getConnectString());
+        zkClient = CuratorFrameworkFactory.newClient(testingServer.getConnectString(), new RetryNTimes(0, 0));
+        zkClient.start();
+        stateStore = new CuratorStateStore(testFrameworkName, testingServer.getConnectString());
+        cache = new TaskStateCache();
+        cache.load(stateStore);
+        writer = new TaskStateWriter(zkClient, zkConfig.getZkRootPath());
+    }
+
+    @After
+    public void afterEach() {
+        zkClient.close();
+    }
+
+    @Test
+    public void testStoredTasksReadableFromStateStore() throws Exception {
+        Protos.TaskInfo taskInfo0 = getTestTaskInfo("broker-0", "test-cmd");
+        Protos.TaskInfo taskInfo1 = getTestTaskInfo("broker-1", "test-cmd");
+        writer.storeTasks(
+                Arrays.asList(taskInfo0, taskInfo1),
+                Arrays.asList(getTestTaskStatus(taskInfo0), getTestTaskStatus(taskInfo1)),
+                cache);
+
+        Assert.assertEquals(taskInfo0, stateStore.fetchTask("broker-0"));
+        Assert.assertEquals(taskInfo1, stateStore.fetchTask("broker-1"));
+        Assert.assertEquals(getTestTaskStatus(taskInfo0), stateStore.fetchStatus("broker-0"));
+        Assert.assertEquals(getTestTaskStatus(taskInfo1), stateStore.fetchStatus("broker-1"));
+
+        // Known tasks are updated in place
+        cache.load(stateStore);
+        Protos.TaskInfo updatedTaskInfo = getTestTaskInfo("broker-0", "updated-cmd");
+        writer.storeTasks(Arrays.asList(updatedTaskInfo), Arrays.asList(getTestTaskStatus(updatedTaskInfo)), cache);
+        Assert.assertEquals(updatedTaskInfo, stateStore.fetchTask("broker-0"));
+    }
+
+    @Test
+    public void testStaleCacheWritesNothing() throws Exception {
+        Protos.TaskInfo taskInfo0 = getTestTaskInfo("broker-0", "test-cmd");
+        writer.storeTasks(Arrays.asList(taskInfo0), Arrays.asList(getTestTaskStatus(taskInfo0)), cache);
+
+        // The cache still says broker-0 doesn't exist, so creating its nodes fails and broker-1 isn't written either
+        Protos.TaskInfo updatedTaskInfo = getTestTaskInfo("broker-0", "updated-cmd");
+        Protos.TaskInfo taskInfo1 = getTestTaskInfo("broker-1", "test-cmd");
+        try {
+            writer.storeTasks(
+                    Arrays.asList(updatedTaskInfo, taskInfo1),
+                    Arrays.asList(getTestTaskStatus(updatedTaskInfo), getTestTaskStatus(taskInfo1)),
+                    cache);
+            Assert.fail("Expected the transaction to fail");
+        } catch (StateStoreException e) {
+            // expected
+        }
+
+        Assert.assertEquals(1, stateStore.fetchTasks().size());
+        Assert.assertEquals(taskInfo0, stateStore.fetchTask("broker-0"));
+        Assert.assertEquals(1, stateStore.fetchStatuses().size());
+    }
+
+    private static Protos.TaskInfo getTestTaskInfo(String taskName, String cmd) {
+        return Protos.TaskInfo.newBuilder()
+                .setName(taskName)
+                .setTaskId(TaskUtils.toTaskId(taskName))
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("test-slave-id"))
+                .setExecutor(Protos.ExecutorInfo.newBuilder()
+                        .setExecutorId(Protos.ExecutorID.newBuilder().setValue("test-executor-id"))
+                        .setCommand(Protos.CommandInfo.newBuilder().setValue(cmd)))
+                .build();
+    }
+
+    private static Protos.TaskStatus getTestTaskStatus(Protos.TaskInfo taskInfo) {
+        return Protos.TaskStatus.newBuilder()
+                .setTaskId(taskInfo.getTaskId())
+                .setExecutorId(taskInfo.getExecutor().getExecutorId())
+                .setState(Protos.TaskState.TASK_STAGING)
+                .build();
+    }
+}
@@ -10,9 +10,16 @@ public class ConfigTestUtils {
                 KafkaTestUtils.testFrameworkName,
                 KafkaTestUtils.testUser,
                 KafkaTestUtils.testPlacementStrategy,
+                KafkaTestUtils.testPlacementAttribute,
                 KafkaTestUtils.testPhaseStrategy,
+                KafkaTestUtils.testPhaseConcurrency,
+                KafkaTestUtils.testIsrWaitTimeoutSecs,
+                KafkaTestUtils.testLeadershipTimeoutSecs,
                 KafkaTestUtils.testRole,
-                KafkaTestUtils.testPrincipal);
+                KafkaTestUtils.testPrincipal,
+                KafkaTestUtils.testEventLoopEnabled,
+                KafkaTestUtils.testEventQueueCapacity,
+                KafkaTestUtils.testHaEnabled);
     }
 
     public static BrokerConfiguration getTestBrokerConfiguration() {
@@ -20,8 +27,11 @@ public class ConfigTestUtils {
                 1,
                 1000,
                 new HeapConfig(500),
+                KafkaTestUtils.testMemoryProfile,
+                KafkaTestUtils.testJvmProfile,
                 5000,
                 KafkaTestUtils.testDiskType,
+                null,
                 KafkaTestUtils.testKafkaUri,
                 KafkaTestUtils.testJavaUri,
                 KafkaTestUtils.testOverriderUri,
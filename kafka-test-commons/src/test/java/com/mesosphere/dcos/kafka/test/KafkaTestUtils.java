@@ -19,7 +19,16 @@ public class KafkaTestUtils {
     public static final String testFrameworkName = "test-framework-name";
     public static final String testUser = "test-user";
     public static final String testPlacementStrategy = "test-placement-strategy";
+    public static final String testPlacementAttribute = "rack";
     public static final String testPhaseStrategy = "test-phase-strategy";
+    public static final int testPhaseConcurrency = 1;
+    public static final int testIsrWaitTimeoutSecs = 300;
+    public static final int testLeadershipTimeoutSecs = 120;
+    public static final boolean testEventLoopEnabled = false;
+    public static final int testEventQueueCapacity = 100;
+    public static final boolean testHaEnabled = false;
+    public static final String testMemoryProfile = "MANUAL";
+    public static final String testJvmProfile = "DEFAULT";
     public static final String testDiskType = "test-disk-type";
     public static final String testKafkaUri = "test-kafka-uri";
     public static final String testJavaUri = "test-java-uri";